@@ -0,0 +1,120 @@
+package de.tautenhahn.dependencies.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+
+/**
+ * Compares the descriptor scanner with the regular expression formerly used to find class names. Input is a
+ * mixture of UTF8 constants as found in a typical constant pool, about half of them not being descriptors.
+ * Call "gradle jmh" to run.
+ *
+ * @author TT
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DescriptorScannerBenchmark
+{
+
+  private static final Pattern FIND_CLASS_NAME = Pattern.compile("L(\\w+(/\\w+)*(\\$\\w+)?)(<[^>]+>)?;");
+
+  private static final String[] POOL = {"<init>", "()V", "Code", "LineNumberTable", "LocalVariableTable",
+                                        "this", "Ljava/util/concurrent/ConcurrentHashMap;",
+                                        "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;",
+                                        "(TK;TV;)TV;", "get", "put", "Signature", "StackMapTable",
+                                        "Ljava/util/Map<Ljava/util/List<Ljava/lang/String;>;Ljava/lang/Integer;>;",
+                                        "<K:Ljava/lang/Object;V:Ljava/lang/Object;>Ljava/util/AbstractMap<TK;TV;>;",
+                                        "(Ljava/util/concurrent/ConcurrentHashMap$BulkTask<TK;TV;*>;III)V",
+                                        "java/util/concurrent/ConcurrentHashMap$Node", "SourceFile",
+                                        "ConcurrentHashMap.java", "InnerClasses", "Exceptions",
+                                        "Ljava/lang/Deprecated;", "RuntimeVisibleAnnotations", "value", "key",
+                                        "(ILjava/util/function/BiFunction<-TK;-TV;+TV;>;)V",
+                                        "[Ljava/lang/String;", "serialVersionUID", "J", "NestMembers",
+                                        "Lfoo/Outer<TT;>.Inner;"};
+
+  private final DescriptorScanner scanner = new DescriptorScanner();
+
+  private final Set<String> result = new HashSet<>();
+
+  private ByteBuffer data;
+
+  private int[] offsets;
+
+  /**
+   * Provides the input as raw bytes like in a class file.
+   */
+  @Setup
+  public void setUp()
+  {
+    offsets = new int[POOL.length + 1];
+    int size = 0;
+    for ( int i = 0 ; i < POOL.length ; i++ )
+    {
+      offsets[i] = size;
+      size += POOL[i].getBytes(StandardCharsets.UTF_8).length;
+    }
+    offsets[POOL.length] = size;
+    data = ByteBuffer.allocate(size);
+    for ( String s : POOL )
+    {
+      data.put(s.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * Old way: decode every constant and apply the regex, replace separators for every match.
+   *
+   * @return found names
+   */
+  @Benchmark
+  public Set<String> regex()
+  {
+    result.clear();
+    for ( int i = 0 ; i < POOL.length ; i++ )
+    {
+      String s = new String(data.array(), offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+      Matcher m = FIND_CLASS_NAME.matcher(s);
+      while (m.find())
+      {
+        result.add(m.group(1).replace('/', '.'));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * New way: scan the raw bytes and create a string for every found name only.
+   *
+   * @return found names
+   */
+  @Benchmark
+  public Set<String> scanner()
+  {
+    result.clear();
+    for ( int i = 0 ; i < POOL.length ; i++ )
+    {
+      scanner.scan(data,
+                   offsets[i],
+                   offsets[i + 1],
+                   (n, l, a) -> result.add(new String(n,
+                                                      0,
+                                                      l,
+                                                      a ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8)));
+    }
+    return result;
+  }
+}
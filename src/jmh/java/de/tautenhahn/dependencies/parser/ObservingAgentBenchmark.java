@@ -0,0 +1,151 @@
+package de.tautenhahn.dependencies.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.google.gson.Gson;
+
+
+/**
+ * Measures what the {@link ObservingAgent} adds to class loading, which is the only work affected by the
+ * agent. Each operation defines all classes of the Gson jar in a fresh class loader, once without the agent
+ * and once calling the agent the way the JVM calls a registered transformer. The background parser of the
+ * agent keeps running during the measurement and competes for CPU. Because an application does much more
+ * than loading classes, the relative difference is an upper bound for the overhead under load. <br>
+ * Call "gradle jmh" to run.
+ *
+ * @author TT
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ObservingAgentBenchmark
+{
+
+  private final Map<String, byte[]> classFiles = new HashMap<>();
+
+  private ObservingAgent agent;
+
+  /**
+   * Reads the class files into memory so that the measurement does not include any IO.
+   *
+   * @throws IOException if the jar cannot be read
+   * @throws URISyntaxException never
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws IOException, URISyntaxException
+  {
+    Path jar = Paths.get(Gson.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    try (ZipFile zip = new ZipFile(jar.toFile()))
+    {
+      for ( ZipEntry entry : zip.stream()
+                                .filter(e -> e.getName().endsWith(".class")
+                                             && !e.getName().startsWith("META-INF/")
+                                             && !e.getName().endsWith("module-info.class"))
+                                .toArray(ZipEntry[]::new) )
+      {
+        try (InputStream insRes = zip.getInputStream(entry))
+        {
+          String name = entry.getName();
+          classFiles.put(name.substring(0, name.length() - ".class".length()), insRes.readAllBytes());
+        }
+      }
+    }
+    agent = new ObservingAgent();
+  }
+
+  /**
+   * Stops the background parser of the agent.
+   *
+   * @throws InterruptedException if interrupted while waiting
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws InterruptedException
+  {
+    agent.stop();
+  }
+
+  /**
+   * Loads the classes without agent.
+   *
+   * @return some loaded class
+   * @throws ClassNotFoundException never
+   */
+  @Benchmark
+  public Class<?> withoutAgent() throws ClassNotFoundException
+  {
+    return loadAll(null);
+  }
+
+  /**
+   * Loads the classes while the agent records them.
+   *
+   * @return some loaded class
+   * @throws ClassNotFoundException never
+   */
+  @Benchmark
+  public Class<?> withAgent() throws ClassNotFoundException
+  {
+    return loadAll(agent);
+  }
+
+  private Class<?> loadAll(ObservingAgent observer) throws ClassNotFoundException
+  {
+    DefiningLoader loader = new DefiningLoader(observer);
+    Class<?> result = null;
+    for ( String name : classFiles.keySet() )
+    {
+      result = loader.loadClass(name.replace('/', '.'));
+    }
+    return result;
+  }
+
+  /**
+   * Defines the read classes, calling the agent before like the JVM does.
+   */
+  private final class DefiningLoader extends ClassLoader
+  {
+
+    private final ObservingAgent observer;
+
+    DefiningLoader(ObservingAgent observer)
+    {
+      super(ObservingAgentBenchmark.class.getClassLoader().getParent());
+      this.observer = observer;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException
+    {
+      String internalName = name.replace('.', '/');
+      byte[] content = classFiles.get(internalName);
+      if (content == null)
+      {
+        throw new ClassNotFoundException(name);
+      }
+      if (observer != null)
+      {
+        observer.transform(this, internalName, null, null, content);
+      }
+      return defineClass(name, content, 0, content.length);
+    }
+  }
+}
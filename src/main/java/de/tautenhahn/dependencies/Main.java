@@ -8,10 +8,15 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
+import java.util.stream.Collectors;
 
 import de.tautenhahn.dependencies.parser.GradleAdapter;
+import de.tautenhahn.dependencies.parser.JdkIndex;
 import de.tautenhahn.dependencies.parser.Pair;
+import de.tautenhahn.dependencies.parser.ScanCache;
 import de.tautenhahn.dependencies.rest.ProjectView;
 import de.tautenhahn.dependencies.rest.Server;
 import spark.Spark;
@@ -25,6 +30,16 @@ import spark.Spark;
 public final class Main
 {
 
+  private static final String WATCH_OPTION = "--watch";
+
+  private static final String CACHE_OPTION = "--cache";
+
+  private static final String JDK_OPTION = "--jdk-index";
+
+  private static final String OBSERVED_OPTION = "--observed=";
+
+  private static final List<String> OPTIONS = Arrays.asList(WATCH_OPTION, CACHE_OPTION, JDK_OPTION);
+
   static PrintStream out = System.out;
 
   static boolean firefoxEnabled = true;
@@ -40,14 +55,39 @@ public final class Main
    */
   public static void main(String... args)
   {
-    if (args.length == 0 || args[0].toLowerCase(Locale.ENGLISH).matches("--?h(elp)?"))
+    List<String> options = Arrays.stream(args).filter(Main::isOption).collect(Collectors.toList());
+    String[] params = Arrays.stream(args).filter(a -> !isOption(a)).toArray(String[]::new);
+    if (params.length == 0 || params[0].toLowerCase(Locale.ENGLISH).matches("--?h(elp)?"))
     {
       out.println("\"Gordian Knot\" dependency checker version 0.3 alpha"
-                  + "\nUsage: GordianKnot <classpathToCheck> [projectName] [options]");
+                  + "\nUsage: GordianKnot <classpathToCheck> [projectName] [options]"
+                  + "\nOptions:\n  " + WATCH_OPTION
+                  + "      update the view when class files in scanned directories change\n  " + CACHE_OPTION
+                  + "      store parse results of archives in ~/.gordianknot/cache for later calls\n  "
+                  + JDK_OPTION + "  index the JDK (stored in ~/.gordianknot/jdk) to report platform usage\n  "
+                  + OBSERVED_OPTION + "<file>  do not report classes as unreferenced which have been loaded"
+                  + " at runtime, file written by the agent of the core jar");
       return;
     }
-    Pair<String, String> resolved = parseArgs(args);
-    ProjectView view = new ProjectView(resolved.getFirst(), resolved.getSecond());
+    Pair<String, String> resolved = parseArgs(params);
+    ProjectView view = new ProjectView(resolved.getFirst(),
+                                       resolved.getSecond(),
+                                       options.contains(CACHE_OPTION) ? ScanCache.createDefault() : null,
+                                       options.contains(JDK_OPTION) ? createJdkIndex() : null);
+    options.stream()
+           .filter(o -> o.startsWith(OBSERVED_OPTION))
+           .forEach(o -> readObservedClasses(view, Paths.get(o.substring(OBSERVED_OPTION.length()))));
+    if (options.contains(WATCH_OPTION))
+    {
+      try
+      {
+        view.watchClassDirectories();
+      }
+      catch (IOException e)
+      {
+        e.printStackTrace(out);
+      }
+    }
     Server instance = new Server(view);
     instance.start();
     String url = "http://localhost:" + port() + "/index.html";
@@ -58,6 +98,37 @@ public final class Main
     }
   }
 
+  private static boolean isOption(String arg)
+  {
+    return OPTIONS.contains(arg) || arg.startsWith(OBSERVED_OPTION);
+  }
+
+  private static void readObservedClasses(ProjectView view, Path file)
+  {
+    try
+    {
+      view.setObservedClasses(file);
+    }
+    catch (IOException e)
+    {
+      e.printStackTrace(out);
+      out.println("cannot read observed classes, report may list classes used at runtime as unreferenced");
+    }
+  }
+
+  private static JdkIndex createJdkIndex()
+  {
+    try
+    {
+      return JdkIndex.createDefault();
+    }
+    catch (IOException e)
+    {
+      e.printStackTrace(out);
+      out.println("cannot index JDK, dependencies to JDK classes will be ignored");
+      return null;
+    }
+  }
 
   private static boolean startFireFox(String url)
   {
@@ -2,6 +2,7 @@ package de.tautenhahn.dependencies.analyzers;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -14,6 +15,7 @@ import de.tautenhahn.dependencies.parser.ContainerNode;
 import de.tautenhahn.dependencies.parser.Filter;
 import de.tautenhahn.dependencies.parser.ListModeUtil;
 import de.tautenhahn.dependencies.parser.Node;
+import de.tautenhahn.dependencies.parser.ObservedClasses;
 import de.tautenhahn.dependencies.parser.Pair;
 import de.tautenhahn.dependencies.parser.ParsedClassPath;
 
@@ -37,6 +39,10 @@ public class ReferenceChecker
 
   private final Set<String> knownNeededClasses = new HashSet<>();
 
+  private final Set<String> observedClasses = new HashSet<>();
+
+  private final Set<String> registeredClasses = new HashSet<>();
+
   private final ClassInterpreter interpreter;
 
   /**
@@ -67,6 +73,29 @@ public class ReferenceChecker
     knownNeededClasses.addAll(Arrays.asList(classNames));
   }
 
+  /**
+   * Adds the classes recorded at runtime. Those classes and the classes they depend on are not reported as
+   * unreferenced, neither are the jars containing them.
+   *
+   * @param observed recorded by the agent
+   */
+  public void addObservedClasses(ObservedClasses observed)
+  {
+    observedClasses.addAll(observed.getNeededClassNames());
+  }
+
+  /**
+   * Adds the classes registered as services, Spring factories, servlets and so on. Those classes are not
+   * reported as unreferenced, neither are the jars containing them.
+   *
+   * @param classNames fully qualified class names, see
+   *          {@link de.tautenhahn.dependencies.parser.ProjectScanner#getRegisteredClasses()}
+   */
+  public void addRegisteredClasses(Collection<String> classNames)
+  {
+    registeredClasses.addAll(classNames);
+  }
+
   /**
    * Returns the nodes representing unreferenced classes together with likely interpretations.
    */
@@ -83,10 +112,11 @@ public class ReferenceChecker
       unrefClasses.removeIf(interpreter::isTest);
     }
     unrefClasses.removeIf(n -> knownNeededClasses.contains(n.getClassName()));
+    unrefClasses.removeIf(n -> observedClasses.contains(n.getClassName()));
     unrefClasses.removeIf(interpreter::isRecognizedAsMainClass);
     unrefClasses.removeIf(interpreter::isEjb);
     unrefClasses.removeIf(interpreter::isWebService);
-    // TODO: Servlets, registered services, ...
+    unrefClasses.removeIf(n -> registeredClasses.contains(n.getClassName()));
     return unrefClasses;
   }
 
@@ -99,9 +129,19 @@ public class ReferenceChecker
                .filter(n -> n.getSimpleName().startsWith("jar:"))
                .filter(n -> n.getPredecessors().isEmpty())
                .map(n -> (ContainerNode)n)
+               .filter(n -> !containsNeededClass(n))
                .collect(Collectors.toList());
   }
 
+  private boolean containsNeededClass(ContainerNode jar)
+  {
+    return (!observedClasses.isEmpty() || !registeredClasses.isEmpty())
+           && jar.walkCompleteSubTree()
+                 .filter(n -> n instanceof ClassNode)
+                 .map(n -> ((ClassNode)n).getClassName())
+                 .anyMatch(n -> observedClasses.contains(n) || registeredClasses.contains(n));
+  }
+
   /**
    * Returns all jar nodes from which too few classes are used together with the names of those classes.
    */
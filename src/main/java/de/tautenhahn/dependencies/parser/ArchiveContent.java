@@ -0,0 +1,187 @@
+package de.tautenhahn.dependencies.parser;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+
+/**
+ * Parse result of all classes of one archive, independent of any filter and of the symbol table of a
+ * specific scan. Class names and dependencies refer to a local name table. This is the unit which can be
+ * stored and loaded again in a compact binary format.
+ *
+ * @author TT
+ */
+final class ArchiveContent
+{
+
+  private static final int MAGIC = 0x474B4143; // "GKAC"
+
+  private static final int VERSION = 2;
+
+  private final String[] names;
+
+  private final int[] classes;
+
+  private final int[][] dependencies;
+
+  private final long[] hashes;
+
+  /**
+   * Creates immutable instance.
+   *
+   * @param names local name table
+   * @param classes index of each class name in name table
+   * @param dependencies for each class the indices of the names of classes it depends on
+   * @param hashes for each class the hash of its class file, see {@link ContentHash}
+   */
+  ArchiveContent(String[] names, int[] classes, int[][] dependencies, long[] hashes)
+  {
+    this.names = names;
+    this.classes = classes;
+    this.dependencies = dependencies;
+    this.hashes = hashes;
+  }
+
+  /**
+   * Creates instance from classes parsed with a symbol table used for this archive only.
+   *
+   * @param symbols local symbol table
+   * @param classes ID of each class name
+   * @param dependencies for each class the IDs of the classes it depends on
+   * @param hashes for each class the hash of its class file
+   * @return new instance
+   */
+  static ArchiveContent of(SymbolTable symbols, int[] classes, int[][] dependencies, long[] hashes)
+  {
+    String[] names = new String[symbols.size()];
+    for ( int i = 0 ; i < names.length ; i++ )
+    {
+      names[i] = symbols.get(i);
+    }
+    return new ArchiveContent(names, classes, dependencies, hashes);
+  }
+
+  /**
+   * @return number of contained classes
+   */
+  int getNumberClasses()
+  {
+    return classes.length;
+  }
+
+  /**
+   * @param index number of class
+   * @return name of that class
+   */
+  String getClassName(int index)
+  {
+    return names[classes[index]];
+  }
+
+  /**
+   * @param index number of class
+   * @return indices of names of classes the specified class depends on
+   */
+  int[] getDependencies(int index)
+  {
+    return dependencies[index];
+  }
+
+  /**
+   * @param index number of class
+   * @return hash of the class file, 0 if not known
+   */
+  long getHash(int index)
+  {
+    return hashes[index];
+  }
+
+  /**
+   * @param nameIndex index in local name table
+   * @return the name
+   */
+  String getName(int nameIndex)
+  {
+    return names[nameIndex];
+  }
+
+  /**
+   * @return size of local name table
+   */
+  int getNumberNames()
+  {
+    return names.length;
+  }
+
+  /**
+   * Writes content in binary format.
+   *
+   * @param out destination
+   * @throws IOException in case of streaming problems
+   */
+  void write(DataOutput out) throws IOException
+  {
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeInt(names.length);
+    for ( String name : names )
+    {
+      out.writeUTF(name);
+    }
+    out.writeInt(classes.length);
+    for ( int i = 0 ; i < classes.length ; i++ )
+    {
+      out.writeInt(classes[i]);
+      out.writeLong(hashes[i]);
+      out.writeInt(dependencies[i].length);
+      for ( int dep : dependencies[i] )
+      {
+        out.writeInt(dep);
+      }
+    }
+  }
+
+  /**
+   * Reads content written by {@link #write(DataOutput)}.
+   *
+   * @param in source
+   * @return new instance
+   * @throws IOException in case of streaming problems or unsupported format
+   */
+  static ArchiveContent read(DataInput in) throws IOException
+  {
+    if (in.readInt() != MAGIC || in.readInt() != VERSION)
+    {
+      throw new IOException("unsupported format");
+    }
+    String[] names = new String[in.readInt()];
+    for ( int i = 0 ; i < names.length ; i++ )
+    {
+      names[i] = in.readUTF();
+    }
+    int[] classes = new int[in.readInt()];
+    int[][] dependencies = new int[classes.length][];
+    long[] hashes = new long[classes.length];
+    for ( int i = 0 ; i < classes.length ; i++ )
+    {
+      classes[i] = checkIndex(in.readInt(), names.length);
+      hashes[i] = in.readLong();
+      dependencies[i] = new int[checkIndex(in.readInt(), names.length + 1)];
+      for ( int j = 0 ; j < dependencies[i].length ; j++ )
+      {
+        dependencies[i][j] = checkIndex(in.readInt(), names.length);
+      }
+    }
+    return new ArchiveContent(names, classes, dependencies, hashes);
+  }
+
+  private static int checkIndex(int index, int size) throws IOException
+  {
+    if (index < 0 || index >= size)
+    {
+      throw new IOException("corrupt content, name index " + index + " out of range");
+    }
+    return index;
+  }
+}
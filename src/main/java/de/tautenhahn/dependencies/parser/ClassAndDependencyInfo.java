@@ -1,38 +1,31 @@
 package de.tautenhahn.dependencies.parser;
 
-import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 
 
 /**
- * Finds out which classes are referenced from a given class. Instances are for one time use!
+ * Finds out which classes are referenced from a given class. Instances are for one time use! The constant
+ * pool is scanned on a buffer without copying it, class names are registered in a symbol table which creates
+ * a string only for names not seen before.
  *
  * @author TT
  */
 public final class ClassAndDependencyInfo
 {
 
-  private static final Logger LOG = LoggerFactory.getLogger(ClassAndDependencyInfo.class);
-
   private static final int MAGIC = 0xCAFEBABE;
 
-  private static final int MAX_SUPPORTED_VERSION = 59;
+  /** first major version of the class file format, Java 1.1 */
+  private static final int MIN_SUPPORTED_VERSION = 45;
 
   private static final byte CONSTANT_UTF8 = 1;
 
@@ -60,193 +53,799 @@ public final class ClassAndDependencyInfo
 
   private static final byte CONSTANT_METHODTYPE = 16;
 
+  private static final byte CONSTANT_DYNAMIC = 17;
+
   private static final byte CONSTANT_INVOKEDYNAMIC = 18;
 
-  private transient String[] strings;
+  private static final byte CONSTANT_MODULE = 19;
+
+  private static final byte CONSTANT_PACKAGE = 20;
+
+  /**
+   * Size of each kind of pool entry without tag, 0 for illegal tags. UTF8 entries have an additional length
+   * given by their first two bytes. Index is the unsigned tag.
+   */
+  private static final byte[] ENTRY_SIZE = new byte[256];
+
+  /** number of pool indices used by each kind of entry */
+  private static final byte[] ENTRY_SLOTS = new byte[256];
+
+  static
+  {
+    setEntrySize(CONSTANT_UTF8, 2); // plus the string
+    setEntrySize(CONSTANT_INTEGER, 4); // not interesting
+    setEntrySize(CONSTANT_FLOAT, 4); // dito
+    setEntrySize(CONSTANT_LONG, 8); // not interesting
+    setEntrySize(CONSTANT_DOUBLE, 8); // dito
+    setEntrySize(CONSTANT_CLASS, 2);
+    setEntrySize(CONSTANT_STRING, 2); // String constant, do not touch!
+    setEntrySize(CONSTANT_FIELDREF, 4); // contains index of ClassInfo and NameAndType which are parsed anyway
+    setEntrySize(CONSTANT_METHODREF, 4); // dito
+    setEntrySize(CONSTANT_INTERFACEMETHODREF, 4); // dito
+    setEntrySize(CONSTANT_NAMEANDTYPE, 4); // descriptor is found among the UTF8 entries anyway
+    setEntrySize(CONSTANT_METHODHANDLE, 3); // not interesting
+    setEntrySize(CONSTANT_METHODTYPE, 2); // descriptor is found among the UTF8 entries
+    setEntrySize(CONSTANT_DYNAMIC, 4); // dito, via NameAndType
+    setEntrySize(CONSTANT_INVOKEDYNAMIC, 4); // dito
+    setEntrySize(CONSTANT_MODULE, 2); // module names are no class names
+    setEntrySize(CONSTANT_PACKAGE, 2); // dito for package names
+    ENTRY_SLOTS[CONSTANT_LONG] = 2; // oracle agrees that this was a poor choice
+    ENTRY_SLOTS[CONSTANT_DOUBLE] = 2;
+  }
+
+  private static final byte[] SIGNATURE = ascii("Signature");
+
+  private static final byte[] EXCEPTIONS = ascii("Exceptions");
+
+  private static final byte[] VISIBLE_ANNOTATIONS = ascii("RuntimeVisibleAnnotations");
+
+  private static final byte[] INVISIBLE_ANNOTATIONS = ascii("RuntimeInvisibleAnnotations");
+
+  private static final byte[] VISIBLE_PARAMETER_ANNOTATIONS = ascii("RuntimeVisibleParameterAnnotations");
+
+  private static final byte[] INVISIBLE_PARAMETER_ANNOTATIONS = ascii("RuntimeInvisibleParameterAnnotations");
+
+  /** number of names after which a thread stops re-using its table for single parsed classes */
+  private static final int MAX_REUSED_SYMBOLS = 1 << 14;
 
-  private Map<Integer, Integer> classIndex;
+  private static final ThreadLocal<SymbolTable> REUSED_SYMBOLS = ThreadLocal.withInitial(SymbolTable::new);
 
-  private List<Integer> methodOrFieldDescriptorIndex;
+  private final ByteBuffer data;
 
-  private List<Integer> stringIndex;
+  private final int start;
 
-  private byte[] buf = new byte[1024];
+  private byte[] tags;
+
+  private int[] offsets;
+
+  private boolean[] stringConstant;
+
+  private byte[] nameBuf = new byte[128];
 
   private final String expectedClassName;
 
-  private static final Pattern FIND_CLASS_NAME = Pattern.compile("L(\\w+(/\\w+)*(\\$\\w+)?)(<[^>]+>)?;");
+  private final DescriptorScanner scanner = new DescriptorScanner();
+
+  private final SymbolTable symbols;
+
+  private int classId;
+
+  private int[] dependsOn = new int[32];
+
+  private int numberDependencies;
+
+  /** kinds of each dependency, null if not requested */
+  private byte[] kinds;
+
+  /** kind bit to set for the names found by the scanner */
+  private int currentKind;
+
+  /** table for member names and descriptors, null if members are not requested */
+  private final SymbolTable memberSymbols;
 
-  private String className;
+  private int[] memberReferences;
 
-  private final Set<String> dependsOn = new HashSet<>();
+  private int[] declaredMembers;
+
+  private int numberDeclared;
+
+  /** table for string constants looking like class names, null if not requested */
+  private final SymbolTable stringSymbols;
+
+  private int[] classNameStrings;
 
   /**
    * Parse class content and return new instance.
    *
-   * @param ins class content
+   * @param ins class content, will be closed after reading
    * @param name expected class name
    * @return parsed info
    * @throws IOException in case of streaming problems
    */
   public static ClassAndDependencyInfo parse(InputStream ins, String name) throws IOException
   {
-    LOG.debug("parsing {}", name);
-    return new ClassAndDependencyInfo(ins, name);
+    try (InputStream insRes = ins)
+    {
+      return parse(ByteBuffer.wrap(insRes.readAllBytes()), name, reusedSymbols());
+    }
+  }
+
+  /**
+   * Parse class content given as byte array.
+   *
+   * @param content complete class file
+   * @param name expected class name
+   * @return parsed info
+   */
+  public static ClassAndDependencyInfo parse(byte[] content, String name)
+  {
+    return parse(ByteBuffer.wrap(content), name, reusedSymbols());
+  }
+
+  /**
+   * Classes parsed one by one share a table per thread. The table is replaced instead of cleared when it
+   * becomes large because results parsed before still refer to it.
+   */
+  private static SymbolTable reusedSymbols()
+  {
+    SymbolTable result = REUSED_SYMBOLS.get();
+    if (result.size() >= MAX_REUSED_SYMBOLS)
+    {
+      result = new SymbolTable();
+      REUSED_SYMBOLS.set(result);
+    }
+    return result;
+  }
+
+  /**
+   * Parse class content given as buffer which may be a heap, direct or memory-mapped one. The class file is
+   * expected to start at the current position of the buffer, neither position nor limit are changed.
+   *
+   * @param content buffer holding the complete class file
+   * @param name expected class name
+   * @param symbols table to register the class names in, may be shared by several threads
+   * @return parsed info
+   */
+  public static ClassAndDependencyInfo parse(ByteBuffer content, String name, SymbolTable symbols)
+  {
+    return parse(content, name, symbols, new Options());
+  }
+
+  /**
+   * Parse class content given as buffer, optionally finding out more than the referenced classes. Each option
+   * costs extra parsing effort and memory, default options cost nothing.
+   *
+   * @param content buffer holding the complete class file
+   * @param name expected class name
+   * @param symbols table to register the class names in, may be shared by several threads
+   * @param options specifies what to find out besides the dependencies
+   * @return parsed info
+   */
+  public static ClassAndDependencyInfo parse(ByteBuffer content,
+                                             String name,
+                                             SymbolTable symbols,
+                                             Options options)
+  {
+    return new ClassAndDependencyInfo(content, name, symbols, options);
+  }
+
+  /**
+   * Specifies what to find out besides the referenced classes.
+   */
+  public static final class Options
+  {
+
+    boolean dependencyKinds;
+
+    SymbolTable memberSymbols;
+
+    SymbolTable stringSymbols;
+
+    /**
+     * Reads the declarations of the class as well to provide
+     * {@link ClassAndDependencyInfo#getDependencyKinds()}. That costs a pass over fields, methods and
+     * attributes.
+     *
+     * @return this
+     */
+    public Options withDependencyKinds()
+    {
+      dependencyKinds = true;
+      return this;
+    }
+
+    /**
+     * Records referenced and declared fields and methods. Member names and descriptors go into their own
+     * symbol table to keep the table of class names small.
+     *
+     * @param table to register member names and descriptors in, may be shared by several threads
+     * @return this
+     */
+    public Options withMembers(SymbolTable table)
+    {
+      memberSymbols = table;
+      return this;
+    }
+
+    /**
+     * Records string constants which have the form of a class name, for instance the argument of
+     * <code>Class.forName("com.x.Impl")</code>. The check costs one pass over each string constant.
+     *
+     * @param table to register the candidates in, may be shared by several threads
+     * @return this
+     */
+    public Options withClassNameStrings(SymbolTable table)
+    {
+      stringSymbols = table;
+      return this;
+    }
   }
 
-  private ClassAndDependencyInfo(InputStream ins, String name) throws IOException
+  private ClassAndDependencyInfo(ByteBuffer content, String name, SymbolTable symbols, Options options)
   {
     this.expectedClassName = name;
-    try (DataInputStream data = new DataInputStream(ins))
+    this.symbols = symbols;
+    this.memberSymbols = options.memberSymbols;
+    this.stringSymbols = options.stringSymbols;
+    boolean withKinds = options.dependencyKinds;
+    this.data = content.duplicate().order(ByteOrder.BIG_ENDIAN);
+    this.start = data.position();
+    int poolEnd;
+    try
     {
-      if (data.readInt() != MAGIC)
+      if (data.getInt(start) != MAGIC)
       {
         throw new IllegalArgumentException("not a class file (bad magic)");
       }
-      skip(data, 2); // minor version
-      int version = data.readShort();
-      if (version > MAX_SUPPORTED_VERSION)
+      int version = readU2(start + 6);
+      if (version < MIN_SUPPORTED_VERSION)
       {
         throw new IllegalArgumentException("classes major version " + version + " unsupported");
       }
-      int poolSize = data.readShort();
-      strings = new String[poolSize + 1];
-      classIndex = new HashMap<>();
-      methodOrFieldDescriptorIndex = new ArrayList<>();
-      stringIndex = new ArrayList<>();
-      int readItems = 0;
-
-      for ( int i = 1 ; i < poolSize ; i += readItems )
+      poolEnd = readPool(start + 8);
+      int thisClass = readU2(poolEnd + 2); // after access flags
+      classId = internClassName(thisClass);
+    }
+    catch (IndexOutOfBoundsException e)
+    {
+      throw new IllegalArgumentException("not a class, content of " + expectedClassName
+                                         + " ends unexpectedly",
+                                         e);
+    }
+    if (classId < 0 || !symbols.get(classId).equals(expectedClassName))
+    {
+      throw new IllegalArgumentException("Class " + (classId < 0 ? "array" : symbols.get(classId))
+                                         + " found but expected " + expectedClassName);
+    }
+    registerReferencedStrings();
+    if (withKinds || memberSymbols != null)
+    {
+      try
       {
-        readItems = readPoolEntry(i, data);
+        if (memberSymbols != null)
+        {
+          registerMemberReferences();
+        }
+        readDeclarations(poolEnd, withKinds);
       }
-      skip(data, 2); // access flags;
-      className = strings[classIndex.get(Integer.valueOf(data.readShort())).intValue()].replace('/', '.');
-      if (!className.equals(expectedClassName))
+      catch (IndexOutOfBoundsException e)
       {
-        throw new IllegalArgumentException("Class " + className + " found but expected " + expectedClassName);
+        throw new IllegalArgumentException("not a class, content of " + expectedClassName
+                                           + " ends unexpectedly",
+                                           e);
       }
     }
-    registerReferencedStrings();
+  }
+
+  private static byte[] ascii(String value)
+  {
+    return value.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private static void setEntrySize(byte tag, int size)
+  {
+    ENTRY_SIZE[tag] = (byte)size;
+    ENTRY_SLOTS[tag] = 1;
+  }
+
+  /**
+   * Reads the tags and remembers where the content of each entry starts. No string is decoded here. Entry
+   * sizes are looked up in a table, the class file version does not matter for the pool.
+   *
+   * @param poolStart position of the pool size
+   * @return position after the constant pool
+   */
+  private int readPool(int poolStart)
+  {
+    int poolSize = readU2(poolStart);
+    tags = new byte[poolSize];
+    offsets = new int[poolSize];
+    stringConstant = new boolean[poolSize];
+    int pos = poolStart + 2;
+    for ( int i = 1 ; i < poolSize ; i += ENTRY_SLOTS[tags[i] & 0xFF] )
+    {
+      byte tag = data.get(pos);
+      int size = ENTRY_SIZE[tag & 0xFF];
+      if (size == 0)
+      {
+        throw new IllegalArgumentException(expectedClassName
+                                           + " is not a class, constant pool contains illegal tag " + tag);
+      }
+      tags[i] = tag;
+      offsets[i] = pos + 1;
+      pos += 1 + (tag == CONSTANT_UTF8 ? size + readU2(pos + 1) : size);
+    }
+    return pos;
   }
 
 
   /**
-   * Treats all the found strings which are not string constant and match the regex as field or method
-   * descriptors. Note that the usage of NameAndType is not consistent, later parts of the class file
-   * reference name and descriptor strings separately. We do not want to read the whole class file for
-   * performance reasons.
+   * Treats all the found strings which are not string constant as field or method descriptors or
+   * signatures. Note that the usage of NameAndType is not consistent, later parts of the class file reference
+   * name and descriptor strings separately. We do not want to read the whole class file for performance
+   * reasons. String constants are only checked for the form of a class name if requested.
    */
   private void registerReferencedStrings()
   {
-    classIndex.values()
-              .stream()
-              .map(i -> strings[i.intValue()])
-              .filter(s -> s.charAt(0) != '[')
-              .map(n -> n.replace('/', '.'))
-              .forEach(dependsOn::add);
-    for ( int i = 1 ; i < strings.length ; i++ )
+    int[] candidates = stringSymbols == null ? null : new int[4];
+    int numberCandidates = 0;
+    for ( int i = 1 ; i < tags.length ; i++ )
     {
-      Integer index = Integer.valueOf(i);
-      if (strings[i] != null && !stringIndex.contains(index))
+      if (tags[i] == CONSTANT_STRING)
       {
-        addClassNames(strings[i], dependsOn);
+        int value = readU2(offsets[i]);
+        stringConstant[value] = true;
+        if (candidates != null && isClassNameString(value))
+        {
+          if (numberCandidates == candidates.length)
+          {
+            candidates = Arrays.copyOf(candidates, 2 * numberCandidates);
+          }
+          candidates[numberCandidates++] = internSymbol(value, stringSymbols);
+        }
       }
     }
-    dependsOn.remove(className);
+    if (candidates != null)
+    {
+      classNameStrings = Arrays.copyOf(candidates, numberCandidates);
+    }
+    for ( int i = 1 ; i < tags.length ; i++ )
+    {
+      if (tags[i] == CONSTANT_CLASS)
+      {
+        int id = internClassName(i);
+        if (id >= 0)
+        {
+          addDependency(id);
+        }
+      }
+    }
+    for ( int i = 1 ; i < tags.length ; i++ )
+    {
+      if (tags[i] == CONSTANT_UTF8 && !stringConstant[i])
+      {
+        scanner.scan(data, offsets[i] + 2, offsets[i] + 2 + readU2(offsets[i]), this::addName);
+      }
+    }
+    removeDuplicates();
   }
 
 
   /**
-   * Switch block for the different kinds of tags. Size was defined by Sun, this method just follows.
-   * 
-   * @param index entry id in the pool
-   * @param data to read pool entries from
-   * @return number of read entries
-   * @throws IOException in case of streaming problems
+   * Registers the name referenced by a CONSTANT_Class entry without creating a string for known names.
+   *
+   * @return ID of the name or -1 for array classes
    */
-  private int readPoolEntry(int index, DataInputStream data) throws IOException // NOPMD
+  private int internClassName(int index)
   {
-    byte tag = data.readByte();
+    if (tags[index] != CONSTANT_CLASS || tags[readU2(offsets[index])] != CONSTANT_UTF8)
+    {
+      throw new IllegalArgumentException("not a class, pool entry " + index + " of " + expectedClassName
+                                         + " is no class name");
+    }
+    int pos = offsets[readU2(offsets[index])];
+    int length = readU2(pos);
+    if (length == 0 || data.get(pos + 2) == '[')
+    {
+      return -1;
+    }
+    if (nameBuf.length < length)
+    {
+      nameBuf = new byte[length];
+    }
+    boolean ascii = true;
+    for ( int i = 0 ; i < length ; i++ )
+    {
+      byte b = data.get(pos + 2 + i);
+      ascii &= b >= 0;
+      nameBuf[i] = b == '/' ? (byte)'.' : b;
+    }
+    return symbols.intern(nameBuf, length, ascii);
+  }
+
+  /**
+   * Checks in one pass whether a string constant has the form of a binary class name with package, namely
+   * identifiers separated by dots. Non-ASCII characters are accepted as identifier parts.
+   */
+  private boolean isClassNameString(int index)
+  {
+    int pos = offsets[index] + 2;
+    int end = pos + readU2(offsets[index]);
+    boolean segmentStart = true;
+    boolean dotFound = false;
+    for ( ; pos < end ; pos++ )
+    {
+      byte b = data.get(pos);
+      if (b == '.')
+      {
+        if (segmentStart)
+        {
+          return false;
+        }
+        dotFound = true;
+        segmentStart = true;
+      }
+      else if (b >= 'a' && b <= 'z' || b >= 'A' && b <= 'Z' || b == '_' || b == '$' || b < 0
+               || !segmentStart && b >= '0' && b <= '9')
+      {
+        segmentStart = false;
+      }
+      else
+      {
+        return false;
+      }
+    }
+    return dotFound && !segmentStart;
+  }
+
+  /**
+   * Lists owner, name and descriptor of each field or method reference in the pool. Array owners like in
+   * <code>int[].clone()</code> are skipped.
+   */
+  private void registerMemberReferences()
+  {
+    int[] result = new int[12];
+    int length = 0;
+    for ( int i = 1 ; i < tags.length ; i++ )
+    {
+      if (tags[i] == CONSTANT_FIELDREF || tags[i] == CONSTANT_METHODREF
+          || tags[i] == CONSTANT_INTERFACEMETHODREF)
+      {
+        int owner = internClassName(readU2(offsets[i]));
+        int nameAndType = readU2(offsets[i] + 2);
+        if (owner >= 0)
+        {
+          if (result.length == length)
+          {
+            result = Arrays.copyOf(result, 2 * length);
+          }
+          result[length++] = owner;
+          result[length++] = internSymbol(readU2(offsets[nameAndType]), memberSymbols);
+          result[length++] = internSymbol(readU2(offsets[nameAndType] + 2), memberSymbols);
+        }
+      }
+    }
+    memberReferences = Arrays.copyOf(result, length);
+  }
+
+  private int internSymbol(int index, SymbolTable table)
+  {
+    if (tags[index] != CONSTANT_UTF8)
+    {
+      throw new IllegalArgumentException("not a class, pool entry " + index + " of " + expectedClassName
+                                         + " is no name");
+    }
+    int pos = offsets[index];
+    int length = readU2(pos);
+    if (nameBuf.length < length)
+    {
+      nameBuf = new byte[length];
+    }
+    boolean ascii = true;
+    for ( int i = 0 ; i < length ; i++ )
+    {
+      nameBuf[i] = data.get(pos + 2 + i);
+      ascii &= nameBuf[i] >= 0;
+    }
+    return table.intern(nameBuf, length, ascii);
+  }
+
+  /**
+   * Reads super class, interfaces, fields, methods and the attributes containing class names to decide where
+   * each dependency comes from. Dependencies not found there are referenced by code or constants only. Lists
+   * the declared members if requested.
+   *
+   * @param poolEnd position after the constant pool
+   * @param withKinds true to find out the kinds of dependencies
+   */
+  private void readDeclarations(int poolEnd, boolean withKinds)
+  {
+    if (memberSymbols != null)
+    {
+      declaredMembers = new int[12];
+    }
+    if (!withKinds)
+    {
+      readMembers(readMembers(poolEnd + 8 + 2 * readU2(poolEnd + 6), DependencyKind.FIELD),
+                  DependencyKind.SIGNATURE);
+      declaredMembers = Arrays.copyOf(declaredMembers, numberDeclared);
+      return;
+    }
+    kinds = new byte[numberDependencies];
+    int pos = poolEnd + 4; // access flags, this class
+    int superClass = readU2(pos);
+    if (superClass != 0)
+    {
+      markClass(superClass, DependencyKind.INHERITANCE);
+    }
+    int numberInterfaces = readU2(pos + 2);
+    pos += 4;
+    for ( int i = 0 ; i < numberInterfaces ; i++ )
+    {
+      markClass(readU2(pos), DependencyKind.INHERITANCE);
+      pos += 2;
+    }
+    pos = readMembers(pos, DependencyKind.FIELD);
+    pos = readMembers(pos, DependencyKind.SIGNATURE);
+    readAttributes(pos, DependencyKind.INHERITANCE); // generic super types
+    for ( int i = 0 ; i < kinds.length ; i++ )
+    {
+      if (kinds[i] == 0)
+      {
+        kinds[i] = (byte)DependencyKind.CODE.getBit();
+      }
+    }
+    if (declaredMembers != null)
+    {
+      declaredMembers = Arrays.copyOf(declaredMembers, numberDeclared);
+    }
+  }
+
+  /**
+   * @return position after the fields or methods
+   */
+  private int readMembers(int start, DependencyKind kind)
+  {
+    int number = readU2(start);
+    int pos = start + 2;
+    for ( int i = 0 ; i < number ; i++ )
+    {
+      if (declaredMembers != null)
+      {
+        addDeclaredMember(readU2(pos), readU2(pos + 2), readU2(pos + 4));
+      }
+      if (kinds == null)
+      {
+        pos = skipAttributes(pos + 6);
+      }
+      else
+      {
+        markDescriptor(readU2(pos + 4), kind); // after access flags and name
+        pos = readAttributes(pos + 6, kind);
+      }
+    }
+    return pos;
+  }
+
+  private void addDeclaredMember(int accessFlags, int name, int descriptor)
+  {
+    if (declaredMembers.length == numberDeclared)
+    {
+      declaredMembers = Arrays.copyOf(declaredMembers, 2 * numberDeclared);
+    }
+    declaredMembers[numberDeclared++] = accessFlags;
+    declaredMembers[numberDeclared++] = internSymbol(name, memberSymbols);
+    declaredMembers[numberDeclared++] = internSymbol(descriptor, memberSymbols);
+  }
+
+  private int skipAttributes(int start)
+  {
+    int number = readU2(start);
+    int pos = start + 2;
+    for ( int i = 0 ; i < number ; i++ )
+    {
+      pos += 6 + data.getInt(pos + 2);
+    }
+    return pos;
+  }
+
+  /**
+   * Handles the attributes which may contain class names, skips all others.
+   *
+   * @param kind of the names in a generic signature
+   * @return position after the attributes
+   */
+  private int readAttributes(int start, DependencyKind kind)
+  {
+    int number = readU2(start);
+    int pos = start + 2;
+    for ( int i = 0 ; i < number ; i++ )
+    {
+      int attributeName = readU2(pos);
+      int content = pos + 6;
+      if (isUtf8(attributeName, SIGNATURE))
+      {
+        markDescriptor(readU2(content), kind);
+      }
+      else if (isUtf8(attributeName, EXCEPTIONS))
+      {
+        for ( int j = 0 ; j < readU2(content) ; j++ )
+        {
+          markClass(readU2(content + 2 + 2 * j), DependencyKind.SIGNATURE);
+        }
+      }
+      else if (isUtf8(attributeName, VISIBLE_ANNOTATIONS) || isUtf8(attributeName, INVISIBLE_ANNOTATIONS))
+      {
+        readAnnotations(content);
+      }
+      else if (isUtf8(attributeName, VISIBLE_PARAMETER_ANNOTATIONS)
+               || isUtf8(attributeName, INVISIBLE_PARAMETER_ANNOTATIONS))
+      {
+        int annotationsStart = content + 1;
+        for ( int j = 0 ; j < (data.get(content) & 0xFF) ; j++ )
+        {
+          annotationsStart = readAnnotations(annotationsStart);
+        }
+      }
+      pos = content + data.getInt(pos + 2);
+    }
+    return pos;
+  }
+
+  /**
+   * @return position after the annotations
+   */
+  private int readAnnotations(int start)
+  {
+    int number = readU2(start);
+    int pos = start + 2;
+    for ( int i = 0 ; i < number ; i++ )
+    {
+      pos = readAnnotation(pos);
+    }
+    return pos;
+  }
+
+  private int readAnnotation(int start)
+  {
+    markDescriptor(readU2(start), DependencyKind.ANNOTATION);
+    int number = readU2(start + 2);
+    int pos = start + 4;
+    for ( int i = 0 ; i < number ; i++ )
+    {
+      pos = readElementValue(pos + 2); // after element name
+    }
+    return pos;
+  }
+
+  /**
+   * @return position after the element value
+   */
+  private int readElementValue(int start)
+  {
+    byte tag = data.get(start);
     switch (tag)
     {
-      case CONSTANT_UTF8:
-        readStringValue(index, data);
-        break;
-      case CONSTANT_INTEGER: // not interesting
-      case CONSTANT_FLOAT: // dito
-      case CONSTANT_FIELDREF: // contains index of ClassInfo and NameAndType which are parsed anyway
-      case CONSTANT_METHODREF: // dito
-      case CONSTANT_INTERFACEMETHODREF: // dito
-      case CONSTANT_INVOKEDYNAMIC:
-        skip(data, 4);
-        break;
-      case CONSTANT_NAMEANDTYPE:
-        skip(data, 2); // name
-        methodOrFieldDescriptorIndex.add(Integer.valueOf(data.readShort()));
-        break;
-      case CONSTANT_LONG: // not interesting
-      case CONSTANT_DOUBLE: // not interesting
-        skip(data, 8);
-        return 2; // oracle agrees that this was a poor choice
-      case CONSTANT_STRING: // String constant, do not touch!
-        stringIndex.add(Integer.valueOf(data.readShort()));
-        break;
-      case CONSTANT_METHODTYPE:
-        methodOrFieldDescriptorIndex.add(Integer.valueOf(data.readShort()));
-        break;
-      case CONSTANT_CLASS:
-        classIndex.put(Integer.valueOf(index), Integer.valueOf(data.readShort()));
-        break;
-      case CONSTANT_METHODHANDLE: // not interesting
-        skip(data, 3);
-        break;
+      case 'e':
+        markDescriptor(readU2(start + 1), DependencyKind.ANNOTATION);
+        return start + 5;
+      case 'c':
+        markDescriptor(readU2(start + 1), DependencyKind.ANNOTATION);
+        return start + 3;
+      case '@':
+        return readAnnotation(start + 1);
+      case '[':
+        int number = readU2(start + 1);
+        int pos = start + 3;
+        for ( int i = 0 ; i < number ; i++ )
+        {
+          pos = readElementValue(pos);
+        }
+        return pos;
       default:
-        throw new IllegalArgumentException(expectedClassName
-                                           + " is not a class, constant pool contains illegal tag " + tag);
+        return start + 3; // constant
     }
-    return 1;
   }
 
-  private void skip(InputStream ins, int num) throws IOException
+  private boolean isUtf8(int index, byte[] expected)
   {
-    int skipped = 0;
-    while (skipped < num)
+    if (tags[index] != CONSTANT_UTF8 || readU2(offsets[index]) != expected.length)
     {
-      skipped += (int)ins.skip(num - skipped);
+      return false;
     }
+    for ( int i = 0 ; i < expected.length ; i++ )
+    {
+      if (data.get(offsets[index] + 2 + i) != expected[i])
+      {
+        return false;
+      }
+    }
+    return true;
   }
 
+  private void markClass(int index, DependencyKind kind)
+  {
+    int id = internClassName(index);
+    if (id >= 0)
+    {
+      markName(id, kind.getBit());
+    }
+  }
 
+  private void markDescriptor(int index, DependencyKind kind)
+  {
+    if (tags[index] != CONSTANT_UTF8)
+    {
+      throw new IllegalArgumentException("not a class, pool entry " + index + " of " + expectedClassName
+                                         + " is no descriptor");
+    }
+    currentKind = kind.getBit();
+    scanner.scan(data,
+                 offsets[index] + 2,
+                 offsets[index] + 2 + readU2(offsets[index]),
+                 (n, l, a) -> markName(symbols.intern(n, l, a), currentKind));
+  }
 
-  static void addClassNames(String methodDecriptor, Collection<String> classNames)
+  /**
+   * Adds a kind to a dependency found before, names not listed as dependency (own class) are ignored.
+   */
+  private void markName(int id, int bit)
   {
-    Matcher m = FIND_CLASS_NAME.matcher(methodDecriptor);
-    while (m.find())
+    int index = Arrays.binarySearch(dependsOn, 0, numberDependencies, id);
+    if (index >= 0)
     {
-      classNames.add(m.group(1).replace('/', '.'));
+      kinds[index] |= bit;
     }
   }
 
+  private int readU2(int pos)
+  {
+    return data.getShort(pos) & 0xFFFF;
+  }
+
+  private void addName(byte[] name, int length, boolean ascii)
+  {
+    addDependency(symbols.intern(name, length, ascii));
+  }
 
-  private void readStringValue(int index, DataInputStream data) throws IOException
+  private void addDependency(int id)
   {
-    int length = 0x0000FFFF & data.readShort();
-    if (buf.length < length)
+    if (numberDependencies == dependsOn.length)
     {
-      buf = new byte[length];
+      dependsOn = Arrays.copyOf(dependsOn, 2 * numberDependencies);
     }
-    int readBytes = 0;
-    while (readBytes < length)
+    dependsOn[numberDependencies++] = id;
+  }
+
+  private void removeDuplicates()
+  {
+    Arrays.sort(dependsOn, 0, numberDependencies);
+    int last = -1;
+    int length = 0;
+    for ( int i = 0 ; i < numberDependencies ; i++ )
     {
-      int readThisTime = data.read(buf, readBytes, length - readBytes);
-      if (readThisTime == -1)
+      if (dependsOn[i] != last && dependsOn[i] != classId)
       {
-        throw new IllegalArgumentException("not a class, stream ends inexpectedly");
+        dependsOn[length++] = dependsOn[i];
       }
-      readBytes += readThisTime;
+      last = dependsOn[i];
     }
-    strings[index] = new String(buf, 0, length, StandardCharsets.UTF_8);
+    dependsOn = Arrays.copyOf(dependsOn, length);
+    numberDependencies = length;
+  }
+
+  private static String decodeName(byte[] name, int length, boolean ascii)
+  {
+    return new String(name, 0, length, ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+  }
+
+  static void addClassNames(String methodDecriptor, Collection<String> classNames)
+  {
+    byte[] content = methodDecriptor.getBytes(StandardCharsets.UTF_8);
+    new DescriptorScanner().scan(ByteBuffer.wrap(content),
+                                 0,
+                                 content.length,
+                                 (n, l, a) -> classNames.add(decodeName(n, l, a)));
   }
 
   /**
@@ -254,7 +853,15 @@ public final class ClassAndDependencyInfo
    */
   public String getClassName()
   {
-    return className;
+    return symbols.get(classId);
+  }
+
+  /**
+   * @return ID of the parsed class within the symbol table.
+   */
+  public int getClassId()
+  {
+    return classId;
   }
 
   /**
@@ -262,6 +869,56 @@ public final class ClassAndDependencyInfo
    */
   public Collection<String> getDependencies()
   {
-    return Collections.unmodifiableCollection(dependsOn);
+    List<String> result = new ArrayList<>(dependsOn.length);
+    for ( int id : dependsOn )
+    {
+      result.add(symbols.get(id));
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  /**
+   * @return for each element of {@link #getDependencyIds()} a mask of {@link DependencyKind} bits, null if
+   *         kinds were not requested when parsing
+   */
+  public byte[] getDependencyKinds()
+  {
+    return kinds;
+  }
+
+  /**
+   * @return triples of owner class ID, name ID and descriptor ID for each referenced field or method, null if
+   *         members were not requested when parsing. Owner is the class named by the reference, which may
+   *         inherit the member. Names and descriptors are registered in the member symbol table.
+   */
+  public int[] getMemberReferences()
+  {
+    return memberReferences;
+  }
+
+  /**
+   * @return triples of access flags, name ID and descriptor ID for each field and method of the class, null
+   *         if members were not requested when parsing
+   */
+  public int[] getDeclaredMembers()
+  {
+    return declaredMembers;
+  }
+
+  /**
+   * @return IDs of string constants which have the form of a class name within the string symbol table, null
+   *         if not requested when parsing. Whether such a class exists is not checked here.
+   */
+  public int[] getClassNameStrings()
+  {
+    return classNameStrings;
+  }
+
+  /**
+   * @return IDs of classes this class depends on, sorted and without duplicates.
+   */
+  public int[] getDependencyIds()
+  {
+    return dependsOn;
   }
 }
@@ -0,0 +1,214 @@
+package de.tautenhahn.dependencies.parser;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Watches the class directories scanned by a {@link ProjectScanner} and lets the scanner update its graph
+ * when class files are created, changed or deleted. Events are collected until the directories have been
+ * quiet for a moment, so a recompile results in one update only. Files which cannot be parsed yet are
+ * parsed again together with the next changes. <br>
+ * The graph is patched while holding the monitor of a lock object given by the caller, so readers of the
+ * graph which synchronize on the same object never see a partial update.
+ *
+ * @author TT
+ */
+public class ClassDirectoryWatcher implements Closeable
+{
+
+  private static final Logger LOG = LoggerFactory.getLogger(ClassDirectoryWatcher.class);
+
+  private static final long QUIET_MILLIS = 300;
+
+  private final ProjectScanner scanner;
+
+  private final Runnable listener;
+
+  private final Object lock;
+
+  private final WatchService watchService;
+
+  /** watched directory and class path entry it belongs to */
+  private final Map<WatchKey, Pair<Path, Path>> watched = new HashMap<>();
+
+  private Thread thread;
+
+  /**
+   * Creates instance and registers all directories. Call {@link #start()} to begin watching.
+   *
+   * @param scanner must have scanned the project already
+   * @param lock object to synchronize on while the graph is updated and the listener is called
+   * @param listener called after each update of the graph, from the watching thread
+   * @throws IOException if directories cannot be watched
+   */
+  public ClassDirectoryWatcher(ProjectScanner scanner, Object lock, Runnable listener) throws IOException
+  {
+    this.scanner = scanner;
+    this.lock = lock;
+    this.listener = listener;
+    watchService = FileSystems.getDefault().newWatchService();
+    for ( Path entry : scanner.getScannedDirectories() )
+    {
+      registerTree(entry, entry);
+    }
+  }
+
+  /**
+   * Starts watching in a daemon thread.
+   */
+  public void start()
+  {
+    thread = new Thread(this::run, "class directory watcher");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    watchService.close();
+    if (thread != null)
+    {
+      thread.interrupt();
+    }
+  }
+
+  private void run()
+  {
+    Map<Path, Collection<Path>> failed = new LinkedHashMap<>();
+    try
+    {
+      while (true)
+      {
+        Map<Path, Collection<Path>> changed = failed;
+        WatchKey key = watchService.take();
+        while (key != null)
+        {
+          collect(key, changed);
+          key = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        LOG.debug("updating classes in {}", changed.keySet());
+        failed = update(changed);
+      }
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+    catch (ClosedWatchServiceException e)
+    {
+      LOG.debug("watch service closed");
+    }
+  }
+
+  /**
+   * Updates each directory separately. A directory whose files cannot be parsed, for instance because the
+   * compiler is still writing them, keeps its old state in the graph and is tried again with the events of
+   * the next quiet period.
+   *
+   * @return files of the directories which could not be updated
+   */
+  private Map<Path, Collection<Path>> update(Map<Path, Collection<Path>> changed)
+  {
+    Map<Path, Collection<Path>> failed = new LinkedHashMap<>();
+    synchronized (lock)
+    {
+      changed.forEach((entry, files) -> {
+        try
+        {
+          scanner.update(entry, files);
+        }
+        catch (RuntimeException e)
+        {
+          LOG.warn("cannot update classes in {}, trying again after next change", entry, e);
+          failed.put(entry, files);
+        }
+      });
+      listener.run();
+    }
+    return failed;
+  }
+
+  private void collect(WatchKey key, Map<Path, Collection<Path>> changed)
+  {
+    Pair<Path, Path> dirs = watched.get(key);
+    for ( WatchEvent<?> event : key.pollEvents() )
+    {
+      Collection<Path> files = changed.computeIfAbsent(dirs.getSecond(), k -> new LinkedHashSet<>());
+      if (event.kind() == OVERFLOW)
+      {
+        LOG.warn("lost events in {}, deleted classes may still be shown", dirs.getFirst());
+        files.addAll(listFiles(dirs.getFirst()));
+        continue;
+      }
+      Path child = dirs.getFirst().resolve((Path)event.context());
+      if (event.kind() == ENTRY_CREATE && Files.isDirectory(child))
+      {
+        registerTree(child, dirs.getSecond());
+        files.addAll(listFiles(child));
+      }
+      else
+      {
+        files.add(child);
+      }
+    }
+    if (!key.reset())
+    {
+      watched.remove(key);
+    }
+  }
+
+  private void registerTree(Path dir, Path entry)
+  {
+    try (Stream<Path> treeRes = Files.walk(dir))
+    {
+      for ( Path subDir : treeRes.filter(Files::isDirectory).collect(Collectors.toList()) )
+      {
+        watched.put(subDir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE),
+                    new Pair<>(subDir, entry));
+      }
+    }
+    catch (IOException e)
+    {
+      LOG.error("cannot watch {}", dir, e);
+    }
+  }
+
+  private static Collection<Path> listFiles(Path dir)
+  {
+    try (Stream<Path> treeRes = Files.walk(dir))
+    {
+      return treeRes.filter(Files::isRegularFile).collect(Collectors.toList());
+    }
+    catch (IOException e)
+    {
+      LOG.error("cannot list {}", dir, e);
+      return Collections.emptyList();
+    }
+  }
+}
@@ -0,0 +1,216 @@
+package de.tautenhahn.dependencies.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Reads files and hands their content to parsers so that read latency overlaps with parsing. Files are read
+ * by virtual threads if the JVM supports them, otherwise by a fixed number of I/O threads. The content is
+ * put into pooled buffers and consumed by as many parser threads as there are processors. The number of
+ * files read but not parsed yet is bounded, so submitting blocks if the parsers cannot keep up. <br>
+ * One instance serves a whole scan, so the threads are started once no matter how many directories are
+ * scanned. Each directory submits its files to its own {@link Batch} and closes it to wait for them, several
+ * batches may be filled concurrently. Close the pipeline after the scan to stop the threads.
+ *
+ * @author TT
+ */
+final class ClassFilePipeline implements Closeable
+{
+
+  private static final Logger LOG = LoggerFactory.getLogger(ClassFilePipeline.class);
+
+  private static final int MAX_PENDING = 256;
+
+  private static final int READER_THREADS = 32;
+
+  private static final int MIN_BUFFER_SIZE = 16 * 1024;
+
+  private final Semaphore pending = new Semaphore(MAX_PENDING);
+
+  private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+  private final ExecutorService readers = createReaderExecutor();
+
+  private final ExecutorService parsers = Executors.newFixedThreadPool(Runtime.getRuntime()
+                                                                             .availableProcessors());
+
+  /**
+   * Files submitted together, for instance the class files of one directory.
+   */
+  final class Batch implements Closeable
+  {
+
+    /** one party for the owner of the batch plus one for each file not parsed yet */
+    private final Phaser unfinished = new Phaser(1);
+
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+    /**
+     * Reads a file asynchronously and calls the parser with its content in some parser thread. The buffer
+     * is valid during that call only.
+     *
+     * @param file file to read
+     * @param parser gets the content as buffer
+     * @throws InterruptedIOException if interrupted while waiting for the parsers
+     */
+    void submit(Path file, Consumer<ByteBuffer> parser) throws InterruptedIOException
+    {
+      acquirePending();
+      unfinished.register();
+      readers.execute(() -> {
+        ByteBuffer content = read(file);
+        if (content == null)
+        {
+          finish();
+          return;
+        }
+        parsers.execute(() -> {
+          try
+          {
+            parser.accept(content);
+          }
+          catch (RuntimeException e)
+          {
+            failure.compareAndSet(null, e);
+          }
+          finally
+          {
+            buffers.add(content);
+            finish();
+          }
+        });
+      });
+    }
+
+    private void finish()
+    {
+      pending.release();
+      unfinished.arriveAndDeregister();
+    }
+
+    /**
+     * Waits until all files of this batch are parsed.
+     *
+     * @throws InterruptedIOException if interrupted
+     * @throws RuntimeException first exception thrown by a parser of this batch
+     */
+    @Override
+    public void close() throws InterruptedIOException
+    {
+      try
+      {
+        unfinished.awaitAdvanceInterruptibly(unfinished.arrive());
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("interrupted while waiting for parsers");
+      }
+      if (failure.get() != null)
+      {
+        throw failure.get();
+      }
+    }
+  }
+
+  /**
+   * @return new batch to submit files to
+   */
+  Batch startBatch()
+  {
+    return new Batch();
+  }
+
+  /**
+   * Stops the threads, to be called after all batches are closed.
+   */
+  @Override
+  public void close()
+  {
+    readers.shutdownNow();
+    parsers.shutdownNow();
+  }
+
+  private void acquirePending() throws InterruptedIOException
+  {
+    try
+    {
+      pending.acquire();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while waiting for parsers");
+    }
+  }
+
+  /**
+   * @return content or null if file cannot be read
+   */
+  private ByteBuffer read(Path file)
+  {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+    {
+      int size = (int)channel.size();
+      ByteBuffer result = getBuffer(size);
+      while (result.hasRemaining() && channel.read(result) >= 0)
+      {
+        // read until buffer full or end of file
+      }
+      result.flip();
+      return result;
+    }
+    catch (IOException e)
+    {
+      LOG.error("cannot read {}", file, e);
+      return null;
+    }
+  }
+
+  private ByteBuffer getBuffer(int size)
+  {
+    ByteBuffer result = buffers.poll();
+    if (result == null || result.capacity() < size)
+    {
+      result = ByteBuffer.allocate(Math.max(MIN_BUFFER_SIZE, Integer.highestOneBit(size) << 1));
+    }
+    result.clear().limit(size);
+    return result;
+  }
+
+  /**
+   * Work-around for java versions without virtual threads.
+   */
+  private static ExecutorService createReaderExecutor()
+  {
+    try
+    {
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService)factory.invoke(null);
+    }
+    catch (NoSuchMethodException | IllegalAccessException | IllegalArgumentException
+      | InvocationTargetException e)
+    {
+      return Executors.newFixedThreadPool(READER_THREADS);
+    }
+  }
+}
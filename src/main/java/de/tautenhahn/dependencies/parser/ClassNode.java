@@ -9,18 +9,18 @@ import java.util.stream.Stream;
 
 
 /**
- * Represents leafs in the containment structure which are intended to denote classes.
+ * Represents leafs in the containment structure which are intended to denote classes. Dependencies are held
+ * by the {@link NodeStore} of the tree, this object just holds the ID.
  *
  * @author TT
  */
 public class ClassNode extends Node
 {
 
-  private final List<ClassNode> predLeafs = new ArrayList<>();
+  private final NodeStore store;
 
-  private final List<ClassNode> sucLeafs = new ArrayList<>();
-
-  private final Collection<String> missingDependencies = new ArrayList<>();
+  /** creation order within the tree, defines the order of neighbours */
+  private final int id;
 
   private final String className;
 
@@ -33,30 +33,209 @@ public class ClassNode extends Node
   ClassNode(Node parent, String name)
   {
     super(parent, name);
-    className = getName().replaceAll("[^.]+:[^.]+\\.", "");
+    className = toClassName(parent, name);
+    store = getRoot(parent).getStore();
+    id = store.add(this);
+  }
+
+  private static ContainerNode getRoot(Node parent)
+  {
+    Node result = parent;
+    while (result.getParent() != null)
+    {
+      result = result.getParent();
+    }
+    return (ContainerNode)result;
+  }
+
+  /**
+   * Creates the fully qualified class name by omitting all ancestors from the class path entry upwards, which
+   * are the ones having a ':' in their simple name.
+   */
+  private static String toClassName(Node parent, String name)
+  {
+    int length = name.length();
+    Node top = parent;
+    while (top != null && top.getSimpleName() != null && top.getSimpleName().indexOf(':') < 0)
+    {
+      length += top.getSimpleName().length() + 1;
+      top = top.getParent();
+    }
+    if (length == name.length())
+    {
+      return name;
+    }
+    char[] buffer = new char[length];
+    int pos = length - name.length();
+    name.getChars(0, name.length(), buffer, pos);
+    for ( Node ancestor = parent ; ancestor != top ; ancestor = ancestor.getParent() )
+    {
+      buffer[--pos] = '.';
+      pos -= ancestor.getSimpleName().length();
+      ancestor.getSimpleName().getChars(0, ancestor.getSimpleName().length(), buffer, pos);
+    }
+    return new String(buffer);
+  }
+
+  /**
+   * @return number unique among the class nodes of the same tree, neighbours are sorted by it. Nodes of
+   *         different trees must not be linked.
+   */
+  int getId()
+  {
+    return id;
+  }
+
+  /**
+   * @return store holding the dependencies of all class nodes of this tree
+   */
+  NodeStore getStore()
+  {
+    return store;
   }
 
   @Override
   public List<Node> getPredecessors()
   {
-    return predLeafs.stream().map(Node::getListedContainer).distinct().collect(Collectors.toList());
+    return getPredLeafs().stream().map(Node::getListedContainer).distinct().collect(Collectors.toList());
   }
 
   @Override
   public List<Node> getSuccessors()
   {
-    return sucLeafs.stream().map(Node::getListedContainer).distinct().collect(Collectors.toList());
+    return getSucLeafs().stream().map(Node::getListedContainer).distinct().collect(Collectors.toList());
   }
 
   /**
-   * Adds a successor, namely a node for a class own class depends on.
+   * Adds a successor, namely a node for a class own class depends on. Adding the same successor twice has no
+   * effect.
    *
    * @param successor
    */
   public void addSuccessor(ClassNode successor)
   {
-    sucLeafs.add(successor);
-    successor.predLeafs.add(this);
+    addSuccessor(successor, DependencyKind.ALL);
+  }
+
+  /**
+   * Adds a successor with known kinds of dependency.
+   *
+   * @param successor
+   * @param kinds mask of {@link DependencyKind} bits
+   */
+  void addSuccessor(ClassNode successor, int kinds)
+  {
+    addSuccessorLeaf(successor, kinds);
+    store.getPredecessors().insert(successor.id, id, DependencyKind.ALL);
+  }
+
+  /**
+   * Adds many successors at once, sorting only once. Has the same effect as calling
+   * {@link #addSuccessor(ClassNode, int)} for each of them.
+   *
+   * @param successors array of successors, may contain duplicates
+   * @param kinds mask of {@link DependencyKind} bits for each successor, null if not known
+   * @param count number of successors to use from the start of the arrays
+   */
+  void addSuccessors(ClassNode[] successors, byte[] kinds, int count)
+  {
+    addSuccessorLeafs(successors, kinds, count);
+    for ( int i = 0 ; i < count ; i++ )
+    {
+      store.getPredecessors().insert(successors[i].id, id, DependencyKind.ALL);
+    }
+  }
+
+  /**
+   * Adds many successors at once without registering this node as their predecessor, see
+   * {@link #addSuccessorLeaf(ClassNode)}.
+   *
+   * @param successors array of successors, may contain duplicates
+   * @param kinds mask of {@link DependencyKind} bits for each successor, null if not known
+   * @param count number of successors to use from the start of the arrays
+   */
+  void addSuccessorLeafs(ClassNode[] successors, byte[] kinds, int count)
+  {
+    store.getSuccessors().insertAll(id, toIds(successors, 0, count), kinds, 0, count);
+  }
+
+  /**
+   * Adds a successor without registering this node as its predecessor, which must be done by
+   * {@link #addPredecessorLeafs(ClassNode[], int, int)}. Different nodes may be changed by different threads.
+   *
+   * @param successor
+   */
+  void addSuccessorLeaf(ClassNode successor)
+  {
+    addSuccessorLeaf(successor, DependencyKind.ALL);
+  }
+
+  /**
+   * Same as {@link #addSuccessorLeaf(ClassNode)} but records the kinds of the dependency.
+   *
+   * @param successor
+   * @param kinds mask of {@link DependencyKind} bits
+   */
+  void addSuccessorLeaf(ClassNode successor, int kinds)
+  {
+    store.getSuccessors().insert(id, successor.id, kinds);
+  }
+
+  /**
+   * Adds predecessors which have been given this node as successor by {@link #addSuccessorLeaf(ClassNode)}.
+   *
+   * @param source array of predecessors
+   * @param from first index to use
+   * @param to index after the last one to use
+   */
+  void addPredecessorLeafs(ClassNode[] source, int from, int to)
+  {
+    store.getPredecessors().insertAll(id, toIds(source, from, to), null, 0, to - from);
+  }
+
+  private static int[] toIds(ClassNode[] nodes, int from, int to)
+  {
+    int[] result = new int[to - from];
+    for ( int i = 0 ; i < result.length ; i++ )
+    {
+      result[i] = nodes[from + i].id;
+    }
+    return result;
+  }
+
+  /**
+   * Releases unused capacity of the neighbour arrays, to be called after linking is complete.
+   */
+  void trimLinks()
+  {
+    store.getSuccessors().trim(id);
+    store.getPredecessors().trim(id);
+  }
+
+  /**
+   * Removes all outgoing dependencies including the missing and platform ones, for instance before the class
+   * is parsed again.
+   */
+  void removeSuccessors()
+  {
+    NeighbourTable successors = store.getSuccessors();
+    for ( int i = 0 ; i < successors.size(id) ; i++ )
+    {
+      store.getPredecessors().delete(successors.get(id, i), id);
+    }
+    successors.reset(id);
+    store.removeDependencyNames(id);
+  }
+
+  /**
+   * Removes a successor added before.
+   *
+   * @param successor
+   */
+  void removeSuccessor(ClassNode successor)
+  {
+    store.getSuccessors().delete(id, successor.id);
+    store.getPredecessors().delete(successor.id, id);
   }
 
   @SuppressWarnings("unused")
@@ -65,7 +244,7 @@ public class ClassNode extends Node
   {
     return other instanceof ContainerNode
       ? ((ContainerNode)other).getContainedLeafs()
-                              .filter(sucLeafs::contains)
+                              .filter(getSucLeafs()::contains)
                               .map(l -> new Pair<Node, Node>(this, l))
                               .collect(Collectors.toList())
       : Collections.singletonList(new Pair<>(this, other));
@@ -77,17 +256,70 @@ public class ClassNode extends Node
     return Stream.empty();
   }
 
+  /**
+   * @return read-only view of the direct predecessors, sorted by {@link #getId()}
+   */
   List<ClassNode> getPredLeafs()
   {
-    return predLeafs;
+    return store.getNeighbours(store.getPredecessors(), id);
   }
 
   /**
-   * @return the direct successors, ignoring any collapsed containers.
+   * @return the direct successors, ignoring any collapsed containers. The list is a read-only view which
+   *         contains each successor once.
    */
   public List<ClassNode> getSucLeafs()
   {
-    return Collections.unmodifiableList(sucLeafs);
+    return store.getNeighbours(store.getSuccessors(), id);
+  }
+
+  /**
+   * Selects the successors by kind of dependency without scanning again. Dependencies whose kinds have not
+   * been recorded are contained in any selection.
+   *
+   * @param kinds mask of {@link DependencyKind} bits, see {@link DependencyKind#maskOf(DependencyKind...)}
+   * @return the direct successors referenced in at least one of the given ways
+   */
+  public List<ClassNode> getSucLeafs(int kinds)
+  {
+    NeighbourTable successors = store.getSuccessors();
+    if (!successors.hasKinds(id))
+    {
+      return getSucLeafs();
+    }
+    List<ClassNode> result = new ArrayList<>();
+    for ( int i = 0 ; i < successors.size(id) ; i++ )
+    {
+      if ((successors.getKinds(id, i) & kinds) != 0)
+      {
+        result.add(store.getNode(successors.get(id, i)));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @param successor any node
+   * @return mask of {@link DependencyKind} bits, {@link DependencyKind#ALL} if kinds have not been recorded,
+   *         0 if there is no such dependency
+   */
+  public int getDependencyKinds(ClassNode successor)
+  {
+    int index = successor.store == store ? store.getSuccessors().find(id, successor.id) : -1;
+    if (index < 0)
+    {
+      return 0;
+    }
+    return getDependencyKindsAt(index);
+  }
+
+  /**
+   * @param index position within {@link #getSucLeafs()}
+   * @return mask of {@link DependencyKind} bits
+   */
+  int getDependencyKindsAt(int index)
+  {
+    return store.getSuccessors().getKinds(id, index);
   }
 
   @Override
@@ -98,10 +330,43 @@ public class ClassNode extends Node
 
   /**
    * @return all class names which the represented class references but which do not match a successor node.
+   *         Reading never creates a collection, so readers may run concurrently with each other.
    */
   public Collection<String> getMissingDependencies()
   {
-    return missingDependencies;
+    return store.getMissingDependencies(id);
+  }
+
+  /**
+   * @return true if {@link #getMissingDependencies()} is not empty
+   */
+  boolean hasMissingDependencies()
+  {
+    return !getMissingDependencies().isEmpty();
+  }
+
+  /**
+   * @param name class referenced but not found in the scanned class path
+   */
+  public void addMissingDependency(String name)
+  {
+    store.addMissingDependency(id, name);
+  }
+
+  /**
+   * @return names of the JDK classes this class depends on, empty if the scanner knows no JDK index
+   */
+  public Collection<String> getPlatformDependencies()
+  {
+    return store.getPlatformDependencies(id);
+  }
+
+  /**
+   * @param name JDK class referenced by this class
+   */
+  public void addPlatformDependency(String name)
+  {
+    store.addPlatformDependency(id, name);
   }
 
   @Override
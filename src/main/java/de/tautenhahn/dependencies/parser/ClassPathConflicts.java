@@ -0,0 +1,135 @@
+package de.tautenhahn.dependencies.parser;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+
+/**
+ * Lists classes found more than once in the class path and packages spread over several class path entries.
+ * Created by the scanner while linking, so no class path entry is read again.
+ *
+ * @author TT
+ */
+public final class ClassPathConflicts
+{
+
+  /**
+   * How the shadowed copies of a class compare to the used one.
+   */
+  public enum Match
+  {
+    /** all copies have the same class file content, for instance shaded copies */
+    IDENTICAL,
+    /** at least one copy differs, the class path order decides which version is used */
+    DIVERGENT,
+    /** at least one copy has not been parsed, so contents cannot be compared */
+    UNKNOWN
+  }
+
+  /**
+   * Class found several times.
+   */
+  public static final class Duplicate
+  {
+
+    private final String className;
+
+    private final String usedNode;
+
+    private final List<String> shadowedNodes;
+
+    private final Match match;
+
+    Duplicate(String className, String usedNode, List<String> shadowedNodes, Match match)
+    {
+      this.className = className;
+      this.usedNode = usedNode;
+      this.shadowedNodes = Collections.unmodifiableList(shadowedNodes);
+      this.match = match;
+    }
+
+    /**
+     * @return fully qualified class name
+     */
+    public String getClassName()
+    {
+      return className;
+    }
+
+    /**
+     * @return name of the node which is linked, namely the first one in class path
+     */
+    public String getUsedNode()
+    {
+      return usedNode;
+    }
+
+    /**
+     * @return names of the nodes which are never used
+     */
+    public List<String> getShadowedNodes()
+    {
+      return shadowedNodes;
+    }
+
+    /**
+     * @return whether the copies have the same content
+     */
+    public Match getMatch()
+    {
+      return match;
+    }
+  }
+
+  private final List<Duplicate> duplicates;
+
+  private final Map<String, List<String>> splitPackages;
+
+  /**
+   * Creates immutable instance.
+   *
+   * @param duplicates classes found more than once
+   * @param splitPackages names of class path entry nodes by package name
+   */
+  ClassPathConflicts(List<Duplicate> duplicates, SortedMap<String, List<String>> splitPackages)
+  {
+    this.duplicates = Collections.unmodifiableList(duplicates);
+    this.splitPackages = Collections.unmodifiableMap(splitPackages);
+  }
+
+  /**
+   * @return classes found more than once, sorted by class name
+   */
+  public List<Duplicate> getDuplicates()
+  {
+    return duplicates;
+  }
+
+  /**
+   * @return names of the archive or directory nodes containing classes of a package, by package name. Only
+   *         packages found in more than one of them are listed.
+   */
+  public Map<String, List<String>> getSplitPackages()
+  {
+    return splitPackages;
+  }
+
+  @Override
+  public String toString()
+  {
+    StringBuilder result = new StringBuilder("duplicate classes:");
+    duplicates.forEach(d -> result.append("\n   ")
+                                  .append(d.className)
+                                  .append(" (")
+                                  .append(d.match)
+                                  .append(") used from ")
+                                  .append(d.usedNode)
+                                  .append(", shadowed ")
+                                  .append(d.shadowedNodes));
+    result.append("\nsplit packages:");
+    splitPackages.forEach((p, es) -> result.append("\n   ").append(p).append(" in ").append(es));
+    return result.toString();
+  }
+}
@@ -1,6 +1,7 @@
 package de.tautenhahn.dependencies.parser;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 
@@ -48,7 +49,15 @@ public class ComponentsBuilder
   private void copyDependencies(ClassNode original, Map<ClassNode, ClassNode> copyByOrinalLeafs)
   {
     ClassNode myCopy = copyByOrinalLeafs.get(original);
-    original.getSucLeafs().stream().map(copyByOrinalLeafs::get).forEach(myCopy::addSuccessor);
+    List<ClassNode> successors = original.getSucLeafs();
+    ClassNode[] copies = new ClassNode[successors.size()];
+    byte[] kinds = new byte[copies.length];
+    for ( int i = 0 ; i < copies.length ; i++ )
+    {
+      copies[i] = copyByOrinalLeafs.get(successors.get(i));
+      kinds[i] = (byte)original.getDependencyKindsAt(i);
+    }
+    myCopy.addSuccessors(copies, kinds, copies.length);
   }
 
   private void addToComponent(ContainerNode result, ClassNode l, Map<ClassNode, ClassNode> copyByOrinalLeafs)
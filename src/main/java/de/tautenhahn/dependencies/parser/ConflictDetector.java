@@ -0,0 +1,125 @@
+package de.tautenhahn.dependencies.parser;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Collectors;
+
+import de.tautenhahn.dependencies.parser.ClassPathConflicts.Duplicate;
+import de.tautenhahn.dependencies.parser.ClassPathConflicts.Match;
+
+
+/**
+ * Decides which one of several classes with the same name is used and lists the others as conflicts, together
+ * with packages spread over several class path entries.
+ *
+ * @author TT
+ */
+final class ConflictDetector
+{
+
+  private ConflictDetector()
+  {
+    // no instances
+  }
+
+  /**
+   * The class from the first class path entry wins. Within the same class path entry (nested archives,
+   * versioned classes), the smaller node name wins to stay deterministic.
+   *
+   * @param current class chosen so far, may be null
+   * @param candidate class with same name, {@link ParsedClass#rank} must be set
+   * @return the class to use
+   */
+  static ParsedClass earlier(ParsedClass current, ParsedClass candidate)
+  {
+    if (current == null || candidate.rank < current.rank)
+    {
+      return candidate;
+    }
+    return candidate.rank == current.rank && candidate.node.getName().compareTo(current.node.getName()) < 0
+      ? candidate : current;
+  }
+
+  /**
+   * Collects classes found more than once and the archives or directories of each package in one pass over
+   * the parsed classes.
+   *
+   * @param parsed all classes of the class path
+   * @param first used class by class ID
+   * @return conflicts sorted by class and package name
+   */
+  static ClassPathConflicts find(ParsedClass[] parsed, AtomicReferenceArray<ParsedClass> first)
+  {
+    Map<Integer, Queue<ParsedClass>> shadowed = new ConcurrentHashMap<>();
+    Map<String, Set<String>> sourcesByPackage = new ConcurrentHashMap<>();
+    Arrays.stream(parsed).parallel().forEach(p -> {
+      if (first.get(p.classId) != p)
+      {
+        shadowed.computeIfAbsent(p.classId, k -> new ConcurrentLinkedQueue<>()).add(p);
+      }
+      String className = p.node.getClassName();
+      sourcesByPackage.computeIfAbsent(className.substring(0, Math.max(0, className.lastIndexOf('.'))),
+                                       k -> ConcurrentHashMap.newKeySet())
+                      .add(getSourceNode(p.node).getName());
+    });
+    List<Duplicate> duplicates = shadowed.entrySet()
+                                         .stream()
+                                         .map(e -> toDuplicate(first.get(e.getKey()), e.getValue()))
+                                         .sorted(Comparator.comparing(Duplicate::getClassName))
+                                         .collect(Collectors.toList());
+    SortedMap<String, List<String>> splitPackages = new TreeMap<>();
+    sourcesByPackage.entrySet()
+                    .stream()
+                    .filter(e -> e.getValue().size() > 1)
+                    .forEach(e -> splitPackages.put(e.getKey(),
+                                                    e.getValue().stream().sorted().collect(Collectors.toList())));
+    return new ClassPathConflicts(duplicates, splitPackages);
+  }
+
+  private static Duplicate toDuplicate(ParsedClass used, Collection<ParsedClass> shadowed)
+  {
+    Match match = Match.IDENTICAL;
+    for ( ParsedClass p : shadowed )
+    {
+      if (p.hash == 0 || used.hash == 0)
+      {
+        match = Match.UNKNOWN;
+      }
+      else if (p.hash != used.hash && match == Match.IDENTICAL)
+      {
+        match = Match.DIVERGENT;
+      }
+    }
+    return new Duplicate(used.node.getClassName(),
+                         used.node.getName(),
+                         shadowed.stream()
+                                 .sorted(Comparator.comparingInt((ParsedClass p) -> p.rank)
+                                                   .thenComparing(p -> p.node.getName()))
+                                 .map(p -> p.node.getName())
+                                 .collect(Collectors.toList()),
+                         match);
+  }
+
+  /**
+   * @return innermost archive or directory containing the node
+   */
+  private static Node getSourceNode(Node node)
+  {
+    Node result = node.getParent();
+    while (result.getParent() != null && !result.getSimpleName().contains(":"))
+    {
+      result = result.getParent();
+    }
+    return result;
+  }
+}
@@ -24,9 +24,13 @@ public final class ContainerNode extends Node
 
   private final Map<String, Node> children = new LinkedHashMap<>();
 
+  /** data of all class nodes in this tree, present in the root only */
+  private final NodeStore store;
+
   private ContainerNode(Node parent, String name)
   {
     super(parent, name);
+    store = parent == null ? new NodeStore() : null;
   }
 
   /**
@@ -76,6 +80,35 @@ public final class ContainerNode extends Node
     return ((ContainerNode)intermed).createChild(parts.getSecond(), constructor);
   }
 
+  /**
+   * Removes a node from its parent. Containers which become empty that way are removed as well, except this
+   * node. The data of a removed class node is released.
+   *
+   * @param node any node below this root
+   */
+  void remove(Node node)
+  {
+    if (node instanceof ClassNode)
+    {
+      ((ClassNode)node).getStore().remove(((ClassNode)node).getId());
+    }
+    Node child = node;
+    ContainerNode parent = (ContainerNode)child.getParent();
+    while (parent != null)
+    {
+      synchronized (parent.children)
+      {
+        parent.children.remove(child.getSimpleName());
+        if (!parent.children.isEmpty() || parent == this)
+        {
+          return;
+        }
+      }
+      child = parent;
+      parent = (ContainerNode)child.getParent();
+    }
+  }
+
 
   /**
    * Creates a virtual root node with no parent and no name.
@@ -87,6 +120,14 @@ public final class ContainerNode extends Node
     return new ContainerNode(null, null);
   }
 
+  /**
+   * @return data of the class nodes of this tree, null if this is not the root
+   */
+  NodeStore getStore()
+  {
+    return store;
+  }
+
   /**
    * @return the direct children, independently of list mode.
    */
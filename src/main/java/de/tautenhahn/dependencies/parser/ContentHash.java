@@ -0,0 +1,100 @@
+package de.tautenhahn.dependencies.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+
+/**
+ * Computes the 64 bit xxHash (XXH64, seed 0) of class file contents. It is fast enough to be computed for
+ * each class while parsing and good enough to tell different versions of a class apart. Not suitable for
+ * security purposes.
+ *
+ * @author TT
+ */
+final class ContentHash
+{
+
+  private static final long PRIME1 = 0x9E3779B185EBCA87L;
+
+  private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+
+  private static final long PRIME3 = 0x165667B19E3779F9L;
+
+  private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+
+  private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+  private ContentHash()
+  {
+    // static only
+  }
+
+  /**
+   * @param content bytes between position and limit are hashed, position is not changed
+   * @return hash value
+   */
+  static long of(ByteBuffer content)
+  {
+    ByteBuffer buf = content.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    int pos = buf.position();
+    int end = buf.limit();
+    long result;
+    if (end - pos >= 32)
+    {
+      long v1 = PRIME1 + PRIME2;
+      long v2 = PRIME2;
+      long v3 = 0;
+      long v4 = -PRIME1;
+      for ( ; pos <= end - 32 ; pos += 32 )
+      {
+        v1 = round(v1, buf.getLong(pos));
+        v2 = round(v2, buf.getLong(pos + 8));
+        v3 = round(v3, buf.getLong(pos + 16));
+        v4 = round(v4, buf.getLong(pos + 24));
+      }
+      result = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12)
+               + Long.rotateLeft(v4, 18);
+      result = merge(result, v1);
+      result = merge(result, v2);
+      result = merge(result, v3);
+      result = merge(result, v4);
+    }
+    else
+    {
+      result = PRIME5;
+    }
+    result += end - buf.position();
+    for ( ; pos <= end - 8 ; pos += 8 )
+    {
+      result ^= round(0, buf.getLong(pos));
+      result = Long.rotateLeft(result, 27) * PRIME1 + PRIME4;
+    }
+    if (pos <= end - 4)
+    {
+      result ^= (buf.getInt(pos) & 0xFFFFFFFFL) * PRIME1;
+      result = Long.rotateLeft(result, 23) * PRIME2 + PRIME3;
+      pos += 4;
+    }
+    for ( ; pos < end ; pos++ )
+    {
+      result ^= (buf.get(pos) & 0xFFL) * PRIME5;
+      result = Long.rotateLeft(result, 11) * PRIME1;
+    }
+    result ^= result >>> 33;
+    result *= PRIME2;
+    result ^= result >>> 29;
+    result *= PRIME3;
+    result ^= result >>> 32;
+    return result;
+  }
+
+  private static long round(long acc, long input)
+  {
+    return Long.rotateLeft(acc + input * PRIME2, 31) * PRIME1;
+  }
+
+  private static long merge(long acc, long value)
+  {
+    return (acc ^ round(0, value)) * PRIME1 + PRIME4;
+  }
+}
@@ -0,0 +1,57 @@
+package de.tautenhahn.dependencies.parser;
+
+/**
+ * Tells where a class references another one. One dependency may have several kinds, so kinds are combined
+ * into a bit mask which is stored as a single byte per edge.
+ *
+ * @author TT
+ */
+public enum DependencyKind
+{
+  /** super class or implemented interface */
+  INHERITANCE,
+  /** type of a field */
+  FIELD,
+  /** parameter, return or exception type of a method */
+  SIGNATURE,
+  /** annotation type or class used as annotation value */
+  ANNOTATION,
+  /** referenced by code or constants only, not by the declarations of the class */
+  CODE,
+  /** named by a string constant only, for instance in <code>Class.forName(String)</code>, low confidence */
+  REFLECTION;
+
+  /** mask used for edges without recorded kinds, any kind is possible there */
+  public static final int ALL = (1 << values().length) - 1;
+
+  /**
+   * @return bit representing this kind within a mask
+   */
+  public int getBit()
+  {
+    return 1 << ordinal();
+  }
+
+  /**
+   * @param kinds any kinds
+   * @return mask containing the given kinds
+   */
+  public static int maskOf(DependencyKind... kinds)
+  {
+    int result = 0;
+    for ( DependencyKind kind : kinds )
+    {
+      result |= kind.getBit();
+    }
+    return result;
+  }
+
+  /**
+   * @param mask combination of kinds
+   * @return true if mask contains this kind
+   */
+  public boolean isIn(int mask)
+  {
+    return (mask & getBit()) != 0;
+  }
+}
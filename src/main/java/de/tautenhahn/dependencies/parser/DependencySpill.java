@@ -0,0 +1,163 @@
+package de.tautenhahn.dependencies.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Temporary file holding dependency lists which do not fit into the memory budget of a scan. Lists are
+ * appended while parsing and read back from memory-mapped segments after {@link #finish()} has been called.
+ * No list crosses a segment border. The file is deleted when closed.
+ *
+ * @author TT
+ */
+final class DependencySpill implements Closeable
+{
+
+  /** 256 MB per mapped segment */
+  private static final int DEFAULT_SEGMENT_INTS = 1 << 26;
+
+  private final int segmentInts;
+
+  private final FileChannel channel;
+
+  private final ByteBuffer writeBuffer = ByteBuffer.allocate(64 * 1024);
+
+  /** number of ints written including padding */
+  private long size;
+
+  private IntBuffer[] segments;
+
+  /**
+   * Creates instance with a new temporary file.
+   *
+   * @throws IOException if file cannot be created
+   */
+  DependencySpill() throws IOException
+  {
+    this(DEFAULT_SEGMENT_INTS);
+  }
+
+  /**
+   * Creates instance with given segment size.
+   *
+   * @param segmentInts maximum number of ints mapped into one buffer, limits the length of a list
+   * @throws IOException if file cannot be created
+   */
+  DependencySpill(int segmentInts) throws IOException
+  {
+    this.segmentInts = segmentInts;
+    Path file = Files.createTempFile("dependencies", ".bin");
+    channel = FileChannel.open(file,
+                               StandardOpenOption.READ,
+                               StandardOpenOption.WRITE,
+                               StandardOpenOption.DELETE_ON_CLOSE);
+  }
+
+  /**
+   * Appends a list.
+   *
+   * @param values dependency IDs
+   * @return position to read the list from
+   * @throws IOException in case of file system problems
+   */
+  synchronized long append(int... values) throws IOException
+  {
+    if (segments != null)
+    {
+      throw new IllegalStateException("already finished");
+    }
+    if (values.length > segmentInts)
+    {
+      throw new IllegalArgumentException("list of " + values.length + " entries exceeds segment size");
+    }
+    if (size % segmentInts + values.length > segmentInts)
+    {
+      for ( long padding = segmentInts - size % segmentInts ; padding > 0 ; padding-- )
+      {
+        put(0);
+      }
+    }
+    long result = size;
+    for ( int value : values )
+    {
+      put(value);
+    }
+    return result;
+  }
+
+  private void put(int value) throws IOException
+  {
+    if (!writeBuffer.hasRemaining())
+    {
+      flush();
+    }
+    writeBuffer.putInt(value);
+    size++;
+  }
+
+  private void flush() throws IOException
+  {
+    writeBuffer.flip();
+    while (writeBuffer.hasRemaining())
+    {
+      channel.write(writeBuffer);
+    }
+    writeBuffer.clear();
+  }
+
+  /**
+   * Writes pending data and maps the file for reading. No more lists can be appended.
+   *
+   * @throws IOException in case of file system problems
+   */
+  synchronized void finish() throws IOException
+  {
+    if (segments != null)
+    {
+      return;
+    }
+    flush();
+    segments = new IntBuffer[(int)((size + segmentInts - 1) / segmentInts)];
+    for ( int i = 0 ; i < segments.length ; i++ )
+    {
+      long start = (long)i * segmentInts;
+      segments[i] = channel.map(MapMode.READ_ONLY, start * Integer.BYTES,
+                                Math.min(segmentInts, size - start) * Integer.BYTES)
+                           .asIntBuffer();
+    }
+  }
+
+  /**
+   * Reads a list back, may be called by several threads concurrently.
+   *
+   * @param position as returned by {@link #append(int...)}
+   * @param length number of values in the list
+   * @return new array
+   */
+  int[] read(long position, int length)
+  {
+    IntBuffer segment = segments[(int)(position / segmentInts)];
+    int offset = (int)(position % segmentInts);
+    int[] result = new int[length];
+    for ( int i = 0 ; i < length ; i++ )
+    {
+      result[i] = segment.get(offset + i);
+    }
+    return result;
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    segments = null;
+    channel.close();
+  }
+}
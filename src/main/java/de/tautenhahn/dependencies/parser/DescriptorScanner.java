@@ -0,0 +1,259 @@
+package de.tautenhahn.dependencies.parser;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+
+/**
+ * Single-pass scanner for field descriptors, method descriptors and generic signatures as found in the
+ * constant pool. Reports the fully qualified names of all referenced classes, using '.' as package separator
+ * and '$' for inner classes. Classes used as type arguments are reported as well at any nesting level
+ * because the erased descriptor does not contain them, type variables and wildcards are ignored. Bounds of
+ * formal type parameters are reported. Anything which turns out not to be a descriptor is left as soon as
+ * this is recognized. <br>
+ * Instances hold re-used name buffers, one per nesting level, and are not thread-safe.
+ *
+ * @author TT
+ */
+final class DescriptorScanner
+{
+
+  /**
+   * Receives the found class names.
+   */
+  @FunctionalInterface
+  interface NameConsumer
+  {
+
+    /**
+     * Called for each class name found.
+     *
+     * @param name buffer holding the class name in modified UTF8 encoding, content is valid during call only
+     * @param length number of valid bytes
+     * @param ascii true if name contains ASCII characters only
+     */
+    void accept(byte[] name, int length, boolean ascii);
+  }
+
+  /** name buffer for each nesting level of type arguments */
+  private byte[][] names = {new byte[128]};
+
+  private int depth;
+
+  private ByteBuffer data;
+
+  private int end;
+
+  private NameConsumer target;
+
+  /**
+   * Reports all class names referenced by a descriptor or signature.
+   *
+   * @param content buffer containing the descriptor
+   * @param start position of the first character
+   * @param limit position after the last character
+   * @param consumer receives the found names
+   */
+  void scan(ByteBuffer content, int start, int limit, NameConsumer consumer)
+  {
+    data = content;
+    end = limit;
+    target = consumer;
+    depth = 0;
+    try
+    {
+      int pos = start;
+      if (pos < end && data.get(pos) == '<')
+      {
+        pos = skipFormalTypeParameters(pos + 1);
+      }
+      while (pos >= 0 && pos < end)
+      {
+        pos = skipType(pos);
+      }
+    }
+    finally
+    {
+      data = null;
+      target = null;
+    }
+  }
+
+  /**
+   * Scans one type or one special character of a method descriptor.
+   *
+   * @return position after the scanned element, negative if content is no descriptor
+   */
+  private int skipType(int pos)
+  {
+    switch (data.get(pos))
+    {
+      case 'L':
+        return scanClassType(pos + 1);
+      case 'T':
+        int varEnd = indexOf(pos + 1, ';');
+        return varEnd < 0 ? -1 : varEnd + 1;
+      case '[': // array dimensions
+      case '(': // method parameters
+      case ')': // method return type
+      case '^': // throws clause
+      case 'B':
+      case 'C':
+      case 'D':
+      case 'F':
+      case 'I':
+      case 'J':
+      case 'S':
+      case 'Z':
+      case 'V':
+        return pos + 1;
+      default:
+        return -1;
+    }
+  }
+
+  /**
+   * Parses something like "T:Ljava/lang/Object;U::Ljava/lang/Comparable&lt;TU;&gt;;&gt;" reporting the bounds.
+   */
+  private int skipFormalTypeParameters(int start)
+  {
+    int pos = start;
+    while (pos < end && data.get(pos) != '>')
+    {
+      pos = indexOf(pos, ':') + 1; // skip identifier
+      if (pos <= 0 || pos >= end)
+      {
+        return -1;
+      }
+      if (data.get(pos) != ':')
+      {
+        pos = skipReferenceType(pos); // class bound
+      }
+      while (pos >= 0 && pos < end && data.get(pos) == ':')
+      {
+        pos = skipReferenceType(pos + 1); // interface bound
+      }
+      if (pos < 0)
+      {
+        return -1;
+      }
+    }
+    return pos < end ? pos + 1 : -1;
+  }
+
+  private int skipReferenceType(int start)
+  {
+    int pos = start;
+    while (pos < end && data.get(pos) == '[')
+    {
+      pos++;
+    }
+    return pos < end ? skipType(pos) : -1;
+  }
+
+  /**
+   * Collects the class name starting after 'L' until the terminating ';', scanning type arguments and
+   * replacing the separators.
+   */
+  private int scanClassType(int start)
+  {
+    byte[] name = names[depth];
+    int length = 0;
+    boolean ascii = true;
+    int pos = start;
+    while (pos < end)
+    {
+      byte b = data.get(pos);
+      switch (b)
+      {
+        case ';':
+          if (length == 0)
+          {
+            return -1;
+          }
+          target.accept(name, length, ascii);
+          return pos + 1;
+        case '<':
+          pos = scanTypeArguments(pos + 1);
+          if (pos < 0)
+          {
+            return -1;
+          }
+          pos++;
+          continue;
+        case '.': // inner class of a parameterized type
+          b = '$';
+          break;
+        case '/':
+          b = '.';
+          break;
+        case '(':
+        case ')':
+        case '[':
+        case '>':
+        case ':':
+          return -1;
+        default:
+          break;
+      }
+      if (length == name.length)
+      {
+        name = Arrays.copyOf(name, 2 * length);
+        names[depth] = name;
+      }
+      ascii &= b >= 0;
+      name[length++] = b;
+      pos++;
+    }
+    return -1;
+  }
+
+  /**
+   * Scans type arguments like "*+Ljava/lang/Number;TT;" using the name buffer of the next nesting level.
+   *
+   * @return position of the closing '&gt;' or negative value
+   */
+  private int scanTypeArguments(int start)
+  {
+    depth++;
+    if (depth == names.length)
+    {
+      names = Arrays.copyOf(names, depth + 1);
+    }
+    if (names[depth] == null)
+    {
+      names[depth] = new byte[128];
+    }
+    try
+    {
+      int pos = start;
+      while (pos >= 0 && pos < end && data.get(pos) != '>')
+      {
+        byte b = data.get(pos);
+        pos = isReferenceTypeStart(b) ? skipReferenceType(pos) : pos + 1; // wildcard, indicator or junk
+      }
+      return pos >= 0 && pos < end ? pos : -1;
+    }
+    finally
+    {
+      depth--;
+    }
+  }
+
+  private static boolean isReferenceTypeStart(byte b)
+  {
+    return b == 'L' || b == 'T' || b == '[';
+  }
+
+  private int indexOf(int start, char wanted)
+  {
+    for ( int pos = start ; pos < end ; pos++ )
+    {
+      if (data.get(pos) == wanted)
+      {
+        return pos;
+      }
+    }
+    return -1;
+  }
+}
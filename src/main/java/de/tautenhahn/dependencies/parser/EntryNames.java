@@ -0,0 +1,127 @@
+package de.tautenhahn.dependencies.parser;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.zip.ZipEntry;
+
+
+/**
+ * Recognizes archives and class files in a class path and derives class and node names from their names.
+ *
+ * @author TT
+ */
+final class EntryNames
+{
+
+  private static final String[] CLASS_FOLDERS = {"BOOT-INF/classes/", "WEB-INF/classes/"};
+
+  private EntryNames()
+  {
+    // no instances
+  }
+
+  /**
+   * @param path class path entry
+   * @return true if path denotes an existing archive
+   */
+  static boolean isArchive(Path path)
+  {
+    return isArchiveName(String.valueOf(path.getFileName())) && Files.isRegularFile(path);
+  }
+
+  /**
+   * @param entry entry of an archive
+   * @return true if entry is an archive itself
+   */
+  static boolean isNestedArchive(ZipEntry entry)
+  {
+    return !entry.isDirectory() && isArchiveName(entry.getName());
+  }
+
+  private static boolean isArchiveName(String name)
+  {
+    return name.endsWith(".jar") || name.endsWith(".war") || name.endsWith(".ear");
+  }
+
+  /**
+   * Entries in META-INF are skipped independent of the filter because they are no regular classes (versioned
+   * duplicates in multi-release jars). Every way of reading an archive uses this, so the graph does not
+   * depend on whether the cache is used.
+   *
+   * @param entry entry of an archive
+   * @return true if entry is a class file to parse
+   */
+  static boolean isClassEntry(ZipEntry entry)
+  {
+    return isClassResourceName(entry.getName()) && !entry.getName().startsWith("META-INF/");
+  }
+
+  /**
+   * @param name file or entry name
+   * @return true if name denotes a class file, module and package descriptors excluded
+   */
+  static boolean isClassResourceName(String name)
+  {
+    return name.endsWith(".class") && !"module-info.class".equals(name) && !"package-info.class".equals(name);
+  }
+
+  /**
+   * @param path any path, may be null
+   * @param suffix end of the file name
+   * @return true if path denotes an existing regular file with given suffix
+   */
+  static boolean isFile(Path path, String suffix)
+  {
+    return Optional.ofNullable(path).map(Path::getFileName).map(Object::toString).orElse("").endsWith(suffix)
+           && Files.isRegularFile(path);
+  }
+
+  /**
+   * @param entryName name of a nested archive
+   * @return node name like "jar:some-lib-1_0_jar"
+   */
+  static String toArchiveNodeName(String entryName)
+  {
+    String simpleName = entryName.substring(entryName.lastIndexOf('/') + 1);
+    return toArchiveNodeName(simpleName, simpleName);
+  }
+
+  /**
+   * @param fileName file name of the archive, its extension becomes the prefix
+   * @param name unique name of the archive
+   * @return node name like "jar:some-lib-1_0_jar"
+   */
+  static String toArchiveNodeName(String fileName, String name)
+  {
+    return fileName.substring(fileName.length() - 3) + ":" + name.replace(".", "_");
+  }
+
+  /**
+   * Classes of fat jars and web applications are stored below a special folder.
+   *
+   * @param entryName name of a class file entry
+   * @return fully qualified class name
+   */
+  static String toClassName(String entryName)
+  {
+    return toResourceName(entryName).replace(".class", "").replace('/', '.');
+  }
+
+  /**
+   * @param entryName name of an archive entry
+   * @return name of the resource relative to the class folder of a fat jar or web application
+   */
+  static String toResourceName(String entryName)
+  {
+    String name = entryName;
+    for ( String folder : CLASS_FOLDERS )
+    {
+      if (name.startsWith(folder))
+      {
+        name = name.substring(folder.length());
+      }
+    }
+    return name;
+  }
+}
@@ -1,5 +1,8 @@
 package de.tautenhahn.dependencies.parser;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Pattern;
@@ -79,6 +82,46 @@ public class Filter
     return focus.stream().anyMatch(p -> p.matcher(name).matches());
   }
 
+  /**
+   * Writes the patterns in binary format, used to pass the filter to other processes. Overwritten methods
+   * of subclasses are not covered.
+   *
+   * @param out destination
+   * @throws IOException in case of streaming problems
+   */
+  void write(DataOutput out) throws IOException
+  {
+    for ( List<Pattern> patterns : List.of(ignoredClassNames, ignoredSources, focus) )
+    {
+      out.writeInt(patterns.size());
+      for ( Pattern pattern : patterns )
+      {
+        out.writeUTF(pattern.pattern());
+      }
+    }
+  }
+
+  /**
+   * Reads a filter written by {@link #write(DataOutput)}.
+   *
+   * @param in source
+   * @return new instance
+   * @throws IOException in case of streaming problems
+   */
+  static Filter read(DataInput in) throws IOException
+  {
+    Filter result = new Filter();
+    for ( List<Pattern> patterns : List.of(result.ignoredClassNames, result.ignoredSources, result.focus) )
+    {
+      patterns.clear();
+      for ( int i = in.readInt() ; i > 0 ; i-- )
+      {
+        patterns.add(Pattern.compile(in.readUTF()));
+      }
+    }
+    return result;
+  }
+
   @Override
   public int hashCode()
   {
@@ -0,0 +1,225 @@
+package de.tautenhahn.dependencies.parser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Knows the classes of the running JDK and the modules they belong to. Dependencies to those classes are
+ * reported as platform dependencies instead of being ignored or missing. The index is created by listing
+ * the "jrt:/" file system and stored per JDK version, so it is built only once for each installed JDK.
+ *
+ * @author TT
+ */
+public final class JdkIndex
+{
+
+  private static final Logger LOG = LoggerFactory.getLogger(JdkIndex.class);
+
+  private static final int MAGIC = 0x474B4A49; // "GKJI"
+
+  private static final int VERSION = 1;
+
+  private final String jdkVersion;
+
+  private final List<String> modules;
+
+  /** index into modules by class name */
+  private final Map<String, Integer> moduleByClass;
+
+  private JdkIndex(String jdkVersion, List<String> modules, Map<String, Integer> moduleByClass)
+  {
+    this.jdkVersion = jdkVersion;
+    this.modules = Collections.unmodifiableList(modules);
+    this.moduleByClass = moduleByClass;
+  }
+
+  /**
+   * @return index for the running JDK stored in directory ".gordianknot/jdk" in the users home directory.
+   * @throws IOException if the JDK cannot be listed
+   */
+  public static JdkIndex createDefault() throws IOException
+  {
+    return load(Paths.get(System.getProperty("user.home"), ".gordianknot", "jdk"));
+  }
+
+  /**
+   * Returns the index of all modules of the running JDK, reads it from given directory if it has been stored
+   * there before, otherwise creates and stores it.
+   *
+   * @param directory will be created if necessary
+   * @return index of the running JDK
+   * @throws IOException if the JDK cannot be listed
+   */
+  public static JdkIndex load(Path directory) throws IOException
+  {
+    String jdkVersion = getRunningVersion();
+    Path file = directory.resolve("jdk-" + jdkVersion.replaceAll("[^\\w.-]", "_") + ".bin");
+    if (Files.isReadable(file))
+    {
+      try (InputStream insRes = Files.newInputStream(file);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(insRes)))
+      {
+        JdkIndex result = read(in);
+        if (result != null && result.jdkVersion.equals(jdkVersion))
+        {
+          return result;
+        }
+      }
+      catch (IOException e)
+      {
+        LOG.warn("ignoring unusable JDK index {}", file, e);
+      }
+    }
+    JdkIndex result = scan(Collections.emptyList());
+    Files.createDirectories(directory);
+    Path temp = Files.createTempFile(directory, "jdk", ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))))
+    {
+      result.write(out);
+    }
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    return result;
+  }
+
+  /**
+   * Creates an index by listing the classes of the running JDK.
+   *
+   * @param moduleNames names of the modules to list, empty to list all modules
+   * @return new index
+   * @throws IOException if the JDK cannot be listed
+   */
+  public static JdkIndex scan(Collection<String> moduleNames) throws IOException
+  {
+    FileSystem jrt = FileSystems.getFileSystem(URI.create("jrt:/"));
+    List<String> modules = new ArrayList<>();
+    Map<String, Integer> moduleByClass = new HashMap<>();
+    try (Stream<Path> modulesRes = Files.list(jrt.getPath("/modules")))
+    {
+      for ( Path moduleDir : modulesRes.sorted().collect(Collectors.toList()) )
+      {
+        String module = moduleDir.getFileName().toString();
+        if (!moduleNames.isEmpty() && !moduleNames.contains(module))
+        {
+          continue;
+        }
+        Integer index = modules.size();
+        modules.add(module);
+        try (Stream<Path> filesRes = Files.walk(moduleDir))
+        {
+          filesRes.map(p -> moduleDir.relativize(p).toString())
+                  .filter(n -> n.endsWith(".class") && !n.endsWith("module-info.class"))
+                  .forEach(n -> moduleByClass.put(n.substring(0, n.length() - ".class".length())
+                                                   .replace('/', '.'),
+                                                  index));
+        }
+      }
+    }
+    if (modules.size() < moduleNames.size())
+    {
+      throw new IllegalArgumentException("unknown modules in " + moduleNames + ", JDK has " + modules);
+    }
+    return new JdkIndex(getRunningVersion(), modules, moduleByClass);
+  }
+
+  /**
+   * @param className fully qualified class name
+   * @return name of the module containing the class or null if class does not belong to the JDK
+   */
+  public String getModule(String className)
+  {
+    Integer index = moduleByClass.get(className);
+    return index == null ? null : modules.get(index);
+  }
+
+  /**
+   * @return names of the indexed modules
+   */
+  public List<String> getModules()
+  {
+    return modules;
+  }
+
+  /**
+   * @return version of the indexed JDK
+   */
+  public String getJdkVersion()
+  {
+    return jdkVersion;
+  }
+
+  private static String getRunningVersion()
+  {
+    return System.getProperty("java.vendor") + "-" + Runtime.version();
+  }
+
+  private void write(DataOutputStream out) throws IOException
+  {
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeUTF(jdkVersion);
+    out.writeInt(modules.size());
+    for ( String module : modules )
+    {
+      out.writeUTF(module);
+    }
+    out.writeInt(moduleByClass.size());
+    for ( Map.Entry<String, Integer> entry : moduleByClass.entrySet() )
+    {
+      out.writeUTF(entry.getKey());
+      out.writeShort(entry.getValue());
+    }
+  }
+
+  /**
+   * @return null if format is not supported
+   */
+  private static JdkIndex read(DataInputStream in) throws IOException
+  {
+    if (in.readInt() != MAGIC || in.readInt() != VERSION)
+    {
+      return null;
+    }
+    String jdkVersion = in.readUTF();
+    List<String> modules = new ArrayList<>();
+    for ( int i = in.readInt() ; i > 0 ; i-- )
+    {
+      modules.add(in.readUTF());
+    }
+    int numberClasses = in.readInt();
+    Map<String, Integer> moduleByClass = new HashMap<>(2 * numberClasses);
+    for ( int i = 0 ; i < numberClasses ; i++ )
+    {
+      String className = in.readUTF();
+      int index = in.readUnsignedShort();
+      if (index >= modules.size())
+      {
+        throw new IOException("corrupt JDK index, module index out of range");
+      }
+      moduleByClass.put(className, index);
+    }
+    return new JdkIndex(jdkVersion, modules, moduleByClass);
+  }
+}
@@ -0,0 +1,267 @@
+package de.tautenhahn.dependencies.parser;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+
+/**
+ * Fields and methods referenced and declared by the scanned classes, recorded only if requested by
+ * {@link ProjectScanner#setRecordMembers(boolean)}. Each class holds two int arrays of symbol IDs, so the
+ * memory needed is proportional to the number of members. Owners of references are the classes named by the
+ * referencing code, an inherited method called via a subclass is not found at its declaring class.
+ *
+ * @author TT
+ */
+public final class MemberIndex
+{
+
+  private final SymbolTable classNames;
+
+  private final SymbolTable memberSymbols = new SymbolTable();
+
+  private final Map<ClassNode, int[]> references = new ConcurrentHashMap<>();
+
+  private final Map<ClassNode, int[]> declared = new ConcurrentHashMap<>();
+
+  /**
+   * A field or method.
+   */
+  public static final class Member
+  {
+
+    private final String owner;
+
+    private final String name;
+
+    private final String descriptor;
+
+    Member(String owner, String name, String descriptor)
+    {
+      this.owner = owner;
+      this.name = name;
+      this.descriptor = descriptor;
+    }
+
+    /**
+     * @return name of the declaring or referenced class
+     */
+    public String getOwner()
+    {
+      return owner;
+    }
+
+    /**
+     * @return field or method name
+     */
+    public String getName()
+    {
+      return name;
+    }
+
+    /**
+     * @return field or method descriptor as in the class file
+     */
+    public String getDescriptor()
+    {
+      return descriptor;
+    }
+
+    /**
+     * @return true if this is a method
+     */
+    public boolean isMethod()
+    {
+      return descriptor.startsWith("(");
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return Objects.hash(owner, name, descriptor);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+      if (this == obj)
+      {
+        return true;
+      }
+      if (obj == null || getClass() != obj.getClass())
+      {
+        return false;
+      }
+      Member other = (Member)obj;
+      return owner.equals(other.owner) && name.equals(other.name) && descriptor.equals(other.descriptor);
+    }
+
+    @Override
+    public String toString()
+    {
+      return owner + "." + name + (isMethod() ? "" : ":") + descriptor;
+    }
+  }
+
+  /**
+   * Creates empty instance.
+   *
+   * @param classNames table the owners of references are registered in
+   */
+  MemberIndex(SymbolTable classNames)
+  {
+    this.classNames = classNames;
+  }
+
+  /**
+   * @return table to register member names and descriptors in while parsing
+   */
+  SymbolTable getMemberSymbols()
+  {
+    return memberSymbols;
+  }
+
+  /**
+   * Records the members of a parsed class, replacing the ones recorded before.
+   *
+   * @param node class node
+   * @param info parse result with members
+   */
+  void add(ClassNode node, ClassAndDependencyInfo info)
+  {
+    references.put(node, info.getMemberReferences());
+    declared.put(node, info.getDeclaredMembers());
+  }
+
+  /**
+   * Forgets a class which has been removed.
+   *
+   * @param node class node
+   */
+  void remove(ClassNode node)
+  {
+    references.remove(node);
+    declared.remove(node);
+  }
+
+  /**
+   * @param node any class node
+   * @return fields and methods referenced by the class, empty if the class has not been parsed
+   */
+  public List<Member> getReferencedMembers(ClassNode node)
+  {
+    return toMembers(references.get(node), classNames::get);
+  }
+
+  /**
+   * @param node any class node
+   * @return fields and methods declared by the class, empty if the class has not been parsed
+   */
+  public List<Member> getDeclaredMembers(ClassNode node)
+  {
+    return toMembers(declared.get(node), i -> node.getClassName());
+  }
+
+  /**
+   * Answers questions like "which methods of some jar do we actually call".
+   *
+   * @param provider class or container, for instance an archive
+   * @return members of classes within the provider which are referenced by classes outside of it, sorted
+   */
+  public List<Member> getUsedMembers(Node provider)
+  {
+    Set<ClassNode> inside = leafsOf(provider).collect(Collectors.toSet());
+    Set<Integer> owners = inside.stream()
+                                .map(n -> Integer.valueOf(classNames.find(n.getClassName())))
+                                .collect(Collectors.toSet());
+    Set<Member> result = new HashSet<>();
+    references.forEach((node, table) -> {
+      if (!inside.contains(node))
+      {
+        for ( int i = 0 ; i < table.length ; i += 3 )
+        {
+          if (owners.contains(Integer.valueOf(table[i])))
+          {
+            result.add(toMember(table, i, classNames.get(table[i])));
+          }
+        }
+      }
+    });
+    return sorted(result.stream());
+  }
+
+  /**
+   * Lists public members nobody references. Members may still be used by reflection, as overriding
+   * implementation or via a subclass.
+   *
+   * @param container class or container to check the members of
+   * @return public fields and methods of the classes within the container which are not referenced by any
+   *         scanned class, sorted
+   */
+  public List<Member> getUnusedPublicMembers(Node container)
+  {
+    Set<Member> referenced = new HashSet<>();
+    references.forEach((node, table) -> {
+      for ( int i = 0 ; i < table.length ; i += 3 )
+      {
+        referenced.add(toMember(table, i, classNames.get(table[i])));
+      }
+    });
+    return sorted(leafsOf(container).flatMap(node -> {
+      int[] table = declared.getOrDefault(node, new int[0]);
+      List<Member> result = new ArrayList<>();
+      for ( int i = 0 ; i < table.length ; i += 3 )
+      {
+        Member member = toMember(table, i, node.getClassName());
+        if (Modifier.isPublic(table[i]) && !referenced.contains(member))
+        {
+          result.add(member);
+        }
+      }
+      return result.stream();
+    }));
+  }
+
+  private static Stream<ClassNode> leafsOf(Node node)
+  {
+    return node instanceof ContainerNode
+      ? ((ContainerNode)node).walkCompleteSubTree()
+                             .filter(ClassNode.class::isInstance)
+                             .map(ClassNode.class::cast)
+      : Stream.of((ClassNode)node);
+  }
+
+  private List<Member> toMembers(int[] table, IntFunction<String> owner)
+  {
+    if (table == null)
+    {
+      return Collections.emptyList();
+    }
+    List<Member> result = new ArrayList<>();
+    for ( int i = 0 ; i < table.length ; i += 3 )
+    {
+      result.add(toMember(table, i, owner.apply(table[i])));
+    }
+    return result;
+  }
+
+  private Member toMember(int[] table, int index, String owner)
+  {
+    return new Member(owner, memberSymbols.get(table[index + 1]), memberSymbols.get(table[index + 2]));
+  }
+
+  private static List<Member> sorted(Stream<Member> members)
+  {
+    return members.sorted(Comparator.comparing(Member::toString)).collect(Collectors.toList());
+  }
+}
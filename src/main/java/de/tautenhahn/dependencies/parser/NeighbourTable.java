@@ -0,0 +1,351 @@
+package de.tautenhahn.dependencies.parser;
+
+import java.util.Arrays;
+
+
+/**
+ * Neighbours of all class nodes of one tree in one direction, held as parallel arrays indexed by node ID
+ * instead of an object per node. The neighbour IDs of each node are kept sorted and free of duplicates, so
+ * membership is checked by binary search. For each neighbour a mask of {@link DependencyKind} bits may be
+ * stored which is not allocated as long as all masks of that node are {@link DependencyKind#ALL}. <br>
+ * The arrays are allocated in pages which are never copied, so adding a page does not interfere with threads
+ * changing the neighbours of existing nodes. Different nodes may be changed by different threads.
+ *
+ * @author TT
+ */
+final class NeighbourTable
+{
+
+  private static final int[] NO_IDS = new int[0];
+
+  private final boolean withKinds;
+
+  private volatile Page[] pages = new Page[0];
+
+  /**
+   * Slots of {@link NodeStore#PAGE_SIZE} consecutive nodes.
+   */
+  private static final class Page
+  {
+
+    /** sorted neighbour IDs, null if there are none */
+    private final int[][] ids = new int[NodeStore.PAGE_SIZE][];
+
+    /** masks for each neighbour, null if all are {@link DependencyKind#ALL} */
+    private final byte[][] kinds;
+
+    /** number of used entries in ids */
+    private final int[] size = new int[NodeStore.PAGE_SIZE];
+
+    Page(boolean withKinds)
+    {
+      kinds = withKinds ? new byte[NodeStore.PAGE_SIZE][] : null;
+    }
+  }
+
+  /**
+   * Creates empty instance.
+   *
+   * @param withKinds true to support masks other than {@link DependencyKind#ALL}
+   */
+  NeighbourTable(boolean withKinds)
+  {
+    this.withKinds = withKinds;
+  }
+
+  /**
+   * Adds slots for the next {@link NodeStore#PAGE_SIZE} nodes, to be called by one thread at a time.
+   */
+  void addPage()
+  {
+    Page[] result = Arrays.copyOf(pages, pages.length + 1);
+    result[pages.length] = new Page(withKinds);
+    pages = result;
+  }
+
+  private Page page(int node)
+  {
+    return pages[node >>> NodeStore.PAGE_BITS];
+  }
+
+  private static int slot(int node)
+  {
+    return node & NodeStore.PAGE_SIZE - 1;
+  }
+
+  /**
+   * @param node ID of node
+   * @return number of neighbours of that node
+   */
+  int size(int node)
+  {
+    return page(node).size[slot(node)];
+  }
+
+  /**
+   * @param node ID of node
+   * @param index position of neighbour
+   * @return ID of the neighbour
+   */
+  int get(int node, int index)
+  {
+    Page page = page(node);
+    int size = page.size[slot(node)];
+    if (index < 0 || index >= size)
+    {
+      throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+    }
+    return page.ids[slot(node)][index];
+  }
+
+  /**
+   * @param node ID of node
+   * @param index position of neighbour
+   * @return mask of {@link DependencyKind} bits
+   */
+  int getKinds(int node, int index)
+  {
+    byte[] kinds = getKindsArray(node);
+    return kinds == null ? DependencyKind.ALL : kinds[index] & DependencyKind.ALL;
+  }
+
+  /**
+   * @param node ID of node
+   * @return true if masks other than {@link DependencyKind#ALL} may be stored for that node
+   */
+  boolean hasKinds(int node)
+  {
+    return getKindsArray(node) != null;
+  }
+
+  private byte[] getKindsArray(int node)
+  {
+    Page page = page(node);
+    return page.kinds == null ? null : page.kinds[slot(node)];
+  }
+
+  /**
+   * @param node ID of node
+   * @param neighbour ID of any node
+   * @return position of the neighbour or a negative value if it is not a neighbour
+   */
+  int find(int node, int neighbour)
+  {
+    Page page = page(node);
+    int[] ids = page.ids[slot(node)];
+    return ids == null ? -1 : Arrays.binarySearch(ids, 0, page.size[slot(node)], neighbour);
+  }
+
+  /**
+   * Adds a neighbour at its sorted position. If it is already contained, the kinds are combined.
+   *
+   * @param node ID of node
+   * @param neighbour ID of new neighbour
+   * @param kindsMask mask of {@link DependencyKind} bits
+   */
+  void insert(int node, int neighbour, int kindsMask)
+  {
+    Page page = page(node);
+    int slot = slot(node);
+    int size = page.size[slot];
+    int[] ids = page.ids[slot] == null ? NO_IDS : page.ids[slot];
+    byte[] kinds = page.kinds == null ? null : page.kinds[slot];
+    if (kinds == null && kindsMask != DependencyKind.ALL)
+    {
+      kinds = new byte[ids.length];
+      Arrays.fill(kinds, 0, size, (byte)DependencyKind.ALL);
+    }
+    int index = Arrays.binarySearch(ids, 0, size, neighbour);
+    if (index >= 0)
+    {
+      if (kinds != null)
+      {
+        kinds[index] |= (byte)kindsMask;
+      }
+      setKinds(page, slot, kinds);
+      return;
+    }
+    index = -index - 1;
+    if (size == ids.length)
+    {
+      int capacity = Math.max(4, 2 * size);
+      ids = Arrays.copyOf(ids, capacity);
+      kinds = kinds == null ? null : Arrays.copyOf(kinds, capacity);
+    }
+    System.arraycopy(ids, index, ids, index + 1, size - index);
+    ids[index] = neighbour;
+    if (kinds != null)
+    {
+      System.arraycopy(kinds, index, kinds, index + 1, size - index);
+      kinds[index] = (byte)kindsMask;
+    }
+    page.ids[slot] = ids;
+    setKinds(page, slot, kinds);
+    page.size[slot] = size + 1;
+  }
+
+  private void setKinds(Page page, int slot, byte[] kinds)
+  {
+    if (kinds != null)
+    {
+      if (page.kinds == null)
+      {
+        throw new IllegalStateException("this table does not store kinds of dependency");
+      }
+      page.kinds[slot] = kinds;
+    }
+  }
+
+  /**
+   * Adds many neighbours at once. The new neighbours are sorted once and merged with the existing ones, so
+   * adding the dependencies of a class costs O(n log n) instead of shifting the array for each of them. If a
+   * neighbour is given several times or is already contained, the kinds are combined.
+   *
+   * @param node ID of node
+   * @param source IDs of new neighbours
+   * @param sourceKinds mask of {@link DependencyKind} bits for each new neighbour, null if not known
+   * @param from first index to use
+   * @param to index after the last one to use
+   */
+  void insertAll(int node, int[] source, byte[] sourceKinds, int from, int to)
+  {
+    int count = to - from;
+    if (count <= 0)
+    {
+      return;
+    }
+    Page page = page(node);
+    int slot = slot(node);
+    int size = page.size[slot];
+    int[] ids = page.ids[slot];
+    byte[] kinds = page.kinds == null ? null : page.kinds[slot];
+    long[] keys = new long[count];
+    for ( int i = 0 ; i < count ; i++ )
+    {
+      keys[i] = (long)source[from + i] << 32 | i;
+    }
+    Arrays.sort(keys);
+    int[] merged = new int[size + count];
+    byte[] mergedKinds = kinds != null || hasSpecificKinds(sourceKinds, from, to) ? new byte[merged.length]
+      : null;
+    int mergedSize = 0;
+    int i = 0;
+    int j = 0;
+    while (i < size || j < count)
+    {
+      int next;
+      int nextKinds;
+      if (j == count || i < size && ids[i] <= (int)(keys[j] >>> 32))
+      {
+        next = ids[i];
+        nextKinds = kinds == null ? DependencyKind.ALL : kinds[i] & DependencyKind.ALL;
+        i++;
+      }
+      else
+      {
+        int index = from + (int)keys[j++];
+        next = source[index];
+        nextKinds = sourceKinds == null ? DependencyKind.ALL : sourceKinds[index] & DependencyKind.ALL;
+      }
+      if (mergedSize > 0 && merged[mergedSize - 1] == next)
+      {
+        if (mergedKinds != null)
+        {
+          mergedKinds[mergedSize - 1] |= (byte)nextKinds;
+        }
+      }
+      else
+      {
+        if (mergedKinds != null)
+        {
+          mergedKinds[mergedSize] = (byte)nextKinds;
+        }
+        merged[mergedSize++] = next;
+      }
+    }
+    page.ids[slot] = merged;
+    setKinds(page, slot, mergedKinds);
+    page.size[slot] = mergedSize;
+  }
+
+  private static boolean hasSpecificKinds(byte[] sourceKinds, int from, int to)
+  {
+    if (sourceKinds != null)
+    {
+      for ( int i = from ; i < to ; i++ )
+      {
+        if ((sourceKinds[i] & DependencyKind.ALL) != DependencyKind.ALL)
+        {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @param node ID of node
+   * @param neighbour ID of neighbour to remove
+   * @return true if it was a neighbour
+   */
+  boolean delete(int node, int neighbour)
+  {
+    int index = find(node, neighbour);
+    if (index < 0)
+    {
+      return false;
+    }
+    Page page = page(node);
+    int slot = slot(node);
+    int size = page.size[slot];
+    System.arraycopy(page.ids[slot], index + 1, page.ids[slot], index, size - index - 1);
+    byte[] kinds = page.kinds == null ? null : page.kinds[slot];
+    if (kinds != null)
+    {
+      System.arraycopy(kinds, index + 1, kinds, index, size - index - 1);
+    }
+    page.size[slot] = size - 1;
+    return true;
+  }
+
+  /**
+   * Removes all neighbours of a node and releases its arrays.
+   *
+   * @param node ID of node
+   */
+  void reset(int node)
+  {
+    Page page = page(node);
+    int slot = slot(node);
+    page.ids[slot] = null;
+    if (page.kinds != null)
+    {
+      page.kinds[slot] = null;
+    }
+    page.size[slot] = 0;
+  }
+
+  /**
+   * Releases unused capacity, to be called when no more neighbours of the node are expected.
+   *
+   * @param node ID of node
+   */
+  void trim(int node)
+  {
+    Page page = page(node);
+    int slot = slot(node);
+    int size = page.size[slot];
+    if (size == 0)
+    {
+      reset(node);
+    }
+    else if (size < page.ids[slot].length)
+    {
+      page.ids[slot] = Arrays.copyOf(page.ids[slot], size);
+      if (page.kinds != null && page.kinds[slot] != null)
+      {
+        page.kinds[slot] = Arrays.copyOf(page.kinds[slot], size);
+      }
+    }
+  }
+}
@@ -60,10 +60,37 @@ public abstract class Node
    */
   public String getName()
   {
-    return Optional.ofNullable(parent)
-                   .map(Node::getName)
-                   .map(n -> n + SEPARATOR + simpleName)
-                   .orElse(simpleName);
+    if (parent == null)
+    {
+      return simpleName;
+    }
+    int length = simpleName.length();
+    for ( Node ancestor = parent ; ancestor != null && ancestor.simpleName != null ; ancestor = ancestor.parent )
+    {
+      length += ancestor.simpleName.length() + 1;
+    }
+    return fillName(new char[length]);
+  }
+
+  /**
+   * Copies the name parts from the end without building intermediate strings, called very often in large
+   * projects.
+   *
+   * @param buffer exactly as long as the full name
+   */
+  private String fillName(char[] buffer)
+  {
+    int pos = buffer.length;
+    for ( Node node = this ; node != null && node.simpleName != null ; node = node.parent )
+    {
+      pos -= node.simpleName.length();
+      node.simpleName.getChars(0, node.simpleName.length(), buffer, pos);
+      if (pos > 0)
+      {
+        buffer[--pos] = SEPARATOR;
+      }
+    }
+    return new String(buffer);
   }
 
   /**
@@ -0,0 +1,249 @@
+package de.tautenhahn.dependencies.parser;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+
+/**
+ * Data of all class nodes of one tree, kept in parallel arrays indexed by node ID. A {@link ClassNode} is a
+ * thin view holding its ID, its neighbours are stored here as arrays of IDs. Compared to objects per node
+ * and direction this saves some dozens of bytes per class, which matters for class paths with hundreds of
+ * thousands of classes. <br>
+ * IDs are handed out in creation order starting at 0 for each tree, nodes of different trees must not be
+ * linked. The arrays are allocated in pages of {@link #PAGE_SIZE} nodes which are never copied, so nodes may
+ * be created while other threads change existing nodes. Different nodes may be changed by different threads.
+ *
+ * @author TT
+ */
+final class NodeStore
+{
+
+  /** number of bits of an ID denoting the slot within a page */
+  static final int PAGE_BITS = 10;
+
+  /** number of nodes per page */
+  static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+  private final NeighbourTable successors = new NeighbourTable(true);
+
+  private final NeighbourTable predecessors = new NeighbourTable(false);
+
+  private volatile Page[] pages = new Page[0];
+
+  private int size;
+
+  /**
+   * Slots of {@link #PAGE_SIZE} consecutive nodes.
+   */
+  private static final class Page
+  {
+
+    private final ClassNode[] nodes = new ClassNode[PAGE_SIZE];
+
+    /** created on first use because most classes of a complete class path have none */
+    private final Object[] missingDependencies = new Object[PAGE_SIZE];
+
+    private final Object[] platformDependencies = new Object[PAGE_SIZE];
+  }
+
+  /**
+   * Registers a new node.
+   *
+   * @param node view to return for the new ID
+   * @return ID of the node
+   */
+  synchronized int add(ClassNode node)
+  {
+    int id = size++;
+    if ((id & PAGE_SIZE - 1) == 0)
+    {
+      Page[] newPages = Arrays.copyOf(pages, pages.length + 1);
+      newPages[pages.length] = new Page();
+      successors.addPage();
+      predecessors.addPage();
+      pages = newPages;
+    }
+    page(id).nodes[slot(id)] = node;
+    return id;
+  }
+
+  /**
+   * Releases all data of a removed node. The ID is not used again.
+   *
+   * @param id ID of the node
+   */
+  void remove(int id)
+  {
+    successors.reset(id);
+    predecessors.reset(id);
+    Page page = page(id);
+    page.nodes[slot(id)] = null;
+    page.missingDependencies[slot(id)] = null;
+    page.platformDependencies[slot(id)] = null;
+  }
+
+  private Page page(int id)
+  {
+    return pages[id >>> PAGE_BITS];
+  }
+
+  private static int slot(int id)
+  {
+    return id & PAGE_SIZE - 1;
+  }
+
+  /**
+   * @param id ID of a node
+   * @return the node
+   */
+  ClassNode getNode(int id)
+  {
+    return page(id).nodes[slot(id)];
+  }
+
+  /**
+   * @return successors of all nodes with kinds of dependency
+   */
+  NeighbourTable getSuccessors()
+  {
+    return successors;
+  }
+
+  /**
+   * @return predecessors of all nodes
+   */
+  NeighbourTable getPredecessors()
+  {
+    return predecessors;
+  }
+
+  /**
+   * @param table successors or predecessors
+   * @param id ID of a node
+   * @return read-only list reflecting the current neighbours of that node
+   */
+  List<ClassNode> getNeighbours(NeighbourTable table, int id)
+  {
+    return new Neighbours(table, id);
+  }
+
+  /**
+   * @param id ID of a node
+   * @return names of classes referenced but not found, empty list if none have been added
+   */
+  Collection<String> getMissingDependencies(int id)
+  {
+    return getNames(page(id).missingDependencies, id);
+  }
+
+  /**
+   * @param id ID of a node
+   * @param name class referenced but not found
+   */
+  void addMissingDependency(int id, String name)
+  {
+    addName(page(id).missingDependencies, id, name);
+  }
+
+  /**
+   * @param id ID of a node
+   * @return names of referenced JDK classes, empty list if none have been added
+   */
+  Collection<String> getPlatformDependencies(int id)
+  {
+    return getNames(page(id).platformDependencies, id);
+  }
+
+  /**
+   * @param id ID of a node
+   * @param name referenced JDK class
+   */
+  void addPlatformDependency(int id, String name)
+  {
+    addName(page(id).platformDependencies, id, name);
+  }
+
+  /**
+   * @param id ID of a node
+   */
+  void removeDependencyNames(int id)
+  {
+    Page page = page(id);
+    page.missingDependencies[slot(id)] = null;
+    page.platformDependencies[slot(id)] = null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Collection<String> getNames(Object[] slots, int id)
+  {
+    Object result = slots[slot(id)];
+    return result == null ? Collections.emptyList() : (Collection<String>)result;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void addName(Object[] slots, int id, String name)
+  {
+    if (slots[slot(id)] == null)
+    {
+      slots[slot(id)] = new ArrayList<>(1);
+    }
+    ((Collection<String>)slots[slot(id)]).add(name);
+  }
+
+  /**
+   * Read-only view of the neighbours of one node, created on each request because it costs far less than
+   * holding one per node.
+   */
+  private final class Neighbours extends AbstractList<ClassNode> implements RandomAccess
+  {
+
+    private final NeighbourTable table;
+
+    private final int id;
+
+    Neighbours(NeighbourTable table, int id)
+    {
+      this.table = table;
+      this.id = id;
+    }
+
+    @Override
+    public ClassNode get(int index)
+    {
+      return getNode(table.get(id, index));
+    }
+
+    @Override
+    public int size()
+    {
+      return table.size(id);
+    }
+
+    @Override
+    public boolean contains(Object o)
+    {
+      return indexOf(o) >= 0;
+    }
+
+    @Override
+    public int indexOf(Object o)
+    {
+      if (o instanceof ClassNode && ((ClassNode)o).getStore() == NodeStore.this)
+      {
+        return Math.max(-1, table.find(id, ((ClassNode)o).getId()));
+      }
+      return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o)
+    {
+      return indexOf(o);
+    }
+  }
+}
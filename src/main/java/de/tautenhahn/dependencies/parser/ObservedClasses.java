@@ -0,0 +1,115 @@
+package de.tautenhahn.dependencies.parser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+
+/**
+ * Classes which have been loaded by a running application as recorded by {@link ObservingAgent}, together
+ * with their dependencies as far as they have been parsed. Covers classes which are only instantiated by
+ * reflection or via service loader and classes generated at runtime, which static analysis cannot see.
+ *
+ * @author TT
+ */
+public final class ObservedClasses
+{
+
+  private static final int MAGIC = 0x474B4F43; // "GKOC"
+
+  private static final int VERSION = 1;
+
+  private final ArchiveContent content;
+
+  /**
+   * Creates immutable instance.
+   *
+   * @param content observed classes, classes which have not been parsed have no dependencies
+   */
+  ObservedClasses(ArchiveContent content)
+  {
+    this.content = content;
+  }
+
+  /**
+   * Reads a file written by the agent.
+   *
+   * @param file file name given as agent argument
+   * @return new instance
+   * @throws IOException in case of streaming problems or unsupported format
+   */
+  public static ObservedClasses read(Path file) throws IOException
+  {
+    try (InputStream insRes = Files.newInputStream(file);
+      DataInputStream in = new DataInputStream(new BufferedInputStream(insRes)))
+    {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION)
+      {
+        throw new IOException("unsupported format in " + file);
+      }
+      return new ObservedClasses(ArchiveContent.read(in));
+    }
+  }
+
+  /**
+   * Writes content into a temporary file which is then moved to the target file.
+   *
+   * @param file target file
+   * @throws IOException in case of streaming problems
+   */
+  void write(Path file) throws IOException
+  {
+    Path dir = file.toAbsolutePath().getParent();
+    Path temp = Files.createTempFile(dir, "observed", ".tmp");
+    try (OutputStream outRes = Files.newOutputStream(temp);
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outRes)))
+    {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      content.write(out);
+    }
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * @return names of the loaded classes
+   */
+  public Set<String> getClassNames()
+  {
+    Set<String> result = new HashSet<>();
+    for ( int i = 0 ; i < content.getNumberClasses() ; i++ )
+    {
+      result.add(content.getClassName(i));
+    }
+    return Collections.unmodifiableSet(result);
+  }
+
+  /**
+   * Returns the classes which are needed at runtime, namely the loaded classes and the classes they depend
+   * on. The latter matters for classes generated at runtime, for instance dynamic proxies.
+   *
+   * @return class names
+   */
+  public Set<String> getNeededClassNames()
+  {
+    Set<String> result = new HashSet<>(getClassNames());
+    for ( int i = 0 ; i < content.getNumberClasses() ; i++ )
+    {
+      for ( int dep : content.getDependencies(i) )
+      {
+        result.add(content.getName(dep));
+      }
+    }
+    return Collections.unmodifiableSet(result);
+  }
+}
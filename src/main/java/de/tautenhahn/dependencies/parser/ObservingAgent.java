@@ -0,0 +1,184 @@
+package de.tautenhahn.dependencies.parser;
+
+import java.io.IOException;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Java agent which records the classes loaded by an application, for instance during a load test. Start the
+ * application with "-javaagent:GordianKnotCore.jar=observed.bin" to get the file "observed.bin" written
+ * when the JVM exits. Read it with {@link ObservedClasses#read(Path)}. <br>
+ * Class loading is never blocked: the transformer only puts the class file into a bounded queue which is
+ * parsed by a background thread of low priority. If the queue is full, only the class name is recorded.
+ * Classes of the boot class loader, namely the JDK, are not recorded. See ObservingAgentBenchmark for the
+ * cost added to class loading. <br>
+ * The agent uses only classes of the core jar which do not log, so it needs none of the libraries listed in
+ * the manifest, in particular no slf4j binding, and does not interfere with the logging of the application.
+ *
+ * @author TT
+ */
+public final class ObservingAgent implements ClassFileTransformer
+{
+
+  private static final int QUEUE_SIZE = 4096;
+
+  private final BlockingQueue<Object[]> loaded = new ArrayBlockingQueue<>(QUEUE_SIZE);
+
+  private final Queue<String> notParsed = new ConcurrentLinkedQueue<>();
+
+  private final SymbolTable symbols = new SymbolTable();
+
+  private final Map<Integer, int[]> dependencies = new ConcurrentHashMap<>();
+
+  private final Map<Integer, Long> hashes = new ConcurrentHashMap<>();
+
+  private final Thread parser = new Thread(this::parseAll, "GordianKnot observer");
+
+  private volatile boolean running = true;
+
+  /**
+   * Creates instance and starts the parser thread.
+   */
+  ObservingAgent()
+  {
+    parser.setDaemon(true);
+    parser.setPriority(Thread.MIN_PRIORITY);
+    parser.start();
+  }
+
+  /**
+   * Entry point when started with the application.
+   *
+   * @param args name of the file to write, default is "observed-classes.bin"
+   * @param inst provided by JVM
+   */
+  public static void premain(String args, Instrumentation inst)
+  {
+    Path output = Paths.get(args == null || args.isEmpty() ? "observed-classes.bin" : args);
+    ObservingAgent agent = new ObservingAgent();
+    inst.addTransformer(agent);
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> agent.writeResult(output)));
+  }
+
+  /**
+   * Entry point when attached to a running application. Classes loaded before are not recorded.
+   *
+   * @param args see {@link #premain(String, Instrumentation)}
+   * @param inst provided by JVM
+   */
+  public static void agentmain(String args, Instrumentation inst)
+  {
+    premain(args, inst);
+  }
+
+  /**
+   * Only records the class, never changes it.
+   */
+  @Override
+  public byte[] transform(ClassLoader loader,
+                          String className,
+                          Class<?> classBeingRedefined,
+                          ProtectionDomain protectionDomain,
+                          byte[] classfileBuffer)
+  {
+    if (loader != null && className != null && classBeingRedefined == null
+        && !loaded.offer(new Object[]{className, classfileBuffer}))
+    {
+      notParsed.add(className);
+    }
+    return null;
+  }
+
+  private void parseAll()
+  {
+    try
+    {
+      while (running || !loaded.isEmpty())
+      {
+        Object[] entry = loaded.poll(100, TimeUnit.MILLISECONDS);
+        if (entry != null)
+        {
+          parse((String)entry[0], (byte[])entry[1]);
+        }
+      }
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void parse(String internalName, byte[] content)
+  {
+    String className = internalName.replace('/', '.');
+    try
+    {
+      ByteBuffer buf = ByteBuffer.wrap(content);
+      ClassAndDependencyInfo info = ClassAndDependencyInfo.parse(buf, className, symbols);
+      dependencies.put(info.getClassId(), info.getDependencyIds());
+      hashes.put(info.getClassId(), ContentHash.of(buf));
+    }
+    catch (RuntimeException e)
+    {
+      // class file format not supported, still record that the class was loaded
+      dependencies.putIfAbsent(symbols.intern(className), new int[0]);
+    }
+  }
+
+  /**
+   * Stops the parser after the queue is empty and returns the recorded classes.
+   *
+   * @return recorded classes
+   * @throws InterruptedException if interrupted while waiting for the parser
+   */
+  ObservedClasses stop() throws InterruptedException
+  {
+    running = false;
+    parser.join();
+    for ( String name = notParsed.poll() ; name != null ; name = notParsed.poll() )
+    {
+      dependencies.putIfAbsent(symbols.intern(name.replace('/', '.')), new int[0]);
+    }
+    List<Map.Entry<Integer, int[]>> entries = new ArrayList<>(dependencies.entrySet());
+    int[] classes = new int[entries.size()];
+    int[][] deps = new int[entries.size()][];
+    long[] classHashes = new long[entries.size()];
+    for ( int i = 0 ; i < classes.length ; i++ )
+    {
+      classes[i] = entries.get(i).getKey();
+      deps[i] = entries.get(i).getValue();
+      classHashes[i] = hashes.getOrDefault(classes[i], 0L);
+    }
+    return new ObservedClasses(ArchiveContent.of(symbols, classes, deps, classHashes));
+  }
+
+  private void writeResult(Path output)
+  {
+    try
+    {
+      stop().write(output);
+    }
+    catch (IOException e)
+    {
+      System.err.println("cannot write observed classes to " + output + ": " + e); // NOPMD no logging here
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package de.tautenhahn.dependencies.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+
+/**
+ * Result of parsing a class, kept by the scanner until all classes are known.
+ *
+ * @author TT
+ */
+final class ParsedClass
+{
+
+  final ClassNode node;
+
+  final int classId;
+
+  /** null if class has not been parsed yet */
+  int[] dependencies;
+
+  /** kinds of each dependency, null if not recorded */
+  byte[] kinds;
+
+  /** IDs of string constants which may name a class, null if not recorded */
+  int[] classNameStrings;
+
+  /** hash of the class file, 0 if class has not been parsed yet */
+  long hash;
+
+  /** position in spill file if dependencies are {@link ParsedClassQueue#SPILLED} */
+  long spilledAt;
+
+  int numberSpilled;
+
+  /** where to read the class file from if it is needed */
+  ContentSource source;
+
+  /** position of the class path entry, decides which one of several classes with same name is used */
+  int rank;
+
+  /**
+   * Provides the content of a class file which has not been parsed yet.
+   */
+  @FunctionalInterface
+  interface ContentSource
+  {
+
+    ByteBuffer read() throws IOException;
+  }
+
+  /**
+   * Creates instance for a parsed class.
+   *
+   * @param node node of the class
+   * @param classId ID of the class name
+   * @param hash hash of the class file
+   * @param dependencies IDs of referenced class names
+   */
+  ParsedClass(ClassNode node, int classId, long hash, int... dependencies)
+  {
+    this.node = node;
+    this.classId = classId;
+    this.hash = hash;
+    this.dependencies = dependencies;
+  }
+
+  /**
+   * Creates instance for a class to parse on demand.
+   *
+   * @param node node of the class
+   * @param classId ID of the class name
+   * @param source provides the class file
+   */
+  ParsedClass(ClassNode node, int classId, ContentSource source)
+  {
+    this.node = node;
+    this.classId = classId;
+    this.source = source;
+  }
+}
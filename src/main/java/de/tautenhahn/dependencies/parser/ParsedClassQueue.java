@@ -0,0 +1,152 @@
+package de.tautenhahn.dependencies.parser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Parsed classes waiting to be linked. If a memory budget is given and the dependency lists held in memory
+ * exceed it, they are written to a {@link DependencySpill} and read back while linking. Classes may be added
+ * by several threads concurrently.
+ *
+ * @author TT
+ */
+final class ParsedClassQueue
+{
+
+  private static final Logger LOG = LoggerFactory.getLogger(ParsedClassQueue.class);
+
+  /** marks dependencies which have been written to the spill file */
+  static final int[] SPILLED = new int[0];
+
+  private final Queue<ParsedClass> parsedClasses = new ConcurrentLinkedQueue<>();
+
+  /** parsed classes with dependencies in memory, only used if a memory budget is given */
+  private final Queue<ParsedClass> notSpilled = new ConcurrentLinkedQueue<>();
+
+  private long memoryBudget = Long.MAX_VALUE;
+
+  private final AtomicLong heldDependencyBytes = new AtomicLong();
+
+  private DependencySpill spill;
+
+  /**
+   * @param bytes approximate size of the dependency lists kept in memory
+   */
+  void setMemoryBudget(long bytes)
+  {
+    memoryBudget = bytes;
+  }
+
+  /**
+   * Registers a class. If the dependencies held in memory exceed the budget, they are written to the spill
+   * file.
+   *
+   * @param parsed parsed class or class to parse on demand
+   */
+  void add(ParsedClass parsed)
+  {
+    parsedClasses.add(parsed);
+    if (memoryBudget < Long.MAX_VALUE && parsed.dependencies != null && parsed.dependencies.length > 0)
+    {
+      notSpilled.add(parsed);
+      if (heldDependencyBytes.addAndGet(getSize(parsed.dependencies)) > memoryBudget)
+      {
+        spillDependencies();
+      }
+    }
+  }
+
+  private static long getSize(int... dependencies)
+  {
+    return 16 + 4L * dependencies.length;
+  }
+
+  /**
+   * Only one thread spills at a time, the others keep parsing.
+   */
+  private synchronized void spillDependencies()
+  {
+    try
+    {
+      if (spill == null)
+      {
+        spill = new DependencySpill();
+      }
+      long released = 0;
+      for ( ParsedClass p = notSpilled.poll() ; p != null ; p = notSpilled.poll() )
+      {
+        p.spilledAt = spill.append(p.dependencies);
+        p.numberSpilled = p.dependencies.length;
+        released += getSize(p.dependencies);
+        p.dependencies = SPILLED;
+      }
+      LOG.debug("spilled {} bytes of dependencies", released);
+      heldDependencyBytes.addAndGet(-released);
+    }
+    catch (IOException e)
+    {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * @param parsed class taken from this queue
+   * @return dependencies of a parsed class, read from spill file if necessary
+   */
+  int[] getDependencies(ParsedClass parsed)
+  {
+    return parsed.dependencies == SPILLED ? spill.read(parsed.spilledAt, parsed.numberSpilled)
+      : parsed.dependencies;
+  }
+
+  /**
+   * Removes the parsed classes from the queue, makes spilled dependencies readable.
+   *
+   * @return classes added since last call
+   */
+  synchronized ParsedClass[] takeAll()
+  {
+    ParsedClass[] result = parsedClasses.toArray(new ParsedClass[0]);
+    parsedClasses.clear();
+    notSpilled.clear();
+    heldDependencyBytes.set(0);
+    if (spill != null)
+    {
+      try
+      {
+        spill.finish();
+      }
+      catch (IOException e)
+      {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Deletes the spill file after linking.
+   */
+  synchronized void release()
+  {
+    if (spill != null)
+    {
+      try
+      {
+        spill.close();
+      }
+      catch (IOException e)
+      {
+        LOG.warn("cannot delete spill file", e);
+      }
+      spill = null;
+    }
+  }
+}
@@ -0,0 +1,140 @@
+package de.tautenhahn.dependencies.parser;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+
+/**
+ * Parse result of some part of a class path, not linked yet. Holds the node name of each parsed class in
+ * addition to the class names and dependencies, as well as the classes registered by descriptors found in
+ * that part. Partial results of several parts of the same class path can
+ * be merged by {@link ProjectScanner#merge(ParsedClassPath, java.util.Collection)}.
+ *
+ * @author TT
+ */
+final class PartialScan
+{
+
+  private static final int MAGIC = 0x474B5053; // "GKPS"
+
+  private static final int VERSION = 2;
+
+  private final String[] nodeNames;
+
+  private final ArchiveContent content;
+
+  private final Map<String, Set<String>> registeredClasses;
+
+  /**
+   * Creates immutable instance.
+   *
+   * @param nodeNames for each class the full name of its node
+   * @param content classes and dependencies in same order
+   * @param registeredClasses names of registered classes with the locations of the registering files
+   */
+  PartialScan(String[] nodeNames, ArchiveContent content, Map<String, Set<String>> registeredClasses)
+  {
+    if (nodeNames.length != content.getNumberClasses())
+    {
+      throw new IllegalArgumentException("need one node name per class");
+    }
+    this.nodeNames = nodeNames;
+    this.content = content;
+    this.registeredClasses = registeredClasses;
+  }
+
+  /**
+   * @param index number of class
+   * @return name of the node representing that class
+   */
+  String getNodeName(int index)
+  {
+    return nodeNames[index];
+  }
+
+  /**
+   * @return classes and their dependencies
+   */
+  ArchiveContent getContent()
+  {
+    return content;
+  }
+
+  /**
+   * @return names of the registered classes, each with the locations of the registering files
+   */
+  Map<String, Set<String>> getRegisteredClasses()
+  {
+    return Collections.unmodifiableMap(registeredClasses);
+  }
+
+  /**
+   * Writes content in binary format.
+   *
+   * @param out destination
+   * @throws IOException in case of streaming problems
+   */
+  void write(DataOutput out) throws IOException
+  {
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeInt(nodeNames.length);
+    for ( String name : nodeNames )
+    {
+      out.writeUTF(name);
+    }
+    content.write(out);
+    out.writeInt(registeredClasses.size());
+    for ( Map.Entry<String, Set<String>> entry : registeredClasses.entrySet() )
+    {
+      out.writeUTF(entry.getKey());
+      out.writeInt(entry.getValue().size());
+      for ( String location : entry.getValue() )
+      {
+        out.writeUTF(location);
+      }
+    }
+  }
+
+  /**
+   * Reads content written by {@link #write(DataOutput)}.
+   *
+   * @param in source
+   * @return new instance
+   * @throws IOException in case of streaming problems or unsupported format
+   */
+  static PartialScan read(DataInput in) throws IOException
+  {
+    if (in.readInt() != MAGIC || in.readInt() != VERSION)
+    {
+      throw new IOException("unsupported format");
+    }
+    String[] nodeNames = new String[in.readInt()];
+    for ( int i = 0 ; i < nodeNames.length ; i++ )
+    {
+      nodeNames[i] = in.readUTF();
+    }
+    ArchiveContent content = ArchiveContent.read(in);
+    if (content.getNumberClasses() != nodeNames.length)
+    {
+      throw new IOException("corrupt content, number of node names does not match");
+    }
+    Map<String, Set<String>> registeredClasses = new TreeMap<>();
+    for ( int i = in.readInt() ; i > 0 ; i-- )
+    {
+      Set<String> locations = new HashSet<>();
+      registeredClasses.put(in.readUTF(), locations);
+      for ( int j = in.readInt() ; j > 0 ; j-- )
+      {
+        locations.add(in.readUTF());
+      }
+    }
+    return new PartialScan(nodeNames, content, registeredClasses);
+  }
+}
@@ -1,18 +1,49 @@
 package de.tautenhahn.dependencies.parser;
 
-import java.io.FileInputStream;
-import java.io.FilterInputStream;
+import static de.tautenhahn.dependencies.parser.EntryNames.isArchive;
+import static de.tautenhahn.dependencies.parser.EntryNames.isClassEntry;
+import static de.tautenhahn.dependencies.parser.EntryNames.isClassResourceName;
+import static de.tautenhahn.dependencies.parser.EntryNames.isFile;
+import static de.tautenhahn.dependencies.parser.EntryNames.isNestedArchive;
+import static de.tautenhahn.dependencies.parser.EntryNames.toArchiveNodeName;
+import static de.tautenhahn.dependencies.parser.EntryNames.toResourceName;
+
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.Hashtable;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 import org.slf4j.Logger;
@@ -27,12 +58,24 @@ import org.slf4j.LoggerFactory;
 public class ProjectScanner
 {
 
-  // TODO: create some parsing report which contains duplicate classes.
   private static final Logger LOG = LoggerFactory.getLogger(ProjectScanner.class);
 
-  private final Map<String, ClassNode> classFirstSeenAt = new Hashtable<>();
+  /** assumed size of a class file in an archive to compare directories with archives */
+  private static final long BYTES_PER_CLASS_FILE = 2048;
+
+  /** directories with less class files are parsed without pipeline */
+  private static final int PIPELINE_MIN_FILES = 16;
+
+  /** classification of classes without node */
+  private static final byte IGNORED = 1;
+
+  private static final byte MISSING = 2;
 
-  private final Map<ClassNode, Collection<String>> deps = new Hashtable<>();
+  private static final byte PLATFORM = 3;
+
+  private final SymbolTable symbols = new SymbolTable();
+
+  private final ParsedClassQueue parsedClasses = new ParsedClassQueue();
 
   private ParsedClassPath classPath;
 
@@ -40,6 +83,70 @@ public class ProjectScanner
 
   private final Filter filter;
 
+  private boolean randomAccessArchives = true;
+
+  private ScanCache cache;
+
+  private ClassNode[] classFirstSeenAt;
+
+  /** how dependencies to a class without node are handled, one of the constants above or 0 if not known yet */
+  private byte[] classification;
+
+  private JdkIndex jdkIndex;
+
+  private ClassPathConflicts conflicts;
+
+  private boolean parseOnDemand;
+
+  private boolean dependencyKinds;
+
+  /** referenced and declared members, null if not recorded */
+  private MemberIndex memberIndex;
+
+  /** null if reflective references are not detected */
+  private ReflectiveReferences reflectiveReferences;
+
+  /** tables for archive-local class names, re-used because their content is copied into the results */
+  private final Queue<SymbolTable> spareArchiveSymbols = new ConcurrentLinkedQueue<>();
+
+  /** reads and parses the class files of big directories, created when first needed during a scan */
+  private ClassFilePipeline pipeline;
+
+  /** archives with classes to parse on demand, closed after linking */
+  private final Queue<ZipFile> openArchives = new ConcurrentLinkedQueue<>();
+
+  private final Map<Path, Duration> entryTimes = new ConcurrentHashMap<>();
+
+  private final RegisteredClasses registeredClasses = new RegisteredClasses();
+
+  private volatile SubmissionPublisher<ScanEvent> events;
+
+  /** position in class path by name of the top level node */
+  private final Map<String, Integer> entryRank = new HashMap<>();
+
+
+  /**
+   * Class file parsed again but not yet put into the graph.
+   */
+  private final class ChangedClass
+  {
+
+    final Node existing;
+
+    final String nodeName;
+
+    final long hash;
+
+    final ClassAndDependencyInfo info;
+
+    ChangedClass(Node existing, String nodeName, ByteBuffer content, String className)
+    {
+      this.existing = existing;
+      this.nodeName = nodeName;
+      hash = ContentHash.of(content);
+      info = parseInfo(content, className);
+    }
+  }
 
   /**
    * Creates instance for one-time use.
@@ -60,139 +167,988 @@ public class ProjectScanner
    */
   public ContainerNode scan(ParsedClassPath pathToScan)
   {
-    classPath = pathToScan;
-    classPath.getEntries()
-             .stream()
-             .parallel()
-             .filter(p -> !filter.isIgnoredSource(p.toString()))
-             .forEach(this::handleInput);
-    for ( Entry<ClassNode, Collection<String>> entry : deps.entrySet() )
+    List<Path> entries = prepare(pathToScan);
+    try
     {
-      entry.getValue()
-           .stream()
-           .map(n -> n.replace('/', '.'))
-           .forEach(n -> registerDependency(entry.getKey(), n));
+      scanLargestFirst(entries);
+      link();
+    }
+    finally
+    {
+      closeArchives();
+      closePipeline();
+      parsedClasses.release();
     }
     return root;
   }
 
-  private void registerDependency(ClassNode node, String dependsOnClass)
+  /**
+   * Parses some entries of a class path without linking them. Classes to parse on demand are parsed as well
+   * because the classes needing them are not known yet.
+   *
+   * @param pathToScan complete class path, defines the node names
+   * @param part entries to parse
+   * @return parse result which can be merged with the results of other parts
+   */
+  PartialScan scanPart(ParsedClassPath pathToScan, Collection<Path> part)
+  {
+    prepare(pathToScan);
+    try
+    {
+      scanLargestFirst(new ArrayList<>(part));
+      ParsedClass[] parsed = parsedClasses.takeAll();
+      Arrays.stream(parsed).parallel().filter(p -> p.dependencies == null).forEach(this::parseOnDemand);
+      String[] nodeNames = Arrays.stream(parsed).map(p -> p.node.getName()).toArray(String[]::new);
+      int[] classes = Arrays.stream(parsed).mapToInt(p -> p.classId).toArray();
+      int[][] dependencies = Arrays.stream(parsed).map(parsedClasses::getDependencies).toArray(int[][]::new);
+      long[] hashes = Arrays.stream(parsed).mapToLong(p -> p.hash).toArray();
+      return new PartialScan(nodeNames, ArchiveContent.of(symbols, classes, dependencies, hashes),
+                             registeredClasses.asMap());
+    }
+    finally
+    {
+      closeArchives();
+      closePipeline();
+      parsedClasses.release();
+    }
+  }
+
+  /**
+   * Creates the graph from the partial results of several parts of a class path. The partial results hold
+   * the dependencies and registered classes only.
+   *
+   * @param pathToScan complete class path
+   * @param parts parse results of the parts
+   * @return root node of the created graph
+   * @throws UnsupportedOperationException if dependency kinds, members or reflective references are
+   *           requested, because the partial results do not contain them
+   */
+  ContainerNode merge(ParsedClassPath pathToScan, Collection<PartialScan> parts)
   {
-    ClassNode succ = classFirstSeenAt.get(dependsOnClass);
-    if (succ == null)
+    if (needsMoreThanDependencies())
+    {
+      throw new UnsupportedOperationException("partial scans hold dependencies only, cannot merge "
+                                              + "dependency kinds, members or reflective references");
+    }
+    prepare(pathToScan);
+    try
     {
-      if (!filter.isIgnoredClass(dependsOnClass))
+      for ( PartialScan part : parts )
       {
-        node.getMissingDependencies().add(dependsOnClass);
+        ArchiveContent content = part.getContent();
+        int[] globalIds = toGlobalIds(content);
+        for ( int i = 0 ; i < content.getNumberClasses() ; i++ )
+        {
+          parsedClasses.add(new ParsedClass(root.createLeaf(part.getNodeName(i)),
+                                         symbols.find(content.getClassName(i)),
+                                         content.getHash(i),
+                                         toGlobalIds(content.getDependencies(i), globalIds)));
+        }
+        part.getRegisteredClasses().forEach(registeredClasses::add);
       }
+      link();
     }
-    else
+    finally
     {
-      node.addSuccessor(succ);
+      parsedClasses.release();
     }
+    return root;
   }
 
-  private void handleInput(Path path)
+  private int[] toGlobalIds(ArchiveContent content)
+  {
+    int[] result = new int[content.getNumberNames()];
+    for ( int i = 0 ; i < result.length ; i++ )
+    {
+      result[i] = symbols.intern(content.getName(i));
+    }
+    return result;
+  }
+
+  private static int[] toGlobalIds(int[] localIds, int... globalIds)
+  {
+    int[] result = new int[localIds.length];
+    for ( int i = 0 ; i < localIds.length ; i++ )
+    {
+      result[i] = globalIds[localIds[i]];
+    }
+    return result;
+  }
+
+  private List<Path> prepare(ParsedClassPath pathToScan)
+  {
+    classPath = pathToScan;
+    List<Path> entries = classPath.getEntries()
+                                  .stream()
+                                  .filter(p -> !filter.isIgnoredSource(p.toString()))
+                                  .collect(Collectors.toList());
+    for ( int i = 0 ; i < entries.size() ; i++ )
+    {
+      entryRank.putIfAbsent(toEntryNodeName(entries.get(i)), i);
+    }
+    return entries;
+  }
+
+  /**
+   * Handles the class path entries by estimated cost in descending order, so a big archive late in the class
+   * path does not leave a long single-threaded tail. Each worker of the common fork join pool takes the next
+   * entry when done, big archives are split further by parsing their entries in parallel. Idle workers help
+   * with those tasks.
+   */
+  private void scanLargestFirst(List<Path> entries)
+  {
+    Map<Path, Long> cost = entries.parallelStream()
+                                  .distinct()
+                                  .collect(Collectors.toConcurrentMap(p -> p, ProjectScanner::estimateCost));
+    Queue<Path> todo = new ConcurrentLinkedQueue<>();
+    entries.stream()
+           .distinct()
+           .sorted(Comparator.comparing(cost::get, Comparator.reverseOrder()))
+           .forEach(todo::add);
+    entryTimes.clear();
+    int workers = Math.max(1, Math.min(entries.size(), ForkJoinPool.getCommonPoolParallelism()));
+    IntStream.range(0, workers).parallel().forEach(i -> {
+      for ( Path entry = todo.poll() ; entry != null ; entry = todo.poll() )
+      {
+        handleTimed(entry, cost.get(entry));
+      }
+    });
+    LOG.debug("time per class path entry: {}", entryTimes);
+  }
+
+  private void handleTimed(Path entry, long cost)
+  {
+    long start = System.nanoTime();
+    publish(() -> ScanEvent.forEntry(ScanEvent.Kind.ENTRY_STARTED, entry));
+    handleInput(entry, cost);
+    entryTimes.put(entry, Duration.ofNanos(System.nanoTime() - start));
+    publish(() -> ScanEvent.forEntry(ScanEvent.Kind.ENTRY_FINISHED, entry));
+  }
+
+  /**
+   * @param entry class path entry
+   * @return size of an archive or number of classes in a directory times the size of a typical archived class
+   */
+  static long estimateCost(Path entry)
   {
-    LOG.debug("scanning {}", path);
     try
     {
-      if (isFile(path, ".jar"))
+      if (isArchive(entry))
       {
-        ContainerNode jarNode = root.createInnerChild("jar:" + classPath.getName(path).replace(".", "_"));
-        try (ZipInputStream zip = new ZipInputStream(new FileInputStream(path.toFile())))
+        return Files.size(entry);
+      }
+      if (Files.isDirectory(entry))
+      {
+        try (Stream<Path> fileTreeRes = Files.walk(entry))
         {
-          ZipEntry entry = zip.getNextEntry();
-          while (entry != null)
+          return fileTreeRes.filter(p -> isFile(p, ".class")).count() * BYTES_PER_CLASS_FILE;
+        }
+      }
+    }
+    catch (IOException | UncheckedIOException e)
+    {
+      LOG.warn("cannot estimate size of {}", entry, e);
+    }
+    return 0;
+  }
+
+  /**
+   * @return classes found more than once and split packages of the last scan, null before the first scan
+   */
+  public ClassPathConflicts getConflicts()
+  {
+    return conflicts;
+  }
+
+  /**
+   * @return names of the classes registered by service files, Spring factories or web.xml, each with the
+   *         locations of the registering files
+   */
+  public Map<String, Set<String>> getRegisteredClasses()
+  {
+    return registeredClasses.asMap();
+  }
+
+  /**
+   * @return time needed to handle each class path entry during the last scan, without linking
+   */
+  public Map<Path, Duration> getEntryTimes()
+  {
+    return Collections.unmodifiableMap(entryTimes);
+  }
+
+  private synchronized ClassFilePipeline getPipeline()
+  {
+    if (pipeline == null)
+    {
+      pipeline = new ClassFilePipeline();
+    }
+    return pipeline;
+  }
+
+  private synchronized void closePipeline()
+  {
+    if (pipeline != null)
+    {
+      pipeline.close();
+      pipeline = null;
+    }
+  }
+
+  private void closeArchives()
+  {
+    for ( ZipFile zip : openArchives )
+    {
+      try
+      {
+        zip.close();
+      }
+      catch (IOException e)
+      {
+        LOG.warn("cannot close {}", zip.getName(), e);
+      }
+    }
+    openArchives.clear();
+  }
+
+  /**
+   * Joins the dependencies on the class IDs in parallel. If a class is found several times, the one from the
+   * first class path entry is used and the others are listed as conflicts. The index is kept for later
+   * updates.
+   */
+  private void link()
+  {
+    ParsedClass[] parsed = parsedClasses.takeAll();
+    AtomicReferenceArray<ParsedClass> first = new AtomicReferenceArray<>(symbols.size());
+    Arrays.stream(parsed).parallel().forEach(p -> {
+      p.rank = getEntryRank(p.node);
+      first.accumulateAndGet(p.classId, p, ConflictDetector::earlier);
+    });
+    if (parseOnDemand)
+    {
+      parseReachable(parsed, first);
+    }
+    if (reflectiveReferences != null)
+    {
+      Arrays.stream(parsed)
+            .parallel()
+            .filter(p -> p.classNameStrings != null)
+            .forEach(p -> addReflectiveDependencies(p, first));
+    }
+    conflicts = ConflictDetector.find(parsed, first);
+    classFirstSeenAt = new ClassNode[symbols.size()];
+    for ( int i = 0 ; i < first.length() ; i++ )
+    {
+      classFirstSeenAt[i] = Optional.ofNullable(first.get(i)).map(p -> p.node).orElse(null);
+    }
+    classification = new byte[classFirstSeenAt.length];
+    addDependencies(Arrays.stream(parsed).filter(p -> p.dependencies != null).toArray(ParsedClass[]::new));
+  }
+
+  /**
+   * Parses the classes not parsed yet as far as they are reachable from the parsed classes, one wave of
+   * newly reached classes at a time. Names found only now have IDs not covered by the index, they cannot
+   * denote classes of the class path because all those names are registered already. Classes named by string
+   * constants are added to the dependencies of each wave before following them, so classes reached by
+   * reflection only are parsed as well.
+   */
+  private void parseReachable(ParsedClass[] parsed, AtomicReferenceArray<ParsedClass> first)
+  {
+    BitSet requested = new BitSet();
+    List<ParsedClass> wave = Arrays.stream(parsed)
+                                   .filter(p -> p.dependencies != null)
+                                   .collect(Collectors.toList());
+    while (!wave.isEmpty())
+    {
+      if (reflectiveReferences != null)
+      {
+        wave.parallelStream()
+            .filter(p -> p.classNameStrings != null)
+            .forEach(p -> addReflectiveDependencies(p, first));
+      }
+      List<ParsedClass> next = new ArrayList<>();
+      for ( ParsedClass p : wave )
+      {
+        for ( int dependsOnClass : parsedClasses.getDependencies(p) )
+        {
+          ParsedClass target = dependsOnClass < first.length() ? first.get(dependsOnClass) : null;
+          if (target != null && target.dependencies == null && !requested.get(dependsOnClass))
           {
-            handleZipEntry(jarNode, zip, entry);
-            entry = zip.getNextEntry();
+            requested.set(dependsOnClass);
+            next.add(target);
           }
         }
       }
-      else if (Files.isDirectory(path))
+      LOG.debug("parsing {} classes on demand", next.size());
+      next.parallelStream().forEach(this::parseOnDemand);
+      wave = next;
+    }
+  }
+
+  private void parseOnDemand(ParsedClass stub)
+  {
+    try
+    {
+      ByteBuffer content = stub.source.read();
+      stub.hash = ContentHash.of(content);
+      ClassAndDependencyInfo info = parseInfo(content, stub.node.getClassName());
+      stub.kinds = info.getDependencyKinds();
+      stub.classNameStrings = info.getClassNameStrings();
+      addMembers(stub.node, info);
+      stub.dependencies = info.getDependencyIds();
+    }
+    catch (IOException e)
+    {
+      LOG.error("cannot read {}", stub.node.getName(), e);
+      stub.dependencies = new int[0];
+    }
+    stub.source = null;
+    publishClass(stub.node, stub.dependencies);
+  }
+
+  private void addReflectiveDependencies(ParsedClass parsed, AtomicReferenceArray<ParsedClass> first)
+  {
+    reflectiveReferences.addDependencies(parsed, parsedClasses.getDependencies(parsed), first);
+  }
+
+  private int getEntryRank(Node node)
+  {
+    Node topLevel = node;
+    while (topLevel.getParent() != root)
+    {
+      topLevel = topLevel.getParent();
+    }
+    return entryRank.getOrDefault(topLevel.getSimpleName(), Integer.MAX_VALUE);
+  }
+
+  /**
+   * Links the parsed classes without locking. Each thread handles the successors of its own nodes, adding
+   * those of one class in one batch. The predecessors are collected by a count-then-fill pass into one array
+   * before they are handed to their nodes. Filter is asked at most once for each missing class.
+   */
+  private void addDependencies(ParsedClass... parsed)
+  {
+    AtomicIntegerArray numberPreds = new AtomicIntegerArray(classFirstSeenAt.length + 1);
+    Arrays.stream(parsed).parallel().forEach(p -> {
+      int[] dependencies = parsedClasses.getDependencies(p);
+      ClassNode[] successors = new ClassNode[dependencies.length];
+      byte[] kinds = p.kinds == null ? null : new byte[dependencies.length];
+      int numberSuccessors = 0;
+      for ( int i = 0 ; i < dependencies.length ; i++ )
+      {
+        int dependsOnClass = dependencies[i];
+        ClassNode succ = classFirstSeenAt[dependsOnClass];
+        if (succ != null)
+        {
+          if (kinds != null)
+          {
+            kinds[numberSuccessors] = p.kinds[i];
+          }
+          successors[numberSuccessors++] = succ;
+          numberPreds.incrementAndGet(dependsOnClass + 1);
+        }
+        else if (classify(dependsOnClass) == MISSING)
+        {
+          p.node.addMissingDependency(symbols.get(dependsOnClass));
+        }
+        else if (classification[dependsOnClass] == PLATFORM)
+        {
+          p.node.addPlatformDependency(symbols.get(dependsOnClass));
+        }
+      }
+      p.node.addSuccessorLeafs(successors, kinds, numberSuccessors);
+    });
+    int[] start = new int[numberPreds.length()];
+    for ( int i = 1 ; i < start.length ; i++ )
+    {
+      start[i] = start[i - 1] + numberPreds.get(i);
+    }
+    AtomicIntegerArray next = new AtomicIntegerArray(start);
+    ClassNode[] preds = new ClassNode[start[start.length - 1]];
+    Arrays.stream(parsed).parallel().forEach(p -> {
+      for ( int dependsOnClass : parsedClasses.getDependencies(p) )
       {
-        try (Stream<Path> fileTreeRes = Files.walk(path))
+        if (classFirstSeenAt[dependsOnClass] != null)
         {
-          fileTreeRes.filter(p -> isFile(p, ".class") && isClassResourceName(String.valueOf(p.getFileName())))
-                  .forEach(p -> handleClassFile(p, path));
+          preds[next.getAndIncrement(dependsOnClass)] = p.node;
         }
       }
+    });
+    IntStream.range(0, classFirstSeenAt.length)
+             .parallel()
+             .filter(i -> start[i + 1] > start[i])
+             .forEach(i -> classFirstSeenAt[i].addPredecessorLeafs(preds, start[i], start[i + 1]));
+    Arrays.stream(parsed).parallel().forEach(p -> p.node.trimLinks());
+  }
+
+  /**
+   * Parses some class files of a scanned directory again and patches the graph created by the last scan in
+   * place. Files which do not exist any more are removed from the graph, dependencies to them become missing
+   * dependencies. New classes are linked to the classes which miss them. All files are parsed before the
+   * graph is touched, so if one of them cannot be read or parsed, for instance because it is still being
+   * written, the graph stays unchanged and the exception is thrown. <br>
+   * The graph must not be read concurrently while it is patched.
+   *
+   * @param directory class path entry containing the files
+   * @param classFiles files which have been created, changed or deleted
+   * @throws UncheckedIOException if a file cannot be read
+   * @throws RuntimeException if a file is not a valid class file
+   */
+  public synchronized void update(Path directory, Collection<Path> classFiles)
+  {
+    if (classFirstSeenAt == null)
+    {
+      throw new IllegalStateException("call scan first");
+    }
+    List<ChangedClass> changed = new ArrayList<>();
+    List<ClassNode> removed = new ArrayList<>();
+    for ( Path clazz : classFiles )
+    {
+      String className = toClassName(directory, clazz);
+      String nodeName = toNodeName(directory, className);
+      if (!isClassResourceName(String.valueOf(clazz.getFileName())) || filter.isIgnoredClass(className)
+          || filter.isIgnoredSource(nodeName))
+      {
+        continue;
+      }
+      Node existing = root.find(nodeName);
+      if (Files.isRegularFile(clazz))
+      {
+        changed.add(new ChangedClass(existing, nodeName, readClassFile(clazz), className));
+      }
+      else if (existing instanceof ClassNode)
+      {
+        removed.add((ClassNode)existing);
+      }
+    }
+    for ( ChangedClass c : changed )
+    {
+      ClassNode node = c.existing instanceof ClassNode ? (ClassNode)c.existing : root.createLeaf(c.nodeName);
+      node.removeSuccessors();
+      register(node, c.info, c.hash);
+    }
+    removed.forEach(ClassNode::removeSuccessors);
+    removed.forEach(this::remove);
+    classFirstSeenAt = Arrays.copyOf(classFirstSeenAt, symbols.size());
+    classification = Arrays.copyOf(classification, classFirstSeenAt.length);
+    ParsedClass[] parsed = parsedClasses.takeAll();
+    Set<String> added = new HashSet<>();
+    for ( ParsedClass p : parsed )
+    {
+      if (classFirstSeenAt[p.classId] == null)
+      {
+        classFirstSeenAt[p.classId] = p.node;
+        added.add(p.node.getClassName());
+      }
+    }
+    addDependencies(parsed);
+    parsedClasses.release();
+    if (!added.isEmpty())
+    {
+      resolveMissing(added);
+    }
+  }
+
+  private static ByteBuffer readClassFile(Path clazz)
+  {
+    try
+    {
+      return ByteBuffer.wrap(Files.readAllBytes(clazz));
     }
     catch (IOException e)
     {
-      LOG.error("cannot read {}", path, e);
+      throw new UncheckedIOException("cannot read " + clazz, e);
+    }
+  }
+
+  private void remove(ClassNode node)
+  {
+    String className = node.getClassName();
+    for ( ClassNode pred : new ArrayList<>(node.getPredLeafs()) )
+    {
+      pred.removeSuccessor(node);
+      pred.addMissingDependency(className);
+    }
+    int classId = symbols.find(className);
+    if (classId >= 0 && classFirstSeenAt[classId] == node)
+    {
+      classFirstSeenAt[classId] = null;
+    }
+    root.remove(node);
+    if (memberIndex != null)
+    {
+      memberIndex.remove(node);
+    }
+  }
+
+  private void resolveMissing(Set<String> added)
+  {
+    root.walkCompleteSubTree()
+        .filter(n -> n instanceof ClassNode)
+        .map(n -> (ClassNode)n)
+        .filter(ClassNode::hasMissingDependencies)
+        .forEach(n -> {
+          List<ClassNode> resolved = new ArrayList<>();
+          n.getMissingDependencies().removeIf(name -> {
+            if (added.contains(name))
+            {
+              resolved.add(classFirstSeenAt[symbols.find(name)]);
+              return true;
+            }
+            return false;
+          });
+          n.addSuccessors(resolved.toArray(new ClassNode[0]), null, resolved.size());
+        });
+  }
+
+  /**
+   * @return the scanned class path entries which are directories
+   */
+  List<Path> getScannedDirectories()
+  {
+    return classPath.getEntries()
+                    .stream()
+                    .filter(p -> !filter.isIgnoredSource(p.toString()) && Files.isDirectory(p))
+                    .collect(Collectors.toList());
+  }
+
+  /**
+   * Classes of the JDK index are platform classes even if the filter ignores them. Concurrent calls may ask
+   * the filter twice but always store the same value.
+   */
+  private byte classify(int classId)
+  {
+    if (classification[classId] == 0)
+    {
+      String className = symbols.get(classId);
+      if (jdkIndex != null && jdkIndex.getModule(className) != null)
+      {
+        classification[classId] = PLATFORM;
+      }
+      else
+      {
+        classification[classId] = filter.isIgnoredClass(className) ? IGNORED : MISSING;
+      }
     }
+    return classification[classId];
   }
 
-  private void handleZipEntry(ContainerNode jarNode, ZipInputStream zip, ZipEntry entry) throws IOException
+  private void handleInput(Path path, long cost)
   {
-    if (isClassResourceName(entry.getName()))
+    LOG.debug("scanning {}", path);
+    try
     {
-      String className = entry.getName().replace(".class", "").replace('/', '.');
-      if (filter.isIgnoredClass(className))
+      if (isArchive(path))
       {
-        return;
+        ContainerNode jarNode = root.createInnerChild(toEntryNodeName(path));
+        if (parseOnDemand && !filter.isInFocus(jarNode.getName()) && indexArchive(jarNode, path))
+        {
+          LOG.debug("indexed {}", path);
+        }
+        else if (cache != null && !needsMoreThanDependencies() && isFile(path, ".jar")
+                 && handleCachedArchive(jarNode, path))
+        {
+          LOG.debug("handled {} with cache", path);
+        }
+        else if (randomAccessArchives)
+        {
+          handleArchiveInParallel(jarNode, path);
+        }
+        else
+        {
+          handleArchive(jarNode, path);
+        }
       }
-      ClassNode node = jarNode.createLeaf(className);
-      classFirstSeenAt.put(className, node);
-      try (InputStream entryContent = new NonClosingStream(zip))
+      else if (Files.isDirectory(path))
       {
-        deps.put(node, ClassAndDependencyInfo.parse(entryContent, className).getDependencies());
+        handleDirectory(path, cost);
       }
     }
+    catch (IOException e)
+    {
+      LOG.error("cannot read {}", path, e);
+    }
+  }
+
+  /**
+   * Creates the nodes for all classes of an archive without parsing them. The archive is kept open until the
+   * needed classes are parsed.
+   *
+   * @return false if the archive contains nested archives and must be parsed completely
+   */
+  private boolean indexArchive(ContainerNode jarNode, Path path) throws IOException
+  {
+    ZipFile zip = new ZipFile(path.toFile());
+    if (zip.stream().anyMatch(EntryNames::isNestedArchive))
+    {
+      zip.close();
+      return false;
+    }
+    openArchives.add(zip);
+    registeredClasses.read(jarNode.getName(), zip);
+    zip.stream().filter(this::isParsedZipEntry).forEach(e -> {
+      String className = EntryNames.toClassName(e.getName());
+      parsedClasses.add(new ParsedClass(jarNode.createLeaf(className), symbols.intern(className), () -> {
+        try (InputStream insRes = zip.getInputStream(e))
+        {
+          return ByteBuffer.wrap(insRes.readAllBytes());
+        }
+      }));
+    });
+    return true;
   }
 
-  private boolean isClassResourceName(String name)
+  private void handleArchive(ContainerNode jarNode, Path path) throws IOException
   {
-    return name.endsWith(".class") && !"module-info.class".equals(name) && !"package-info.class".equals(name);
+    try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(path)))
+    {
+      handleArchive(jarNode, zip);
+    }
   }
 
   /**
-   * Cannot close the zip stream when entry is finished.
+   * Reads an archive sequentially as stream. Nested archives are read from the same stream without
+   * extracting them.
    */
-  private static class NonClosingStream extends FilterInputStream
+  private void handleArchive(ContainerNode jarNode, ZipInputStream zip) throws IOException
   {
+    ZipEntry entry = zip.getNextEntry();
+    while (entry != null)
+    {
+      if (isParsedZipEntry(entry))
+      {
+        String className = EntryNames.toClassName(entry.getName());
+        parse(jarNode.createLeaf(className), ByteBuffer.wrap(zip.readAllBytes()), className);
+      }
+      else if (isNestedArchive(entry))
+      {
+        // not closed because that would close the outer stream as well
+        handleArchive(jarNode.createInnerChild(toArchiveNodeName(entry.getName())), new ZipInputStream(zip));
+      }
+      else if (RegisteredClasses.isDescriptor(entry))
+      {
+        registeredClasses.read(jarNode.getName(), toResourceName(entry.getName()), zip.readAllBytes());
+      }
+      entry = zip.getNextEntry();
+    }
+  }
 
-    NonClosingStream(InputStream in)
+  /**
+   * Reads the central directory first, creates the class nodes in order of the entries and then parses the
+   * entries in parallel. Parallel parsing uses the same fork join pool as the scan of the class path entries,
+   * so a big archive found late can be processed by all threads. Nested archives are started first, each of
+   * them is streamed by one thread.
+   */
+  private void handleArchiveInParallel(ContainerNode jarNode, Path path) throws IOException
+  {
+    try (ZipFile zip = new ZipFile(path.toFile()))
     {
-      super(in);
+      registeredClasses.read(jarNode.getName(), zip);
+      List<ZipEntry> entries = zip.stream()
+                                  .filter(e -> isNestedArchive(e) || isParsedZipEntry(e))
+                                  .sorted(Comparator.comparing(e -> !isNestedArchive(e)))
+                                  .collect(Collectors.<ZipEntry> toList());
+      List<Node> nodes = entries.stream()
+                                .map(e -> isNestedArchive(e)
+                                  ? jarNode.createInnerChild(toArchiveNodeName(e.getName()))
+                                  : jarNode.createLeaf(EntryNames.toClassName(e.getName())))
+                                .collect(Collectors.toList());
+      IntStream.range(0, entries.size()).parallel().forEach(i -> {
+        try (InputStream insRes = zip.getInputStream(entries.get(i)))
+        {
+          if (nodes.get(i) instanceof ContainerNode)
+          {
+            handleArchive((ContainerNode)nodes.get(i), new ZipInputStream(insRes));
+          }
+          else
+          {
+            parse((ClassNode)nodes.get(i),
+                  ByteBuffer.wrap(insRes.readAllBytes()),
+                  EntryNames.toClassName(entries.get(i).getName()));
+          }
+        }
+        catch (IOException e)
+        {
+          throw new UncheckedIOException(e);
+        }
+      });
     }
+    catch (UncheckedIOException e)
+    {
+      throw e.getCause();
+    }
+  }
 
-    @Override
-    public void close()
+  /**
+   * @return false if the archive cannot be handled with cache because it contains nested archives
+   */
+  private boolean handleCachedArchive(ContainerNode jarNode, Path path) throws IOException
+  {
+    ArchiveContent content = cache.computeIfAbsent(path, this::parseArchive);
+    if (content == null)
+    {
+      return false;
+    }
+    try (ZipFile zip = new ZipFile(path.toFile()))
     {
-      // not closing stream on purpose
+      registeredClasses.read(jarNode.getName(), zip);
     }
+    int[] globalIds = toGlobalIds(content);
+    for ( int i = 0 ; i < content.getNumberClasses() ; i++ )
+    {
+      String className = content.getClassName(i);
+      if (!filter.isIgnoredClass(className))
+      {
+        int[] dependencies = toGlobalIds(content.getDependencies(i), globalIds);
+        ClassNode node = jarNode.createLeaf(className);
+        parsedClasses.add(new ParsedClass(node, symbols.find(className), content.getHash(i), dependencies));
+        publishClass(node, dependencies);
+      }
+    }
+    return true;
+  }
 
+  /**
+   * Parses all classes of an archive in parallel, independent of the filter. Only the entries in META-INF are
+   * skipped, see {@link EntryNames#isClassEntry(ZipEntry)}.
+   *
+   * @return null if the archive contains nested archives
+   */
+  private ArchiveContent parseArchive(Path path) throws IOException
+  {
+    SymbolTable localSymbols = Optional.ofNullable(spareArchiveSymbols.poll()).orElseGet(SymbolTable::new);
+    try (ZipFile zip = new ZipFile(path.toFile()))
+    {
+      if (zip.stream().anyMatch(EntryNames::isNestedArchive))
+      {
+        recycle(localSymbols);
+        return null;
+      }
+      List<ZipEntry> entries = zip.stream()
+                                  .filter(EntryNames::isClassEntry)
+                                  .collect(Collectors.<ZipEntry> toList());
+      int[] classes = new int[entries.size()];
+      int[][] dependencies = new int[entries.size()][];
+      long[] hashes = new long[entries.size()];
+      IntStream.range(0, entries.size()).parallel().forEach(i -> {
+        try (InputStream insRes = zip.getInputStream(entries.get(i)))
+        {
+          ByteBuffer content = ByteBuffer.wrap(insRes.readAllBytes());
+          hashes[i] = ContentHash.of(content);
+          String className = EntryNames.toClassName(entries.get(i).getName());
+          ClassAndDependencyInfo info = ClassAndDependencyInfo.parse(content, className, localSymbols);
+          classes[i] = info.getClassId();
+          dependencies[i] = info.getDependencyIds();
+        }
+        catch (IOException e)
+        {
+          throw new UncheckedIOException(e);
+        }
+      });
+      ArchiveContent result = ArchiveContent.of(localSymbols, classes, dependencies, hashes);
+      recycle(localSymbols);
+      return result;
+    }
+    catch (UncheckedIOException e)
+    {
+      throw e.getCause();
+    }
   }
 
+  /**
+   * Makes a table available for the next archive, must not be called while any thread may still use it.
+   */
+  private void recycle(SymbolTable localSymbols)
+  {
+    localSymbols.clear();
+    spareArchiveSymbols.add(localSymbols);
+  }
 
-  private boolean isFile(Path path, String suffix)
+  private boolean isParsedZipEntry(ZipEntry entry)
   {
-    return Optional.ofNullable(path).map(Path::getFileName).map(Object::toString).orElse("").endsWith(suffix)
-           && Files.isRegularFile(path);
+    return isClassEntry(entry) && !filter.isIgnoredClass(EntryNames.toClassName(entry.getName()));
   }
 
-  private void handleClassFile(Path clazz, Path resource)
+  private String toEntryNodeName(Path entry)
   {
-    String className = resource.relativize(clazz).toString().replace(".class", "").replace('/', '.');
+    return isArchive(entry) ? toArchiveNodeName(String.valueOf(entry.getFileName()), classPath.getName(entry))
+      : toDirectoryNodeName(entry);
+  }
+
+  /**
+   * Specifies whether archives are opened with random access and their classes are parsed in parallel. If
+   * false, each archive is read sequentially as a stream. Default is true.
+   *
+   * @param value true for parallel parsing inside archives
+   */
+  public void setRandomAccessArchives(boolean value)
+  {
+    randomAccessArchives = value;
+  }
+
+  /**
+   * Specifies whether classes outside the focus of the filter are parsed only if they are reachable from the
+   * classes in focus. All other classes get nodes without any dependencies. Archives containing nested
+   * archives are always parsed completely. Default is false.
+   *
+   * @param value true to parse libraries on demand
+   */
+  public void setParseOnDemand(boolean value)
+  {
+    parseOnDemand = value;
+  }
+
+  /**
+   * Specifies whether the declarations of each class are read as well to record the kinds of its dependencies,
+   * see {@link ClassNode#getSucLeafs(int)}. Archive contents are not taken from the cache then because it
+   * does not hold kinds. Default is false which costs nothing extra.
+   *
+   * @param value true to record kinds of dependencies
+   */
+  public void setDependencyKinds(boolean value)
+  {
+    dependencyKinds = value;
+  }
+
+  /**
+   * Specifies whether the fields and methods each class references and declares are recorded, see
+   * {@link #getMemberIndex()}. Archive contents are not taken from the cache then. Default is false which
+   * costs nothing extra.
+   *
+   * @param value true to record members
+   */
+  public void setRecordMembers(boolean value)
+  {
+    memberIndex = value ? new MemberIndex(symbols) : null;
+  }
+
+  /**
+   * @return members of the scanned classes, null if not recorded
+   */
+  public MemberIndex getMemberIndex()
+  {
+    return memberIndex;
+  }
+
+  /**
+   * Specifies whether string constants naming a class of the class path are treated as dependencies, for
+   * instance in <code>Class.forName("com.x.Impl")</code>. Those dependencies are of low confidence and have
+   * the kind {@link DependencyKind#REFLECTION} only. Archive contents are not taken from the cache then.
+   * Default is false which costs nothing extra.
+   *
+   * @param value true to detect class names in string constants
+   */
+  public void setReflectiveReferences(boolean value)
+  {
+    reflectiveReferences = value ? new ReflectiveReferences(symbols) : null;
+  }
+
+  /**
+   * Specifies a cache to take the content of known archives from instead of parsing them again. The cache may
+   * be shared with other scanners, even in other JVMs. Class directories are always parsed.
+   *
+   * @param cache null to parse everything
+   */
+  public void setCache(ScanCache cache)
+  {
+    this.cache = cache;
+  }
+
+  /**
+   * Limits the memory used for the dependency lists of parsed classes until they are linked. Lists exceeding
+   * the budget are written to a memory-mapped temporary file and read back while linking. The created graph
+   * is the same as without budget. Default is no limit.
+   *
+   * @param bytes approximate size of the lists kept in memory
+   */
+  public void setMemoryBudget(long bytes)
+  {
+    if (bytes < 0)
+    {
+      throw new IllegalArgumentException("budget must not be negative");
+    }
+    parsedClasses.setMemoryBudget(bytes);
+  }
+
+  /**
+   * Specifies the classes of the JDK. Dependencies to those classes are listed as platform dependencies of
+   * the class nodes instead of being ignored or missing.
+   *
+   * @param jdkIndex null to ignore the JDK as specified by the filter
+   */
+  public void setJdkIndex(JdkIndex jdkIndex)
+  {
+    this.jdkIndex = jdkIndex;
+  }
+
+  /**
+   * Walks the directory tree while the class files are read and parsed by the pipeline of the scan. Small
+   * directories are parsed by the walking thread because handing over their few files costs more than it
+   * saves. Registry descriptors are read in the same walk.
+   *
+   * @param cost estimated cost, see {@link #estimateCost(Path)}
+   */
+  private void handleDirectory(Path path, long cost) throws IOException
+  {
+    boolean small = cost < PIPELINE_MIN_FILES * BYTES_PER_CLASS_FILE;
+    try (Stream<Path> fileTreeRes = Files.walk(path);
+      ClassFilePipeline.Batch batch = small ? null : getPipeline().startBatch())
+    {
+      Iterator<Path> files = fileTreeRes.filter(Files::isRegularFile).iterator();
+      while (files.hasNext())
+      {
+        Path file = files.next();
+        if (isClassResourceName(String.valueOf(file.getFileName())))
+        {
+          handleClassFile(file, path, batch);
+          continue;
+        }
+        String resourceName = path.relativize(file).toString().replace(File.separatorChar, '/');
+        if (RegistryDescriptor.isDescriptor(resourceName))
+        {
+          registeredClasses.read(toDirectoryNodeName(path), resourceName, Files.readAllBytes(file));
+        }
+      }
+    }
+  }
+
+  /**
+   * @param batch null to parse in the current thread
+   */
+  private void handleClassFile(Path clazz, Path resource, ClassFilePipeline.Batch batch) throws IOException
+  {
+    String className = toClassName(resource, clazz);
     if (filter.isIgnoredClass(className))
     {
       return;
     }
-    String source = classPath.getName(resource).replace('.', '_');
-    String nodeName = "dir:" + source + "." + className;
+    String nodeName = toNodeName(resource, className);
     if (filter.isIgnoredSource(nodeName))
     {
       return;
     }
     ClassNode node = this.root.createLeaf(nodeName);
-    classFirstSeenAt.put(className, node);
-    try (InputStream in = new FileInputStream(clazz.toFile()))
-    { // TODO: allow filter to switch off parsing the dependencies of supporting nodes.
-      ClassAndDependencyInfo parser = ClassAndDependencyInfo.parse(in, className);
-      deps.put(node, parser.getDependencies());
+    if (parseOnDemand && !filter.isInFocus(nodeName))
+    {
+      parsedClasses.add(new ParsedClass(node,
+                                        symbols.intern(className),
+                                        () -> ByteBuffer.wrap(Files.readAllBytes(clazz))));
+    }
+    else if (batch == null)
+    {
+      parseClassFile(node, clazz, className);
+    }
+    else
+    {
+      batch.submit(clazz, content -> parse(node, content, className));
+    }
+  }
+
+  private void parseClassFile(ClassNode node, Path clazz, String className)
+  {
+    try
+    {
+      parse(node, ByteBuffer.wrap(Files.readAllBytes(clazz)), className);
     }
     catch (IOException e)
     {
@@ -200,4 +1156,137 @@ public class ProjectScanner
     }
   }
 
+  private static String toClassName(Path resource, Path clazz)
+  {
+    return resource.relativize(clazz).toString().replace(".class", "").replace('/', '.');
+  }
+
+  private String toNodeName(Path resource, String className)
+  {
+    return toDirectoryNodeName(resource) + "." + className;
+  }
+
+  private String toDirectoryNodeName(Path resource)
+  {
+    return "dir:" + classPath.getName(resource).replace('.', '_');
+  }
+
+  private void parse(ClassNode node, ByteBuffer content, String className)
+  {
+    long hash = ContentHash.of(content);
+    register(node, parseInfo(content, className), hash);
+  }
+
+  private void register(ClassNode node, ClassAndDependencyInfo info, long hash)
+  {
+    addMembers(node, info);
+    int[] dependencies = info.getDependencyIds();
+    ParsedClass parsed = new ParsedClass(node, info.getClassId(), hash, dependencies);
+    parsed.kinds = info.getDependencyKinds();
+    parsed.classNameStrings = info.getClassNameStrings();
+    parsedClasses.add(parsed);
+    publishClass(node, dependencies);
+  }
+
+  private ClassAndDependencyInfo parseInfo(ByteBuffer content, String className)
+  {
+    LOG.debug("parsing {}", className);
+    ClassAndDependencyInfo.Options options = new ClassAndDependencyInfo.Options();
+    if (dependencyKinds)
+    {
+      options.withDependencyKinds();
+    }
+    if (memberIndex != null)
+    {
+      options.withMembers(memberIndex.getMemberSymbols());
+    }
+    if (reflectiveReferences != null)
+    {
+      options.withClassNameStrings(reflectiveReferences.getStringSymbols());
+    }
+    return ClassAndDependencyInfo.parse(content, className, symbols, options);
+  }
+
+  /**
+   * @return true if the cache cannot be used because it holds only the dependencies
+   */
+  private boolean needsMoreThanDependencies()
+  {
+    return dependencyKinds || memberIndex != null || reflectiveReferences != null;
+  }
+
+  private void addMembers(ClassNode node, ClassAndDependencyInfo info)
+  {
+    if (memberIndex != null)
+    {
+      memberIndex.add(node, info);
+    }
+  }
+
+  private void publishClass(ClassNode node, int... dependencies)
+  {
+    publish(() -> ScanEvent.forClass(node.getName(),
+                                     node.getClassName(),
+                                     Arrays.stream(dependencies)
+                                           .mapToObj(symbols::get)
+                                           .collect(Collectors.toList())));
+  }
+
+  /**
+   * Blocks if a subscriber is too slow.
+   */
+  private void publish(Supplier<ScanEvent> event)
+  {
+    if (events != null)
+    {
+      events.submit(event.get());
+    }
+  }
+
+  /**
+   * Starts a scan in a separate thread as soon as the first subscriber subscribes and publishes its progress.
+   * Parsing waits if a subscriber does not request further events, so a slow consumer limits the number of
+   * pending events. Subscribers are completed after the classes are linked, so the root node returned by
+   * {@link #getRoot()} is complete then. Later subscribers miss the events published before.
+   *
+   * @param pathToScan paths to jar files or build directories
+   * @return publisher of events
+   */
+  public Flow.Publisher<ScanEvent> publishScan(ParsedClassPath pathToScan)
+  {
+    SubmissionPublisher<ScanEvent> publisher = new SubmissionPublisher<>();
+    AtomicBoolean started = new AtomicBoolean();
+    return subscriber -> {
+      publisher.subscribe(subscriber);
+      if (started.compareAndSet(false, true))
+      {
+        events = publisher;
+        Thread thread = new Thread(() -> {
+          try
+          {
+            scan(pathToScan);
+            publisher.close();
+          }
+          catch (RuntimeException e)
+          {
+            publisher.closeExceptionally(e);
+          }
+          finally
+          {
+            events = null;
+          }
+        }, "project scan");
+        thread.setDaemon(true);
+        thread.start();
+      }
+    };
+  }
+
+  /**
+   * @return root node of the graph, complete after a scan has finished
+   */
+  public ContainerNode getRoot()
+  {
+    return root;
+  }
 }
@@ -0,0 +1,79 @@
+package de.tautenhahn.dependencies.parser;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * Turns string constants naming a class of the class path into dependencies of kind
+ * {@link DependencyKind#REFLECTION}, for instance in <code>Class.forName("com.x.Impl")</code>.
+ *
+ * @author TT
+ */
+final class ReflectiveReferences
+{
+
+  /** string constants having the form of a class name */
+  private final SymbolTable stringSymbols = new SymbolTable();
+
+  private final SymbolTable classSymbols;
+
+  /**
+   * Creates instance.
+   *
+   * @param classSymbols names of the classes of the scan
+   */
+  ReflectiveReferences(SymbolTable classSymbols)
+  {
+    this.classSymbols = classSymbols;
+  }
+
+  /**
+   * @return table to collect string constants into while parsing
+   */
+  SymbolTable getStringSymbols()
+  {
+    return stringSymbols;
+  }
+
+  /**
+   * Adds the classes named by string constants as dependencies unless they are referenced anyway. The names
+   * are looked up in the symbol table of the classes, which holds every class of the class path by now, so
+   * each check is a hash lookup. The dependencies of a class parsed with string constants are sorted, so they
+   * are searched binary. The string constants of the class are released afterwards.
+   *
+   * @param parsed class with {@link ParsedClass#classNameStrings}
+   * @param dependencies current dependencies of the class, possibly read back from a spill file
+   * @param first used class by class ID, classes not contained are not added
+   */
+  void addDependencies(ParsedClass parsed, int[] dependencies, AtomicReferenceArray<ParsedClass> first)
+  {
+    int[] added = new int[parsed.classNameStrings.length];
+    int numberAdded = 0;
+    for ( int stringId : parsed.classNameStrings )
+    {
+      int classId = classSymbols.find(stringSymbols.get(stringId));
+      if (classId >= 0 && classId < first.length() && first.get(classId) != null && classId != parsed.classId
+          && Arrays.binarySearch(dependencies, classId) < 0)
+      {
+        added[numberAdded++] = classId;
+      }
+    }
+    if (numberAdded > 0)
+    {
+      byte[] kinds = parsed.kinds == null ? new byte[dependencies.length] : parsed.kinds;
+      if (parsed.kinds == null)
+      {
+        Arrays.fill(kinds, (byte)DependencyKind.ALL);
+      }
+      parsed.dependencies = Arrays.copyOf(dependencies, dependencies.length + numberAdded);
+      System.arraycopy(added, 0, parsed.dependencies, dependencies.length, numberAdded);
+      parsed.kinds = Arrays.copyOf(kinds, parsed.dependencies.length);
+      Arrays.fill(parsed.kinds,
+                  dependencies.length,
+                  parsed.kinds.length,
+                  (byte)DependencyKind.REFLECTION.getBit());
+    }
+    parsed.classNameStrings = null;
+  }
+}
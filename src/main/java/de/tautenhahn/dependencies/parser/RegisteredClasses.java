@@ -0,0 +1,85 @@
+package de.tautenhahn.dependencies.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+
+/**
+ * Collects the classes registered by the descriptors found during a scan, see {@link RegistryDescriptor}.
+ * Descriptors may be read by several threads concurrently.
+ *
+ * @author TT
+ */
+final class RegisteredClasses
+{
+
+  /** locations of the descriptors registering each class */
+  private final Map<String, Set<String>> locations = new ConcurrentHashMap<>();
+
+  /**
+   * Reads the registry descriptors of an archive opened with random access, the class files are not touched.
+   *
+   * @param entryNodeName name of the node representing the archive
+   * @param zip opened archive
+   * @throws IOException if an entry cannot be read
+   */
+  void read(String entryNodeName, ZipFile zip) throws IOException
+  {
+    for ( ZipEntry entry : zip.stream().filter(RegisteredClasses::isDescriptor).collect(Collectors.toList()) )
+    {
+      try (InputStream insRes = zip.getInputStream(entry))
+      {
+        read(entryNodeName, EntryNames.toResourceName(entry.getName()), insRes.readAllBytes());
+      }
+    }
+  }
+
+  /**
+   * @param entryNodeName name of the node representing the archive or directory
+   * @param resourceName name of the descriptor relative to the class folder
+   * @param content content of the descriptor
+   */
+  void read(String entryNodeName, String resourceName, byte[] content)
+  {
+    String location = entryNodeName + "/" + resourceName;
+    for ( String className : RegistryDescriptor.getRegisteredClasses(resourceName, content) )
+    {
+      add(className, Collections.singleton(location));
+    }
+  }
+
+  /**
+   * @param className registered class
+   * @param descriptors locations of the registering descriptors
+   */
+  void add(String className, Collection<String> descriptors)
+  {
+    locations.computeIfAbsent(className, k -> ConcurrentHashMap.newKeySet()).addAll(descriptors);
+  }
+
+  /**
+   * @param entry entry of an archive
+   * @return true if the entry is a descriptor
+   */
+  static boolean isDescriptor(ZipEntry entry)
+  {
+    return !entry.isDirectory()
+           && RegistryDescriptor.isDescriptor(EntryNames.toResourceName(entry.getName()));
+  }
+
+  /**
+   * @return read-only view of the registered classes with the locations of the registering descriptors
+   */
+  Map<String, Set<String>> asMap()
+  {
+    return Collections.unmodifiableMap(locations);
+  }
+}
@@ -0,0 +1,146 @@
+package de.tautenhahn.dependencies.parser;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+
+/**
+ * Reads files which register classes to be instantiated by some framework instead of being referenced by
+ * code. Supported are
+ * <ul>
+ * <li>META-INF/services/* as read by the ServiceLoader</li>
+ * <li>META-INF/spring.factories and META-INF/spring/*.imports of Spring Boot</li>
+ * <li>WEB-INF/web.xml declaring servlets, filters and listeners</li>
+ * </ul>
+ *
+ * @author TT
+ */
+final class RegistryDescriptor
+{
+
+  private static final String SERVICES = "META-INF/services/";
+
+  private static final String SPRING_IMPORTS = "META-INF/spring/";
+
+  private static final String SPRING_FACTORIES = "META-INF/spring.factories";
+
+  private static final String WEB_XML = "WEB-INF/web.xml";
+
+  private static final String[] WEB_XML_TAGS = {"servlet-class", "filter-class", "listener-class"};
+
+  private RegistryDescriptor()
+  {
+    // static only
+  }
+
+  /**
+   * @param name resource name relative to the class path entry with '/' as separator, prefixes of fat jars
+   *          and web applications removed
+   * @return true if the resource registers classes
+   */
+  static boolean isDescriptor(String name)
+  {
+    return isDirectChild(name, SERVICES) || isDirectChild(name, SPRING_IMPORTS) && name.endsWith(".imports")
+           || SPRING_FACTORIES.equals(name) || WEB_XML.equals(name);
+  }
+
+  private static boolean isDirectChild(String name, String folder)
+  {
+    return name.startsWith(folder) && name.length() > folder.length()
+           && name.indexOf('/', folder.length()) < 0;
+  }
+
+  /**
+   * @param name resource name as accepted by {@link #isDescriptor(String)}
+   * @param content file content
+   * @return names of the registered classes, may contain names of classes which do not exist
+   */
+  static List<String> getRegisteredClasses(String name, byte[] content)
+  {
+    String text = new String(content, StandardCharsets.UTF_8);
+    if (SPRING_FACTORIES.equals(name))
+    {
+      return readFactories(text);
+    }
+    if (WEB_XML.equals(name))
+    {
+      return readWebXml(text);
+    }
+    return readLines(text);
+  }
+
+  /**
+   * One class name per line, anything after '#' is a comment.
+   */
+  private static List<String> readLines(String text)
+  {
+    List<String> result = new ArrayList<>();
+    for ( String line : text.split("\n") )
+    {
+      int comment = line.indexOf('#');
+      String className = (comment < 0 ? line : line.substring(0, comment)).trim();
+      if (!className.isEmpty())
+      {
+        result.add(className);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Properties file with comma separated lists of class names as values.
+   */
+  private static List<String> readFactories(String text)
+  {
+    Properties props = new Properties();
+    try
+    {
+      props.load(new StringReader(text));
+    }
+    catch (IOException e)
+    {
+      throw new UncheckedIOException(e);
+    }
+    List<String> result = new ArrayList<>();
+    for ( String key : props.stringPropertyNames() )
+    {
+      for ( String className : props.getProperty(key).split(",") )
+      {
+        if (!className.isBlank())
+        {
+          result.add(className.trim());
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Takes the content of some elements without parsing the XML completely.
+   */
+  private static List<String> readWebXml(String text)
+  {
+    List<String> result = new ArrayList<>();
+    for ( String tag : WEB_XML_TAGS )
+    {
+      String start = "<" + tag + ">";
+      int pos = text.indexOf(start);
+      while (pos >= 0)
+      {
+        int end = text.indexOf("</" + tag + ">", pos);
+        if (end < 0)
+        {
+          break;
+        }
+        result.add(text.substring(pos + start.length(), end).trim());
+        pos = text.indexOf(start, end);
+      }
+    }
+    return result;
+  }
+}
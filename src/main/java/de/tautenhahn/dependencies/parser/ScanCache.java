@@ -0,0 +1,374 @@
+package de.tautenhahn.dependencies.parser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Persistent content-addressed index holding the parse results of archives. The parse result is stored once
+ * per SHA-256 hash of the archive content, so identical libraries at different locations, for instance in the
+ * Maven and Gradle caches of several projects, are parsed only once. A second table maps path, size and
+ * modification time of an archive to its hash so that unchanged archives need not be hashed again. <br>
+ * The index may be shared by any number of threads and JVMs on the same machine. Entries are written into
+ * temporary files which are moved atomically, and an archive is parsed by one writer at a time only. Writers
+ * lock a region of a single lock file selected by the content hash, so no lock files pile up.
+ * Unreadable or outdated entries are just ignored, so deleting the cache directory is always safe.
+ *
+ * @author TT
+ */
+public class ScanCache
+{
+
+  /**
+   * Creates the content of an archive which is not in the index yet.
+   */
+  @FunctionalInterface
+  interface ArchiveParser
+  {
+
+    /**
+     * @param archive path to archive file
+     * @return parse result or null if the archive cannot be stored in the index
+     * @throws IOException in case of streaming problems
+     */
+    ArchiveContent parse(Path archive) throws IOException;
+  }
+
+  private static final Logger LOG = LoggerFactory.getLogger(ScanCache.class);
+
+  private static final int MAGIC = 0x474B5343; // "GKSC"
+
+  private static final int VERSION = 3;
+
+  private static final int HASH_LENGTH = 32;
+
+  private static final String LOCK_FILE_NAME = "cache.lock";
+
+  /**
+   * File locks are held by the JVM, threads of the same JVM must be kept apart separately. Entries exist
+   * while some thread holds or waits for the respective lock region.
+   */
+  private static final Map<String, LocalLock> LOCAL_LOCKS = new ConcurrentHashMap<>();
+
+  /**
+   * Open lock file of each cache directory used by this JVM. The channels are kept open because on some
+   * systems closing any channel of a file releases all locks the JVM holds on it.
+   */
+  private static final Map<Path, FileChannel> LOCK_FILES = new ConcurrentHashMap<>();
+
+  /**
+   * Keeps threads of this JVM apart which want to lock the same region.
+   */
+  private static final class LocalLock
+  {
+
+    /** guarded by the compute methods of {@link #LOCAL_LOCKS} */
+    private int users;
+  }
+
+  private final Path contentDir;
+
+  private final Path pathDir;
+
+  /**
+   * Creates instance storing its data in given directory.
+   *
+   * @param directory will be created if necessary
+   */
+  public ScanCache(Path directory)
+  {
+    contentDir = directory.resolve("content");
+    pathDir = directory.resolve("paths");
+  }
+
+  /**
+   * @return instance using directory ".gordianknot/cache" in the users home directory.
+   */
+  public static ScanCache createDefault()
+  {
+    return new ScanCache(Paths.get(System.getProperty("user.home"), ".gordianknot", "cache"));
+  }
+
+  /**
+   * Returns the cached content of an archive.
+   *
+   * @param archive path to archive file
+   * @return null if there is no valid entry
+   */
+  ArchiveContent get(Path archive)
+  {
+    try
+    {
+      return readContent(getHash(archive));
+    }
+    catch (IOException e)
+    {
+      LOG.warn("cannot look up {}", archive, e);
+      return null;
+    }
+  }
+
+  /**
+   * Stores the content of an archive.
+   *
+   * @param archive path to archive file
+   * @param content parse result
+   */
+  void put(Path archive, ArchiveContent content)
+  {
+    try
+    {
+      writeContent(getHash(archive), content);
+    }
+    catch (IOException e)
+    {
+      LOG.warn("cannot write cache entry for {}", archive, e);
+    }
+  }
+
+  /**
+   * Returns the cached content of an archive, parses and stores it if there is no entry yet. If another thread
+   * or JVM is parsing the same archive content, this method waits for its result instead of parsing again.
+   *
+   * @param archive path to archive file
+   * @param parser called if there is no valid entry
+   * @return null if the parser returns null
+   * @throws IOException if the archive cannot be read
+   */
+  ArchiveContent computeIfAbsent(Path archive, ArchiveParser parser) throws IOException
+  {
+    String hash = getHash(archive);
+    ArchiveContent result = readContent(hash);
+    if (result != null)
+    {
+      return result;
+    }
+    long region = Long.parseLong(hash.substring(0, 8), 16); // same archive content, same region
+    String key = contentDir.toAbsolutePath() + "#" + region;
+    LocalLock localLock = LOCAL_LOCKS.compute(key, (k, v) -> {
+      LocalLock lockOrNew = v == null ? new LocalLock() : v;
+      lockOrNew.users++;
+      return lockOrNew;
+    });
+    try
+    {
+      synchronized (localLock)
+      {
+        FileLock lock = getLockFile().lock(region, 1, false);
+        try
+        {
+          result = readContent(hash);
+          if (result == null)
+          {
+            result = parser.parse(archive);
+            if (result != null)
+            {
+              writeContent(hash, result);
+            }
+          }
+          else
+          {
+            LOG.debug("content of {} has been stored concurrently", archive);
+          }
+        }
+        finally
+        {
+          lock.release();
+        }
+      }
+    }
+    finally
+    {
+      LOCAL_LOCKS.computeIfPresent(key, (k, v) -> --v.users == 0 ? null : v);
+    }
+    return result;
+  }
+
+  private FileChannel getLockFile() throws IOException
+  {
+    Files.createDirectories(contentDir);
+    Path lockFile = contentDir.resolve(LOCK_FILE_NAME).toAbsolutePath();
+    try
+    {
+      return LOCK_FILES.computeIfAbsent(lockFile, k -> {
+        try
+        {
+          return FileChannel.open(k, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        }
+        catch (IOException e)
+        {
+          throw new UncheckedIOException(e);
+        }
+      });
+    }
+    catch (UncheckedIOException e)
+    {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * @return number of lock regions currently held or waited for by threads of this JVM
+   */
+  static int getNumberLocalLocks()
+  {
+    return LOCAL_LOCKS.size();
+  }
+
+  private ArchiveContent readContent(String hash)
+  {
+    Path file = contentDir.resolve(hash + ".bin");
+    if (!Files.isReadable(file))
+    {
+      return null;
+    }
+    try (InputStream insRes = Files.newInputStream(file);
+      DataInputStream in = new DataInputStream(new BufferedInputStream(insRes)))
+    {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION)
+      {
+        return null;
+      }
+      return ArchiveContent.read(in);
+    }
+    catch (IOException e)
+    {
+      LOG.warn("ignoring unusable cache entry {}", file, e);
+      return null;
+    }
+  }
+
+  private void writeContent(String hash, ArchiveContent content) throws IOException
+  {
+    Files.createDirectories(contentDir);
+    Path temp = Files.createTempFile(contentDir, "entry", ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))))
+    {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      content.write(out);
+    }
+    moveAtomically(temp, contentDir.resolve(hash + ".bin"));
+  }
+
+  /**
+   * Returns the content hash of an archive, taking it from the path table if size and modification time did
+   * not change.
+   */
+  private String getHash(Path archive) throws IOException
+  {
+    String key = getKey(archive);
+    Path file = pathDir.resolve(toHex(createDigest().digest(key.getBytes(StandardCharsets.UTF_8)), 16) + ".bin");
+    BasicFileAttributes attrs = Files.readAttributes(archive, BasicFileAttributes.class);
+    long modified = attrs.lastModifiedTime().toMillis();
+    if (Files.isReadable(file))
+    {
+      try (InputStream insRes = Files.newInputStream(file);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(insRes)))
+      {
+        if (in.readInt() == MAGIC && in.readInt() == VERSION && in.readUTF().equals(key)
+            && in.readLong() == attrs.size() && in.readLong() == modified)
+        {
+          return in.readUTF();
+        }
+      }
+      catch (IOException e)
+      {
+        LOG.warn("ignoring unusable cache entry {} for {}", file, archive, e);
+      }
+    }
+    String result = toHex(computeHash(archive), HASH_LENGTH);
+    Files.createDirectories(pathDir);
+    Path temp = Files.createTempFile(pathDir, "entry", ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))))
+    {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeUTF(key);
+      out.writeLong(attrs.size());
+      out.writeLong(modified);
+      out.writeUTF(result);
+    }
+    moveAtomically(temp, file);
+    return result;
+  }
+
+  private static void moveAtomically(Path temp, Path file) throws IOException
+  {
+    try
+    {
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    finally
+    {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  private static String getKey(Path archive)
+  {
+    return archive.toAbsolutePath().normalize().toString();
+  }
+
+  private static String toHex(byte[] hash, int length)
+  {
+    StringBuilder result = new StringBuilder();
+    for ( int i = 0 ; i < length ; i++ )
+    {
+      result.append(String.format("%02x", hash[i]));
+    }
+    return result.toString();
+  }
+
+  /**
+   * @return SHA-256 hash of the file content
+   */
+  static byte[] computeHash(Path file) throws IOException
+  {
+    MessageDigest digest = createDigest();
+    byte[] buf = new byte[64 * 1024];
+    try (InputStream insRes = Files.newInputStream(file))
+    {
+      int read = insRes.read(buf);
+      while (read >= 0)
+      {
+        digest.update(buf, 0, read);
+        read = insRes.read(buf);
+      }
+    }
+    return digest.digest();
+  }
+
+  private static MessageDigest createDigest()
+  {
+    try
+    {
+      return MessageDigest.getInstance("SHA-256");
+    }
+    catch (NoSuchAlgorithmException e) // every JVM must support SHA-256
+    {
+      throw new IllegalStateException(e);
+    }
+  }
+}
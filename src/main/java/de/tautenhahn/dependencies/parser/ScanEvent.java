@@ -0,0 +1,114 @@
+package de.tautenhahn.dependencies.parser;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Progress of a scan as published by {@link ProjectScanner#publishScan(ParsedClassPath)}.
+ *
+ * @author TT
+ */
+public final class ScanEvent
+{
+
+  /**
+   * What happened.
+   */
+  public enum Kind
+  {
+    /** handling of a class path entry started */
+    ENTRY_STARTED,
+    /** a class has been parsed, its dependencies are known */
+    CLASS_PARSED,
+    /** all classes of a class path entry have been handled, classes parsed on demand may follow later */
+    ENTRY_FINISHED
+  }
+
+  private final Kind kind;
+
+  private final Path entry;
+
+  private final String nodeName;
+
+  private final String className;
+
+  private final List<String> dependencies;
+
+  private ScanEvent(Kind kind, Path entry, String nodeName, String className, List<String> dependencies)
+  {
+    this.kind = kind;
+    this.entry = entry;
+    this.nodeName = nodeName;
+    this.className = className;
+    this.dependencies = dependencies;
+  }
+
+  /**
+   * @param kind either {@link Kind#ENTRY_STARTED} or {@link Kind#ENTRY_FINISHED}
+   * @param entry class path entry
+   * @return new instance
+   */
+  static ScanEvent forEntry(Kind kind, Path entry)
+  {
+    return new ScanEvent(kind, entry, null, null, Collections.emptyList());
+  }
+
+  /**
+   * @param nodeName name of the node representing the class
+   * @param className fully qualified class name
+   * @param dependencies names of the classes the class depends on
+   * @return new instance
+   */
+  static ScanEvent forClass(String nodeName, String className, List<String> dependencies)
+  {
+    return new ScanEvent(Kind.CLASS_PARSED, null, nodeName, className, Collections.unmodifiableList(dependencies));
+  }
+
+  /**
+   * @return what happened
+   */
+  public Kind getKind()
+  {
+    return kind;
+  }
+
+  /**
+   * @return class path entry, null for parsed classes
+   */
+  public Path getEntry()
+  {
+    return entry;
+  }
+
+  /**
+   * @return name of the node representing the parsed class, null for entry events
+   */
+  public String getNodeName()
+  {
+    return nodeName;
+  }
+
+  /**
+   * @return name of the parsed class, null for entry events
+   */
+  public String getClassName()
+  {
+    return className;
+  }
+
+  /**
+   * @return names of the classes the parsed class depends on, empty for entry events
+   */
+  public List<String> getDependencies()
+  {
+    return dependencies;
+  }
+
+  @Override
+  public String toString()
+  {
+    return kind + "(" + (entry == null ? nodeName : entry) + ")";
+  }
+}
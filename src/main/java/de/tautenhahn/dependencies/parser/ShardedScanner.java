@@ -0,0 +1,255 @@
+package de.tautenhahn.dependencies.parser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Scans a class path by splitting it into shards, each of which is parsed by a separate worker JVM. The
+ * workers write their partial results into temporary files which are merged into one graph afterwards. Use
+ * this for class paths too big to be parsed within one JVM. <br>
+ * The filter is passed to the workers by its patterns, so subclasses overwriting its methods are not
+ * supported. The result covers dependencies, conflicts and registered classes. Dependency kinds, members and
+ * reflective references are not supported, use {@link ProjectScanner} for those.
+ *
+ * @author TT
+ */
+public class ShardedScanner
+{
+
+  private static final Logger LOG = LoggerFactory.getLogger(ShardedScanner.class);
+
+  private final Filter filter;
+
+  private final int numberShards;
+
+  private final List<String> jvmOptions = new ArrayList<>();
+
+  private ProjectScanner merger;
+
+  /**
+   * Creates instance.
+   *
+   * @param filter defines which classes to list, must not be a subclass
+   * @param numberShards number of worker processes to start
+   */
+  public ShardedScanner(Filter filter, int numberShards)
+  {
+    if (numberShards < 1)
+    {
+      throw new IllegalArgumentException("need at least one shard");
+    }
+    if (filter.getClass() != Filter.class)
+    {
+      throw new IllegalArgumentException("cannot pass " + filter.getClass().getName() + " to worker processes");
+    }
+    this.filter = filter;
+    this.numberShards = numberShards;
+  }
+
+  /**
+   * Specifies options for the worker JVMs, for instance heap size.
+   *
+   * @param options like "-Xmx2g"
+   */
+  public void setJvmOptions(String... options)
+  {
+    jvmOptions.clear();
+    jvmOptions.addAll(Arrays.asList(options));
+  }
+
+  /**
+   * Runs the dependency analysis for all classes in the class path.
+   *
+   * @param pathToScan paths to jar files or build directories
+   * @return root node of the created graph
+   * @throws IOException if a worker fails
+   */
+  public ContainerNode scan(ParsedClassPath pathToScan) throws IOException
+  {
+    Path dir = Files.createTempDirectory("shards");
+    try
+    {
+      Path classPathFile = Files.write(dir.resolve("classpath.txt"),
+                                       pathToScan.getEntries()
+                                                 .stream()
+                                                 .map(Path::toString)
+                                                 .collect(Collectors.toList()),
+                                       StandardCharsets.UTF_8);
+      Path filterFile = dir.resolve("filter.bin");
+      try (OutputStream outRes = Files.newOutputStream(filterFile);
+        DataOutputStream out = new DataOutputStream(outRes))
+      {
+        filter.write(out);
+      }
+      List<List<Integer>> shards = createShards(pathToScan);
+      List<Process> workers = new ArrayList<>();
+      for ( int i = 0 ; i < shards.size() ; i++ )
+      {
+        workers.add(startWorker(classPathFile, filterFile, dir.resolve("part" + i + ".bin"), shards.get(i)));
+      }
+      List<PartialScan> parts = new ArrayList<>();
+      for ( int i = 0 ; i < workers.size() ; i++ )
+      {
+        if (waitFor(workers.get(i)) != 0)
+        {
+          throw new IOException("worker for shard " + i + " failed");
+        }
+        parts.add(readPart(dir.resolve("part" + i + ".bin")));
+      }
+      merger = new ProjectScanner(filter);
+      return merger.merge(pathToScan, parts);
+    }
+    finally
+    {
+      try (Stream<Path> filesRes = Files.list(dir))
+      {
+        for ( Path file : filesRes.collect(Collectors.toList()) )
+        {
+          Files.delete(file);
+        }
+      }
+      Files.delete(dir);
+    }
+  }
+
+  /**
+   * @return classes found more than once and split packages of the last scan, null before the first scan
+   */
+  public ClassPathConflicts getConflicts()
+  {
+    return merger == null ? null : merger.getConflicts();
+  }
+
+  /**
+   * @return names of the classes registered by service files, Spring factories or web.xml, each with the
+   *         locations of the registering files, empty before the first scan
+   */
+  public Map<String, Set<String>> getRegisteredClasses()
+  {
+    return merger == null ? Map.of() : merger.getRegisteredClasses();
+  }
+
+  /**
+   * Distributes the entries by estimated cost, each entry goes to the shard with the least cost so far.
+   *
+   * @return indices of the class path entries for each shard which is not empty
+   */
+  List<List<Integer>> createShards(ParsedClassPath pathToScan)
+  {
+    List<Path> entries = pathToScan.getEntries();
+    long[] cost = entries.parallelStream().mapToLong(ProjectScanner::estimateCost).toArray();
+    List<List<Integer>> result = new ArrayList<>();
+    long[] shardCost = new long[Math.min(numberShards, entries.size())];
+    for ( int i = 0 ; i < shardCost.length ; i++ )
+    {
+      result.add(new ArrayList<>());
+    }
+    IntStream.range(0, entries.size())
+             .filter(i -> !filter.isIgnoredSource(entries.get(i).toString()))
+             .boxed()
+             .sorted(Comparator.comparing(i -> -cost[i]))
+             .forEach(i -> {
+               int shard = IntStream.range(0, shardCost.length)
+                                    .reduce((a, b) -> shardCost[b] < shardCost[a] ? b : a)
+                                    .getAsInt();
+               result.get(shard).add(i);
+               shardCost[shard] += cost[i];
+             });
+    result.removeIf(List::isEmpty);
+    return result;
+  }
+
+  private Process startWorker(Path classPathFile, Path filterFile, Path output, List<Integer> entries)
+    throws IOException
+  {
+    List<String> command = new ArrayList<>();
+    command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+    command.addAll(jvmOptions);
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(ShardedScanner.class.getName());
+    command.add(classPathFile.toString());
+    command.add(filterFile.toString());
+    command.add(output.toString());
+    entries.forEach(i -> command.add(i.toString()));
+    LOG.debug("starting worker for {} entries", entries.size());
+    return new ProcessBuilder(command).inheritIO().start();
+  }
+
+  private static int waitFor(Process worker) throws InterruptedIOException
+  {
+    try
+    {
+      return worker.waitFor();
+    }
+    catch (InterruptedException e)
+    {
+      worker.destroy();
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while waiting for worker");
+    }
+  }
+
+  private static PartialScan readPart(Path file) throws IOException
+  {
+    try (InputStream insRes = Files.newInputStream(file);
+      DataInputStream in = new DataInputStream(new BufferedInputStream(insRes)))
+    {
+      return PartialScan.read(in);
+    }
+  }
+
+  /**
+   * Entry point of a worker process.
+   *
+   * @param args file listing the class path entries one per line, file containing the filter, output file,
+   *          indices of entries to parse
+   * @throws IOException in case of file system problems
+   */
+  public static void main(String... args) throws IOException
+  {
+    List<String> lines = Files.readAllLines(Paths.get(args[0]), StandardCharsets.UTF_8);
+    ParsedClassPath classPath = new ParsedClassPath(String.join(File.pathSeparator, lines));
+    List<Path> part = new ArrayList<>();
+    for ( int i = 3 ; i < args.length ; i++ )
+    {
+      part.add(classPath.getEntries().get(Integer.parseInt(args[i])));
+    }
+    Filter filter;
+    try (InputStream insRes = Files.newInputStream(Paths.get(args[1]));
+      DataInputStream in = new DataInputStream(insRes))
+    {
+      filter = Filter.read(in);
+    }
+    PartialScan result = new ProjectScanner(filter).scanPart(classPath, part);
+    try (OutputStream outRes = Files.newOutputStream(Paths.get(args[2]));
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outRes)))
+    {
+      result.write(out);
+    }
+  }
+}
@@ -0,0 +1,258 @@
+package de.tautenhahn.dependencies.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+
+/**
+ * Maps names to dense int IDs. Each name is stored once, lookup may use a byte buffer so that already known
+ * names do not cause any allocation. Intended to be shared by all parsing threads of one scan. <br>
+ * An ID obtained in one thread may be resolved in another thread only after some synchronization between
+ * these threads, for instance joining the parallel stream which did the parsing. <br>
+ * All arrays start small and grow with the number of names, so a table for a single class is cheap.
+ *
+ * @author TT
+ */
+public final class SymbolTable
+{
+
+  private static final int SEGMENT_BITS = 6;
+
+  private static final int CHUNK_BITS = 12;
+
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+  private static final int INITIAL_SLOTS = 8;
+
+  private static final int INITIAL_CHUNK_SIZE = 64;
+
+  private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+
+  /**
+   * Names by ID in chunks. Only the first chunk grows, the others have full size from the start. Directory
+   * and first chunk are replaced by copies on growth, so readers never see a partially filled array.
+   */
+  private volatile String[][] chunks = {new String[INITIAL_CHUNK_SIZE]};
+
+  private int size;
+
+  /**
+   * Part of the hash table with own lock to avoid contention.
+   */
+  private static final class Segment
+  {
+
+    int[] hashes = new int[INITIAL_SLOTS];
+
+    /** ID plus one, 0 marks empty slot */
+    int[] ids = new int[INITIAL_SLOTS];
+
+    int count;
+  }
+
+  /**
+   * Creates empty instance.
+   */
+  public SymbolTable()
+  {
+    for ( int i = 0 ; i < segments.length ; i++ )
+    {
+      segments[i] = new Segment();
+    }
+  }
+
+  /**
+   * Returns the ID of a name, registering the name if it is not yet known.
+   *
+   * @param name any name
+   * @return ID of that name
+   */
+  public int intern(String name)
+  {
+    int hash = name.hashCode();
+    Segment segment = segments[hash & (segments.length - 1)];
+    synchronized (segment)
+    {
+      int slot = findSlot(segment, hash, name, null, 0);
+      return segment.ids[slot] == 0 ? add(segment, slot, hash, name) : segment.ids[slot] - 1;
+    }
+  }
+
+  /**
+   * Same as {@link #intern(String)} but name is given in modified UTF8 encoding. If the name is already
+   * known, nothing is allocated.
+   *
+   * @param name buffer holding the name
+   * @param length number of valid bytes in buffer
+   * @param ascii true if all bytes represent ASCII characters
+   * @return ID of that name
+   */
+  public int intern(byte[] name, int length, boolean ascii)
+  {
+    if (!ascii)
+    {
+      return intern(new String(name, 0, length, StandardCharsets.UTF_8));
+    }
+    int hash = 0;
+    for ( int i = 0 ; i < length ; i++ )
+    {
+      hash = 31 * hash + name[i];
+    }
+    Segment segment = segments[hash & (segments.length - 1)];
+    synchronized (segment)
+    {
+      int slot = findSlot(segment, hash, null, name, length);
+      return segment.ids[slot] == 0
+        ? add(segment, slot, hash, new String(name, 0, length, StandardCharsets.ISO_8859_1))
+        : segment.ids[slot] - 1;
+    }
+  }
+
+  /**
+   * Returns the ID of a name without registering it.
+   *
+   * @param name any name
+   * @return ID or -1 if name is not known
+   */
+  public int find(String name)
+  {
+    int hash = name.hashCode();
+    Segment segment = segments[hash & (segments.length - 1)];
+    synchronized (segment)
+    {
+      return segment.ids[findSlot(segment, hash, name, null, 0)] - 1;
+    }
+  }
+
+  /**
+   * @param id as returned by this table
+   * @return the name with that ID
+   */
+  public String get(int id)
+  {
+    return chunks[id >>> CHUNK_BITS][id & (CHUNK_SIZE - 1)];
+  }
+
+  /**
+   * Removes all names but keeps the allocated capacity, so the table can be re-used. Must not be called
+   * while the table is used by other threads.
+   */
+  public synchronized void clear()
+  {
+    for ( Segment segment : segments )
+    {
+      synchronized (segment)
+      {
+        Arrays.fill(segment.ids, 0);
+        segment.count = 0;
+      }
+    }
+    for ( String[] chunk : chunks )
+    {
+      if (chunk != null)
+      {
+        Arrays.fill(chunk, null);
+      }
+    }
+    size = 0;
+  }
+
+  /**
+   * @return number of known names, all IDs are smaller than this value
+   */
+  public synchronized int size()
+  {
+    return size;
+  }
+
+  private int findSlot(Segment segment, int hash, String name, byte[] bytes, int length)
+  {
+    int mask = segment.ids.length - 1;
+    int slot = (hash >>> SEGMENT_BITS) & mask;
+    while (segment.ids[slot] != 0)
+    {
+      if (segment.hashes[slot] == hash
+          && (name == null ? matches(get(segment.ids[slot] - 1), bytes, length)
+            : name.equals(get(segment.ids[slot] - 1))))
+      {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private static boolean matches(String candidate, byte[] bytes, int length)
+  {
+    if (candidate.length() != length)
+    {
+      return false;
+    }
+    for ( int i = 0 ; i < length ; i++ )
+    {
+      if (candidate.charAt(i) != bytes[i])
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int add(Segment segment, int slot, int hash, String name)
+  {
+    int id;
+    synchronized (this)
+    {
+      id = size++;
+      provideChunk(id)[id & (CHUNK_SIZE - 1)] = name;
+    }
+    segment.hashes[slot] = hash;
+    segment.ids[slot] = id + 1;
+    if (++segment.count * 2 > segment.ids.length)
+    {
+      rehash(segment);
+    }
+    return id;
+  }
+
+  /**
+   * @return chunk which has room for the given ID, growing the arrays if necessary
+   */
+  private String[] provideChunk(int id)
+  {
+    int index = id >>> CHUNK_BITS;
+    int offset = id & (CHUNK_SIZE - 1);
+    String[][] directory = chunks;
+    if (index < directory.length && directory[index] != null && offset < directory[index].length)
+    {
+      return directory[index];
+    }
+    directory = Arrays.copyOf(directory, Math.max(directory.length, index + 1));
+    directory[index] = directory[index] == null ? new String[CHUNK_SIZE]
+      : Arrays.copyOf(directory[index], Math.min(CHUNK_SIZE, 2 * directory[index].length));
+    chunks = directory;
+    return directory[index];
+  }
+
+  private void rehash(Segment segment)
+  {
+    int[] oldHashes = segment.hashes;
+    int[] oldIds = segment.ids;
+    segment.hashes = new int[2 * oldIds.length];
+    segment.ids = new int[2 * oldIds.length];
+    int mask = segment.ids.length - 1;
+    for ( int i = 0 ; i < oldIds.length ; i++ )
+    {
+      if (oldIds[i] != 0)
+      {
+        int slot = (oldHashes[i] >>> SEGMENT_BITS) & mask;
+        while (segment.ids[slot] != 0)
+        {
+          slot = (slot + 1) & mask;
+        }
+        segment.hashes[slot] = oldHashes[i];
+        segment.ids[slot] = oldIds[i];
+      }
+    }
+  }
+}
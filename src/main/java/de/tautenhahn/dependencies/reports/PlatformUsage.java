@@ -0,0 +1,80 @@
+package de.tautenhahn.dependencies.reports;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import de.tautenhahn.dependencies.parser.ClassNode;
+import de.tautenhahn.dependencies.parser.ContainerNode;
+import de.tautenhahn.dependencies.parser.JdkIndex;
+import de.tautenhahn.dependencies.parser.Node;
+
+
+/**
+ * Reports which JDK modules are used by which class path entries. May help to find out which modules a
+ * runtime image must contain. Requires the graph to be created by a scanner which knows a {@link JdkIndex}.
+ *
+ * @author TT
+ */
+public class PlatformUsage
+{
+
+  /** number of referencing classes by class path entry, by module */
+  private final SortedMap<String, SortedMap<String, Integer>> content = new TreeMap<>();
+
+  /**
+   * Creates an empty report, for projects scanned without JDK index.
+   */
+  public PlatformUsage()
+  {
+    // nothing known about used modules
+  }
+
+  /**
+   * Creates report for given parsed project.
+   *
+   * @param root root node of components tree to analyze
+   * @param index index the project was scanned with
+   */
+  public PlatformUsage(ContainerNode root, JdkIndex index)
+  {
+    root.walkCompleteSubTree()
+        .filter(n -> n instanceof ClassNode)
+        .map(n -> (ClassNode)n)
+        .forEach(c -> c.getPlatformDependencies()
+                       .stream()
+                       .map(index::getModule)
+                       .distinct()
+                       .forEach(m -> content.computeIfAbsent(m, k -> new TreeMap<>())
+                                            .merge(getEntryName(root, c), 1, Integer::sum)));
+  }
+
+  private static String getEntryName(ContainerNode root, Node node)
+  {
+    Node result = node;
+    while (result.getParent() != root)
+    {
+      result = result.getParent();
+    }
+    return result.getName();
+  }
+
+  /**
+   * @return number of referencing classes by name of the class path entry node, by module name
+   */
+  public Map<String, SortedMap<String, Integer>> getContent()
+  {
+    return content;
+  }
+
+  @Override
+  public String toString()
+  {
+    StringBuilder result = new StringBuilder();
+    content.forEach((m, es) -> {
+      result.append('\n').append(m);
+      es.forEach((e, n) -> result.append("\n   ").append(e).append(" (").append(n).append(" classes)"));
+    });
+    return result.toString();
+  }
+}
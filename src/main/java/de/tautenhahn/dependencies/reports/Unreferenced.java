@@ -1,6 +1,7 @@
 package de.tautenhahn.dependencies.reports;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -9,6 +10,7 @@ import de.tautenhahn.dependencies.parser.ClassNode;
 import de.tautenhahn.dependencies.parser.ContainerNode;
 import de.tautenhahn.dependencies.parser.Filter;
 import de.tautenhahn.dependencies.parser.Node;
+import de.tautenhahn.dependencies.parser.ObservedClasses;
 import de.tautenhahn.dependencies.parser.ParsedClassPath;
 
 
@@ -121,6 +123,28 @@ public class Unreferenced
       checker.setJarContributionLimit(contributing);
       return this;
     }
+
+    /**
+     * Takes classes into account which have been loaded at runtime but are not referenced statically.
+     *
+     * @param observed recorded by the agent
+     */
+    public Builder withObservedClasses(ObservedClasses observed)
+    {
+      checker.addObservedClasses(observed);
+      return this;
+    }
+
+    /**
+     * Takes classes into account which are registered for instantiation by some framework.
+     *
+     * @param classNames as found by the scanner
+     */
+    public Builder withRegisteredClasses(Collection<String> classNames)
+    {
+      checker.addRegisteredClasses(classNames);
+      return this;
+    }
   }
 
   /**
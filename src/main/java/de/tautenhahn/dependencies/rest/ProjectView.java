@@ -1,5 +1,7 @@
 package de.tautenhahn.dependencies.rest;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -12,16 +14,22 @@ import java.util.stream.Collectors;
 
 import de.tautenhahn.dependencies.analyzers.DiGraph;
 import de.tautenhahn.dependencies.analyzers.DiGraph.IndexedNode;
+import de.tautenhahn.dependencies.parser.ClassDirectoryWatcher;
 import de.tautenhahn.dependencies.parser.ClassNode;
+import de.tautenhahn.dependencies.parser.ClassPathConflicts;
 import de.tautenhahn.dependencies.parser.ContainerNode;
 import de.tautenhahn.dependencies.parser.Filter;
+import de.tautenhahn.dependencies.parser.JdkIndex;
 import de.tautenhahn.dependencies.parser.ListModeUtil;
 import de.tautenhahn.dependencies.parser.Node;
 import de.tautenhahn.dependencies.parser.Node.ListMode;
+import de.tautenhahn.dependencies.parser.ObservedClasses;
 import de.tautenhahn.dependencies.parser.ParsedClassPath;
 import de.tautenhahn.dependencies.parser.ProjectScanner;
+import de.tautenhahn.dependencies.parser.ScanCache;
 import de.tautenhahn.dependencies.reports.Metrics;
 import de.tautenhahn.dependencies.reports.MissingClasses;
+import de.tautenhahn.dependencies.reports.PlatformUsage;
 import de.tautenhahn.dependencies.reports.Unreferenced;
 import de.tautenhahn.dependencies.rest.presentation.ArcInfo;
 import de.tautenhahn.dependencies.rest.presentation.DisplayableClasspathEntry;
@@ -30,7 +38,9 @@ import de.tautenhahn.dependencies.rest.presentation.NodeInfo;
 
 
 /**
- * Wraps all data of the current project which can be accessed via the REST server.
+ * Wraps all data of the current project which can be accessed via the REST server. The public methods are
+ * synchronized because the graph may be updated by a {@link ClassDirectoryWatcher} at the same time, which
+ * uses this view as lock.
  *
  * @author TT
  */
@@ -50,36 +60,111 @@ public class ProjectView
 
   private final ParsedClassPath classPath;
 
-  private final Unreferenced unrefReport;
+  private final Filter filter;
 
-  private final MissingClasses missingClassesReport;
+  private final ProjectScanner analyzer;
 
-  private final Metrics metrics;
+  private Unreferenced unrefReport;
+
+  private MissingClasses missingClassesReport;
+
+  private PlatformUsage platformUsageReport;
+
+  private final JdkIndex jdkIndex;
+
+  private ObservedClasses observedClasses;
+
+  private Metrics metrics;
 
   /**
-   * Creates instance for given class path and project name.
+   * Creates instance for given class path and project name without scan cache and JDK index.
    *
    * @param classPath as specified to JVM
    * @param name free identifier
    */
   public ProjectView(String classPath, String name)
+  {
+    this(classPath, name, null, null);
+  }
+
+  /**
+   * Creates instance for given class path and project name.
+   *
+   * @param classPath as specified to JVM
+   * @param name free identifier
+   * @param cache stores parse results of archives for later scans, null to parse everything
+   * @param jdkIndex classifies references to JDK classes for the platform usage report, null to ignore them
+   */
+  public ProjectView(String classPath, String name, ScanCache cache, JdkIndex jdkIndex)
   {
     this.classPath = new ParsedClassPath(classPath);
-    Filter filter = new Filter();
+    filter = new Filter();
     // TODO: parsedPath.removeIf(p -> filter.isIgnoredSource(p.toString()));
-    ProjectScanner analyzer = new ProjectScanner(filter);
+    analyzer = new ProjectScanner(filter);
+    analyzer.setCache(cache);
+    analyzer.setJdkIndex(jdkIndex);
+    this.jdkIndex = jdkIndex;
     root = analyzer.scan(this.classPath);
-    unrefReport = Unreferenced.forProject(root, filter, this.classPath).create();
-    missingClassesReport = new MissingClasses(root, filter);
-    metrics = new Metrics(root, filter);
+    createReports();
     resetListMode();
     projectName = name;
   }
 
+  private void createReports()
+  {
+    Unreferenced.Builder unrefBuilder = Unreferenced.forProject(root, filter, this.classPath)
+                                                    .withRegisteredClasses(analyzer.getRegisteredClasses()
+                                                                                   .keySet());
+    if (observedClasses != null)
+    {
+      unrefBuilder.withObservedClasses(observedClasses);
+    }
+    unrefReport = unrefBuilder.create();
+    missingClassesReport = new MissingClasses(root, filter);
+    platformUsageReport = jdkIndex == null ? new PlatformUsage() : new PlatformUsage(root, jdkIndex);
+    metrics = new Metrics(root, filter);
+  }
+
+  /**
+   * Watches the class directories of the project and updates graph and reports after each change, for
+   * instance after a recompile.
+   *
+   * @return watcher to close when no longer needed
+   * @throws IOException if directories cannot be watched
+   */
+  public ClassDirectoryWatcher watchClassDirectories() throws IOException
+  {
+    ClassDirectoryWatcher watcher = new ClassDirectoryWatcher(analyzer, this, this::refresh);
+    watcher.start();
+    return watcher;
+  }
+
+  /**
+   * Takes the classes into account which have been loaded at runtime as recorded by the observing agent, so
+   * they are not reported as unreferenced. The reports are created again.
+   *
+   * @param file written by the agent
+   * @throws IOException if the file cannot be read
+   */
+  public synchronized void setObservedClasses(Path file) throws IOException
+  {
+    observedClasses = ObservedClasses.read(file);
+    refresh();
+  }
+
+  private synchronized void refresh()
+  {
+    Map<Node, ListMode> listModes = root.walkCompleteSubTree()
+                                        .collect(Collectors.toMap(n -> n, Node::getListMode));
+    createReports(); // metrics change the list modes
+    listModes.forEach(Node::setListMode);
+    computeGraph();
+  }
+
   /**
    * Resets the list mode to display jars and source packages.
    */
-  public final void resetListMode()
+  public final synchronized void resetListMode()
   {
     ListModeUtil.showJarsAndOwnPackages(root);
     computeGraph();
@@ -88,7 +173,7 @@ public class ProjectView
   /**
    * Collapses all nodes except the virtual root. May be useful with large multi-projects.
    */
-  public final void collapseAll()
+  public final synchronized void collapseAll()
   {
     ListModeUtil.showResourcesOnly(root);
     computeGraph();
@@ -102,7 +187,7 @@ public class ProjectView
    * @param value new list mode
    * @return name of node just changed (that node may be no longer displayed)
    */
-  public String changeListMode(int nodeNumber, String value)
+  public synchronized String changeListMode(int nodeNumber, String value)
   {
     Node node = currentGraph.getAllNodes().get(nodeNumber).getNode();
     if ("COLLAPSE_PARENT".equals(value))
@@ -132,7 +217,7 @@ public class ProjectView
    * @return additional information about a node.
    * @param nodeId
    */
-  public NodeInfo getNodeInfo(String nodeId)
+  public synchronized NodeInfo getNodeInfo(String nodeId)
   {
     return new NodeInfo(currentGraph, Integer.parseInt(nodeId));
   }
@@ -141,7 +226,7 @@ public class ProjectView
    * @return additional information about an arc.
    * @param arcId
    */
-  public ArcInfo getArcInfo(String arcId)
+  public synchronized ArcInfo getArcInfo(String arcId)
   {
     return new ArcInfo(currentGraph, arcId);
   }
@@ -149,7 +234,7 @@ public class ProjectView
   /**
    * @return the graph to be shown.
    */
-  DisplayableDiGraph getDisplayableGraph()
+  synchronized DisplayableDiGraph getDisplayableGraph()
   {
     if (currentlyShown == null)
     {
@@ -181,7 +266,7 @@ public class ProjectView
   /**
    * Hides everything except nodes and arcs which are part of a cyclic dependency.
    */
-  public void showOnlyCycles()
+  public synchronized void showOnlyCycles()
   {
     filters.add(new CyclesOnly());
     computeGraph();
@@ -190,7 +275,7 @@ public class ProjectView
   /**
    * removes all restricting filters
    */
-  public void showAll()
+  public synchronized void showAll()
   {
     if (!filters.isEmpty())
     {
@@ -223,7 +308,7 @@ public class ProjectView
   /**
    * @return the report about unreferenced elements.
    */
-  public Unreferenced getUnreferencedReport()
+  public synchronized Unreferenced getUnreferencedReport()
   {
     return unrefReport;
   }
@@ -236,7 +321,7 @@ public class ProjectView
    * @param successors
    * @return changed graph
    */
-  public DisplayableDiGraph restrictToImpliedBy(int nodeIndex, boolean successors)
+  public synchronized DisplayableDiGraph restrictToImpliedBy(int nodeIndex, boolean successors)
   {
     IndexedNode start = currentGraph.getAllNodes().get(nodeIndex);
     String startName = start.getNode().getName();
@@ -250,7 +335,7 @@ public class ProjectView
   /**
    * @return the name of all active filters.
    */
-  public List<String> listActiveFilters()
+  public synchronized List<String> listActiveFilters()
   {
     return filters.stream().map(ViewFilter::getName).collect(Collectors.toList());
   }
@@ -262,7 +347,7 @@ public class ProjectView
    * @param nodeName
    * @return empty list if node is not represented.
    */
-  public List<String> getNodeIDs(String nodeName)
+  public synchronized List<String> getNodeIDs(String nodeName)
   {
     Node listed = Optional.ofNullable(root.find(nodeName)).map(Node::getListedContainer).orElse(null);
     if (listed != null)
@@ -290,15 +375,31 @@ public class ProjectView
   /**
    * @return report about missing classes.
    */
-  public MissingClasses getMissingClassesReport()
+  public synchronized MissingClasses getMissingClassesReport()
   {
     return missingClassesReport;
   }
 
+  /**
+   * @return report about classes found more than once and split packages
+   */
+  public synchronized ClassPathConflicts getConflictsReport()
+  {
+    return analyzer.getConflicts();
+  }
+
+  /**
+   * @return report about used JDK modules, empty if no JDK index is used
+   */
+  public synchronized PlatformUsage getPlatformUsageReport()
+  {
+    return platformUsageReport;
+  }
+
   /**
    * @return record with some metrics.
    */
-  public Metrics getMetrics()
+  public synchronized Metrics getMetrics()
   {
     return metrics;
   }
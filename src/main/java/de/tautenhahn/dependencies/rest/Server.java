@@ -54,6 +54,8 @@ public class Server
     get("view/classpath", (req, res) -> view.getClassPath(), transformer);
     get("view/unrefReport", (req, res) -> view.getUnreferencedReport(), transformer);
     get("view/missingReport", (req, res) -> view.getMissingClassesReport(), transformer);
+    get("view/platformReport", (req, res) -> view.getPlatformUsageReport(), transformer);
+    get("view/conflictReport", (req, res) -> view.getConflictsReport(), transformer);
     get("view/metrics", (req, res) -> view.getMetrics(), transformer);
     get("view/node/:id", (req, res) -> view.getNodeInfo(req.params("id")), transformer);
     get("view/arc/:id", (req, res) -> view.getArcInfo(req.params("id")), transformer);
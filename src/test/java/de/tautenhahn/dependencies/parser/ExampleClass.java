@@ -20,6 +20,8 @@ public class ExampleClass
 
   static final String NOT_A_DEPENDENCY = "(Ljava/util/concurrent/ConcurrentHashMap;)I";
 
+  static final String REFLECTIVE_DEPENDENCY = "de.tautenhahn.dependencies.parser.Pair";
+
   private static final Logger LOG = LoggerFactory.getLogger(ExampleClass.class);
 
   /**
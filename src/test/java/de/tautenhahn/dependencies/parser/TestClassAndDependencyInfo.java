@@ -8,18 +8,24 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.cert.Certificate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -75,8 +81,8 @@ public class TestClassAndDependencyInfo
     }
 
     /**
-     * Parses an example class and checks that field, annotation, argument, return value and variable types are listed
-     * while String constants and generic parameter types are ignored.
+     * Parses an example class and checks that field, annotation, argument, return value, variable and type argument
+     * types are listed while String constants are ignored.
      *
      * @throws IOException
      */
@@ -93,10 +99,104 @@ public class TestClassAndDependencyInfo
                 containsExactlyInAnyOrder(Logger.class.getName(), LoggerFactory.class.getName(), //
                     HashMap.class.getName(), // NOPMD: need class name, not type
                     String.class.getName(), Supplier.class.getName(), List.class.getName(), Boolean.class.getName(),
-                    Object.class.getName(), Deprecated.class.getName(), Class.class.getName());
+                    Object.class.getName(), Deprecated.class.getName(), Class.class.getName(),
+                    Certificate.class.getName(), ArrayList.class.getName());
         }
     }
 
+    /**
+     * Asserts that the kinds of dependencies are found when requested and cost nothing otherwise.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void dependencyKinds() throws IOException
+    {
+        byte[] content;
+        try (InputStream ins = ExampleClass.class.getResourceAsStream(ExampleClass.class.getSimpleName() + ".class"))
+        {
+            content = ins.readAllBytes();
+        }
+        SymbolTable symbols = new SymbolTable();
+        assertThat(ClassAndDependencyInfo.parse(ByteBuffer.wrap(content), ExampleClass.class.getName(), symbols)
+            .getDependencyKinds()).as("kinds if not requested").isNull();
+
+        ClassAndDependencyInfo systemUnderTest =
+            ClassAndDependencyInfo.parse(ByteBuffer.wrap(content), ExampleClass.class.getName(), symbols,
+                new ClassAndDependencyInfo.Options().withDependencyKinds());
+        Map<String, Integer> kinds = new HashMap<>(); // NOPMD: need class name, not type
+        for ( int i = 0 ; i < systemUnderTest.getDependencyIds().length ; i++ )
+        {
+            kinds.put(symbols.get(systemUnderTest.getDependencyIds()[i]),
+                Integer.valueOf(systemUnderTest.getDependencyKinds()[i]));
+        }
+        assertThat(kinds).as("kinds")
+            .containsEntry(Object.class.getName(), Integer.valueOf(DependencyKind.INHERITANCE.getBit()))
+            .containsEntry(Logger.class.getName(), Integer.valueOf(DependencyKind.FIELD.getBit()))
+            .containsEntry(HashMap.class.getName(), Integer.valueOf(DependencyKind.FIELD.getBit()))
+            .containsEntry(Supplier.class.getName(), Integer.valueOf(DependencyKind.SIGNATURE.getBit()))
+            .containsEntry(Deprecated.class.getName(), Integer.valueOf(DependencyKind.ANNOTATION.getBit()))
+            .containsEntry(LoggerFactory.class.getName(), Integer.valueOf(DependencyKind.CODE.getBit()))
+            .containsEntry(String.class.getName(),
+                Integer.valueOf(DependencyKind.maskOf(DependencyKind.FIELD, DependencyKind.SIGNATURE)));
+    }
+
+    /**
+     * Asserts that string constants in the form of class names are listed on request without becoming
+     * dependencies.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void classNameStrings() throws IOException
+    {
+        byte[] content;
+        try (InputStream ins = ExampleClass.class.getResourceAsStream(ExampleClass.class.getSimpleName() + ".class"))
+        {
+            content = ins.readAllBytes();
+        }
+        SymbolTable strings = new SymbolTable();
+        ClassAndDependencyInfo systemUnderTest = ClassAndDependencyInfo.parse(ByteBuffer.wrap(content),
+            ExampleClass.class.getName(), new SymbolTable(), new ClassAndDependencyInfo.Options().withClassNameStrings(
+                strings));
+        assertThat(Arrays.stream(systemUnderTest.getClassNameStrings()).mapToObj(strings::get)).as("candidates")
+            .containsExactlyInAnyOrder(ExampleClass.REFLECTIVE_DEPENDENCY, "java.util.ConcurrentModificationException");
+        assertThat(systemUnderTest.getDependencies()).as("dependencies").doesNotContain(Pair.class.getName());
+    }
+
+    /**
+     * Asserts that a class given inside some direct buffer is parsed in place with the same result as from a stream.
+     * Position and limit of the buffer must not be changed.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void parseBuffer() throws IOException
+    {
+        byte[] content;
+        try (InputStream ins = ExampleClass.class.getResourceAsStream(ExampleClass.class.getSimpleName() + ".class"))
+        {
+            content = ins.readAllBytes();
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(content.length + 10);
+        buffer.position(10);
+        buffer.put(content);
+        buffer.position(10);
+
+        SymbolTable symbols = new SymbolTable();
+        ClassAndDependencyInfo systemUnderTest =
+            ClassAndDependencyInfo.parse(buffer, ExampleClass.class.getName(), symbols);
+        assertThat(systemUnderTest.getDependencies()).as("dependencies")
+            .containsExactlyInAnyOrderElementsOf(
+                ClassAndDependencyInfo.parse(content, ExampleClass.class.getName()).getDependencies());
+        assertThat(buffer.position()).as("position").isEqualTo(10);
+        assertThat(systemUnderTest.getDependencyIds()).as("dependency IDs")
+            .contains(symbols.find(Logger.class.getName()))
+            .doesNotContain(systemUnderTest.getClassId());
+        assertThatThrownBy(() -> ClassAndDependencyInfo.parse(Arrays.copyOf(content, 100),
+            ExampleClass.class.getName())).isInstanceOf(IllegalArgumentException.class);
+    }
+
     /**
      * Asserts that an exception is thrown if class has not the expected name.
      *
@@ -112,6 +212,55 @@ public class TestClassAndDependencyInfo
         }
     }
 
+    /**
+     * Asserts that classes of recent versions are parsed, including constant pool entries for dynamic constants,
+     * modules and packages. Illegal tags must be rejected.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void recentClassFileVersion() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes))
+        {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(65);
+            out.writeShort(10);
+            out.writeByte(1);
+            out.writeUTF("Foo");
+            out.writeByte(7);
+            out.writeShort(1);
+            out.writeByte(1);
+            out.writeUTF("Ljava/util/List;");
+            out.writeByte(1);
+            out.writeUTF("name");
+            out.writeByte(12);
+            out.writeShort(4);
+            out.writeShort(3);
+            out.writeByte(17);
+            out.writeShort(0);
+            out.writeShort(5);
+            out.writeByte(1);
+            out.writeUTF("some/Module");
+            out.writeByte(19);
+            out.writeShort(7);
+            out.writeByte(20);
+            out.writeShort(7);
+            out.writeShort(0x21);
+            out.writeShort(2);
+            out.write(new byte[10]);
+        }
+        byte[] content = bytes.toByteArray();
+        assertThat(ClassAndDependencyInfo.parse(content, "Foo").getDependencies()).as("dependencies")
+            .containsExactly(List.class.getName());
+
+        content[50] = 21;
+        assertThatThrownBy(() -> ClassAndDependencyInfo.parse(content, "Foo")).as("illegal tag")
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
     /**
      * Assert that class names are taken from method descriptors.
      */
@@ -0,0 +1,181 @@
+package de.tautenhahn.dependencies.parser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for updating the graph after class files have changed. Uses class files of the current build.
+ *
+ * @author TT
+ */
+public class TestClassDirectoryWatcher
+{
+
+    private static final Path CLASSES = Paths.get("build", "classes", "java", "main");
+
+    private static final String PAIR = Pair.class.getName();
+
+    /**
+     * Asserts that deleted classes are removed from the graph and become missing, re-created classes are
+     * linked again.
+     *
+     * @throws IOException in case of file system problems
+     */
+    @Test
+    public void updateGraph() throws IOException
+    {
+        Path dir = createClassDirectory();
+        ProjectScanner systemUnderTest = new ProjectScanner(new Filter());
+        ContainerNode root = systemUnderTest.scan(new ParsedClassPath(dir.toString()));
+        ClassNode container = find(root, ContainerNode.class.getName());
+        assertThat(container.getSucLeafs()).as("successors").contains(find(root, PAIR));
+
+        Path pairFile = dir.resolve(toResource(PAIR));
+        Files.delete(pairFile);
+        systemUnderTest.update(dir, Collections.singletonList(pairFile));
+        assertThat(find(root, PAIR)).as("deleted node").isNull();
+        assertThat(container.getMissingDependencies()).as("missing").contains(PAIR);
+
+        copy(PAIR, dir);
+        systemUnderTest.update(dir, Collections.singletonList(pairFile));
+        assertThat(container.getSucLeafs()).as("successors").contains(find(root, PAIR));
+        assertThat(container.getMissingDependencies()).as("missing").doesNotContain(PAIR);
+        assertThat(find(root, PAIR).getPredecessors()).as("predecessors").containsExactly(container);
+    }
+
+    /**
+     * Asserts that the watcher updates the graph after a class file has been deleted.
+     *
+     * @throws IOException in case of file system problems
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Test
+    public void watch() throws IOException, InterruptedException
+    {
+        Path dir = createClassDirectory();
+        ProjectScanner scanner = new ProjectScanner(new Filter());
+        ContainerNode root = scanner.scan(new ParsedClassPath(dir.toString()));
+        Semaphore updates = new Semaphore(0);
+        try (ClassDirectoryWatcher systemUnderTest = new ClassDirectoryWatcher(scanner, root, updates::release))
+        {
+            systemUnderTest.start();
+            Files.delete(dir.resolve(toResource(PAIR)));
+            assertThat(updates.tryAcquire(20, TimeUnit.SECONDS)).as("update done").isTrue();
+        }
+        synchronized (root)
+        {
+            assertThat(find(root, PAIR)).as("deleted node").isNull();
+            assertThat(find(root, ContainerNode.class.getName()).getMissingDependencies()).as("missing")
+                .contains(PAIR);
+        }
+    }
+
+    /**
+     * Asserts that a class file which cannot be parsed, like one the compiler is still writing, leaves the
+     * graph unchanged.
+     *
+     * @throws IOException in case of file system problems
+     */
+    @Test
+    public void updateWithTruncatedFile() throws IOException
+    {
+        Path dir = createClassDirectory();
+        ProjectScanner systemUnderTest = new ProjectScanner(new Filter());
+        ContainerNode root = systemUnderTest.scan(new ParsedClassPath(dir.toString()));
+        Path containerFile = dir.resolve(toResource(ContainerNode.class.getName()));
+        Path pairFile = dir.resolve(toResource(PAIR));
+        Files.write(pairFile, truncated(pairFile));
+        List<Path> changed = Arrays.asList(containerFile, pairFile);
+        assertThatThrownBy(() -> systemUnderTest.update(dir, changed)).as("parsing truncated file")
+            .isInstanceOf(RuntimeException.class);
+        ClassNode container = find(root, ContainerNode.class.getName());
+        assertThat(container.getSucLeafs()).as("successors").contains(find(root, PAIR));
+        assertThat(find(root, PAIR).getPredecessors()).as("predecessors").containsExactly(container);
+    }
+
+    /**
+     * Asserts that the watcher survives a truncated class file and updates the graph when the file is
+     * complete.
+     *
+     * @throws IOException in case of file system problems
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Test
+    public void watchTruncatedFile() throws IOException, InterruptedException
+    {
+        Path dir = createClassDirectory();
+        ProjectScanner scanner = new ProjectScanner(new Filter());
+        ContainerNode root = scanner.scan(new ParsedClassPath(dir.toString()));
+        Semaphore updates = new Semaphore(0);
+        String nodeClass = Node.class.getName();
+        Path nodeFile = dir.resolve(toResource(nodeClass));
+        try (ClassDirectoryWatcher systemUnderTest = new ClassDirectoryWatcher(scanner, root, updates::release))
+        {
+            systemUnderTest.start();
+            Files.write(nodeFile, truncated(CLASSES.resolve(toResource(nodeClass))));
+            assertThat(updates.tryAcquire(20, TimeUnit.SECONDS)).as("update tried").isTrue();
+            synchronized (root)
+            {
+                assertThat(find(root, nodeClass)).as("node of truncated class").isNull();
+            }
+            Files.copy(CLASSES.resolve(toResource(nodeClass)), nodeFile, StandardCopyOption.REPLACE_EXISTING);
+            assertThat(updates.tryAcquire(20, TimeUnit.SECONDS)).as("update done").isTrue();
+        }
+        synchronized (root)
+        {
+            assertThat(find(root, nodeClass)).as("node of completed class").isNotNull();
+            assertThat(find(root, ContainerNode.class.getName()).getSucLeafs()).as("successors")
+                .contains(find(root, nodeClass));
+        }
+    }
+
+    private static byte[] truncated(Path file) throws IOException
+    {
+        byte[] content = Files.readAllBytes(file);
+        return Arrays.copyOf(content, content.length / 3);
+    }
+
+    private static Path createClassDirectory() throws IOException
+    {
+        Path dir = Files.createTempDirectory("classes");
+        copy(PAIR, dir);
+        copy(ContainerNode.class.getName(), dir);
+        return dir;
+    }
+
+    private static void copy(String className, Path dir) throws IOException
+    {
+        Path target = dir.resolve(toResource(className));
+        Files.createDirectories(target.getParent());
+        Files.copy(CLASSES.resolve(toResource(className)), target);
+    }
+
+    private static String toResource(String className)
+    {
+        return className.replace('.', '/') + ".class";
+    }
+
+    private static ClassNode find(ContainerNode root, String className)
+    {
+        return root.walkCompleteSubTree()
+            .filter(n -> n instanceof ClassNode)
+            .map(n -> (ClassNode)n)
+            .filter(n -> n.getClassName().equals(className))
+            .findAny()
+            .orElse(null);
+    }
+}
@@ -0,0 +1,135 @@
+package de.tautenhahn.dependencies.parser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for reading and parsing files in a pipeline.
+ *
+ * @author TT
+ */
+public class TestClassFilePipeline
+{
+
+    /**
+     * Asserts that each submitted file is handed to its parser with the complete content.
+     *
+     * @throws IOException in case of file system problems
+     */
+    @Test
+    public void readAll() throws IOException
+    {
+        List<Path> files = listClassFiles();
+        Map<Path, Integer> sizes = new ConcurrentHashMap<>();
+        try (ClassFilePipeline systemUnderTest = new ClassFilePipeline();
+            ClassFilePipeline.Batch batch = systemUnderTest.startBatch())
+        {
+            for ( Path file : files )
+            {
+                batch.submit(file, content -> sizes.put(file, content.remaining()));
+            }
+        }
+        assertThat(sizes).as("parsed files").hasSameSizeAs(files);
+        for ( Path file : files )
+        {
+            assertThat(sizes.get(file)).as("size of " + file).isEqualTo((int)Files.size(file));
+        }
+    }
+
+    /**
+     * Asserts that several batches can be filled concurrently using the same threads and closing a batch waits
+     * for its own files only.
+     *
+     * @throws Exception in case of file system problems or failed batches
+     */
+    @Test
+    public void concurrentBatches() throws Exception
+    {
+        List<Path> files = listClassFiles();
+        Map<Path, Integer> sizes = new ConcurrentHashMap<>();
+        ExecutorService submitters = Executors.newFixedThreadPool(4);
+        try (ClassFilePipeline systemUnderTest = new ClassFilePipeline())
+        {
+            List<Future<Integer>> parsedPerBatch = new ArrayList<>();
+            for ( int i = 0 ; i < 4 ; i++ )
+            {
+                List<Path> part = files.subList(i * files.size() / 4, (i + 1) * files.size() / 4);
+                parsedPerBatch.add(submitters.submit(() -> {
+                    AtomicInteger parsed = new AtomicInteger();
+                    try (ClassFilePipeline.Batch batch = systemUnderTest.startBatch())
+                    {
+                        for ( Path file : part )
+                        {
+                            batch.submit(file, content -> {
+                                sizes.put(file, content.remaining());
+                                parsed.incrementAndGet();
+                            });
+                        }
+                    }
+                    return parsed.get() - part.size();
+                }));
+            }
+            for ( Future<Integer> result : parsedPerBatch )
+            {
+                assertThat(result.get()).as("files not parsed when batch closed").isZero();
+            }
+        }
+        finally
+        {
+            submitters.shutdown();
+        }
+        assertThat(sizes).as("parsed files").hasSameSizeAs(files);
+    }
+
+    /**
+     * Asserts that an exception thrown by a parser is thrown when closing its batch and other batches are not
+     * affected.
+     *
+     * @throws IOException in case of file system problems
+     */
+    @Test
+    public void parserFails() throws IOException
+    {
+        Path file = Files.write(Files.createTempFile("some", ".class"), new byte[]{1, 2, 3});
+        try (ClassFilePipeline systemUnderTest = new ClassFilePipeline())
+        {
+            ClassFilePipeline.Batch failing = systemUnderTest.startBatch();
+            failing.submit(file, ByteBuffer::getLong);
+            assertThatThrownBy(failing::close).as("exception").isInstanceOf(RuntimeException.class);
+
+            List<Integer> sizes = new ArrayList<>();
+            try (ClassFilePipeline.Batch batch = systemUnderTest.startBatch())
+            {
+                batch.submit(file, content -> sizes.add(content.remaining()));
+            }
+            assertThat(sizes).as("parsed by next batch").containsExactly(3);
+        }
+    }
+
+    private static List<Path> listClassFiles() throws IOException
+    {
+        try (Stream<Path> treeRes = Files.walk(Paths.get("build", "classes", "java", "main")))
+        {
+            return treeRes.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+    }
+}
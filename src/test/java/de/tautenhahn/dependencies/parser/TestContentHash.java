@@ -0,0 +1,48 @@
+package de.tautenhahn.dependencies.parser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for hashing class file contents.
+ *
+ * @author TT
+ */
+public class TestContentHash
+{
+
+    /**
+     * Asserts that the published reference values of XXH64 are reproduced.
+     */
+    @Test
+    public void referenceValues()
+    {
+        assertThat(ContentHash.of(ByteBuffer.allocate(0))).as("empty").isEqualTo(0xEF46DB3751D8E999L);
+        assertThat(ContentHash.of(ByteBuffer.wrap("a".getBytes(StandardCharsets.US_ASCII)))).as("a")
+            .isEqualTo(0xD24EC4F1A98C6E5BL);
+        assertThat(ContentHash.of(ByteBuffer.wrap("abc".getBytes(StandardCharsets.US_ASCII)))).as("abc")
+            .isEqualTo(0x44BC2CF5AD770999L);
+    }
+
+    /**
+     * Asserts that only the bytes between position and limit count and the buffer is not changed.
+     */
+    @Test
+    public void respectsPosition()
+    {
+        byte[] content = "some longer content exceeding one stripe of 32 bytes".getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer buf = ByteBuffer.allocate(content.length + 3);
+        buf.position(3);
+        buf.put(content).position(3);
+        assertThat(ContentHash.of(buf)).as("hash").isEqualTo(ContentHash.of(ByteBuffer.wrap(content)));
+        assertThat(buf.position()).as("position").isEqualTo(3);
+        content[40]++;
+        assertThat(ContentHash.of(buf)).as("hash of changed content")
+            .isNotEqualTo(ContentHash.of(ByteBuffer.wrap(content)));
+    }
+}
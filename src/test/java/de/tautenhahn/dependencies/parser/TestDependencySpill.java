@@ -0,0 +1,47 @@
+package de.tautenhahn.dependencies.parser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for writing dependency lists into a temporary file.
+ *
+ * @author TT
+ */
+public class TestDependencySpill
+{
+
+    /**
+     * Asserts that lists are read back unchanged, also if they do not fit into the rest of a segment.
+     *
+     * @throws IOException in case of file system problems
+     */
+    @Test
+    public void appendAndRead() throws IOException
+    {
+        int[][] lists = {{1, 2, 3}, {}, {4, 5, 6, 7, 8}, {9}, {10, 11, 12, 13, 14, 15, 16, 17}, {18, 19}};
+        long[] positions = new long[lists.length];
+        try (DependencySpill systemUnderTest = new DependencySpill(8))
+        {
+            for ( int i = 0 ; i < lists.length ; i++ )
+            {
+                positions[i] = systemUnderTest.append(lists[i]);
+            }
+            assertThatThrownBy(() -> systemUnderTest.append(new int[9])).as("too long")
+                .isInstanceOf(IllegalArgumentException.class);
+            systemUnderTest.finish();
+            for ( int i = 0 ; i < lists.length ; i++ )
+            {
+                assertThat(systemUnderTest.read(positions[i], lists[i].length)).as("list " + i)
+                    .containsExactly(lists[i]);
+            }
+            assertThatThrownBy(() -> systemUnderTest.append(1)).as("append after finish")
+                .isInstanceOf(IllegalStateException.class);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package de.tautenhahn.dependencies.parser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for scanning descriptors and generic signatures.
+ *
+ * @author TT
+ */
+public class TestDescriptorScanner
+{
+
+    /**
+     * Asserts that classes used as type arguments are reported regardless of their nesting depth together with
+     * the class itself and following types.
+     */
+    @Test
+    public void nestedGenerics()
+    {
+        assertThat(scan("Ljava/util/Map<Ljava/util/List<Ljava/lang/String;>;Ljava/lang/Integer;>;Ljava/io/File;"))
+            .as("class names")
+            .containsExactlyInAnyOrder("java.util.Map", "java.util.List", "java.lang.String", "java.lang.Integer",
+                "java.io.File");
+        assertThat(scan("Ljava/util/List<*>;Ljava/util/Map<+[Lfoo/Key;-Lfoo/Value<TT;>;>;"))
+            .as("wildcards and arrays")
+            .containsExactlyInAnyOrder("java.util.List", "java.util.Map", "foo.Key", "foo.Value");
+    }
+
+    /**
+     * Asserts that inner classes of parameterized types get their binary name and type variables are ignored.
+     */
+    @Test
+    public void innerClassesAndTypeVariables()
+    {
+        assertThat(scan("(TT;Lfoo/Outer<TT;>.Inner<TU;>;[[Lfoo/A$B$C;)TU;^Ljava/io/IOException;^TX;"))
+            .as("class names")
+            .containsExactly("foo.Outer$Inner", "foo.A$B$C", "java.io.IOException");
+    }
+
+    /**
+     * Asserts that bounds of formal type parameters are reported.
+     */
+    @Test
+    public void formalTypeParameters()
+    {
+        assertThat(scan("<K:Ljava/lang/Object;V::Ljava/lang/Comparable<-TV;>;:Ljava/io/Serializable;>"
+            + "Ljava/util/AbstractMap<TK;TV;>;"))
+            .as("class names")
+            .containsExactly("java.lang.Object", "java.lang.Comparable", "java.io.Serializable",
+                "java.util.AbstractMap");
+    }
+
+    /**
+     * Asserts that strings which are not descriptors do not produce names.
+     */
+    @Test
+    public void noDescriptor()
+    {
+        assertThat(scan("LOG")).as("field name").isEmpty();
+        assertThat(scan("java/lang/Object")).as("internal class name").isEmpty();
+        assertThat(scan("Hello World;")).as("text").isEmpty();
+        assertThat(scan("(Ljava/lang/String")).as("truncated").isEmpty();
+        assertThat(scan("L;")).as("empty name").isEmpty();
+    }
+
+    private List<String> scan(String descriptor)
+    {
+        List<String> result = new ArrayList<>();
+        byte[] content = descriptor.getBytes(StandardCharsets.UTF_8);
+        new DescriptorScanner().scan(ByteBuffer.wrap(content), 0, content.length,
+            (n, l, a) -> result.add(new String(n, 0, l, StandardCharsets.UTF_8)));
+        return result;
+    }
+}
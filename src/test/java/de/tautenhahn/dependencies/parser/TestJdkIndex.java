@@ -0,0 +1,60 @@
+package de.tautenhahn.dependencies.parser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for the index of JDK classes.
+ *
+ * @author TT
+ */
+public class TestJdkIndex
+{
+
+    /**
+     * Asserts that classes of the requested modules are found with their module.
+     *
+     * @throws IOException in case of file system problems
+     */
+    @Test
+    public void scanModules() throws IOException
+    {
+        JdkIndex systemUnderTest = JdkIndex.scan(Arrays.asList("java.base", "java.sql"));
+        assertThat(systemUnderTest.getModules()).as("modules").containsExactly("java.base", "java.sql");
+        assertThat(systemUnderTest.getModule(String.class.getName())).as("module of String").isEqualTo("java.base");
+        assertThat(systemUnderTest.getModule(Connection.class.getName())).as("module of Connection")
+            .isEqualTo("java.sql");
+        assertThat(systemUnderTest.getModule(Map.Entry.class.getName())).as("module of inner class")
+            .isEqualTo("java.base");
+        assertThat(systemUnderTest.getModule(JdkIndex.class.getName())).as("module of own class").isNull();
+    }
+
+    /**
+     * Asserts that the index is stored once and read again.
+     *
+     * @throws IOException in case of file system problems
+     */
+    @Test
+    public void load() throws IOException
+    {
+        Path dir = Files.createTempDirectory("jdk");
+        JdkIndex created = JdkIndex.load(dir);
+        assertThat(dir.toFile().list()).as("stored files").hasSize(1);
+        JdkIndex loaded = JdkIndex.load(dir);
+        assertThat(loaded.getJdkVersion()).as("version").isEqualTo(created.getJdkVersion());
+        assertThat(loaded.getModules()).as("modules").isEqualTo(created.getModules()).contains("java.sql");
+        assertThat(loaded.getModule(Connection.class.getName())).as("module of Connection").isEqualTo("java.sql");
+        assertThat(JdkIndex.scan(Collections.emptyList()).getModules()).as("all modules")
+            .isEqualTo(created.getModules());
+    }
+}
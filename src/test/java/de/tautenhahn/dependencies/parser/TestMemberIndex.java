@@ -0,0 +1,50 @@
+package de.tautenhahn.dependencies.parser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+
+import de.tautenhahn.dependencies.parser.MemberIndex.Member;
+
+
+/**
+ * Unit tests for recording referenced and declared members.
+ *
+ * @author TT
+ */
+public class TestMemberIndex
+{
+
+    /**
+     * Scans this project and asserts that referenced, declared, used and unused members are listed.
+     */
+    @Test
+    public void scanMembers()
+    {
+        ProjectScanner systemUnderTest = new ProjectScanner(new Filter());
+        assertThat(systemUnderTest.getMemberIndex()).as("index if not requested").isNull();
+        systemUnderTest.setRecordMembers(true);
+        ContainerNode root = systemUnderTest.scan(new ParsedClassPath(Paths.get("build", "classes", "java", "main")
+            + File.pathSeparator + Paths.get("build", "classes", "java", "test")));
+        MemberIndex index = systemUnderTest.getMemberIndex();
+
+        ClassNode scanner = (ClassNode)root.find("dir:main." + ProjectScanner.class.getName());
+        ClassNode pair = (ClassNode)root.find("dir:main." + Pair.class.getName());
+        Member intern = new Member(SymbolTable.class.getName(), "intern", "(Ljava/lang/String;)I");
+        assertThat(index.getReferencedMembers(scanner)).as("referenced by scanner").contains(intern);
+        assertThat(index.getDeclaredMembers(pair)).as("declared by Pair")
+            .contains(new Member(Pair.class.getName(), "getFirst", "()Ljava/lang/Object;"));
+
+        Node main = root.find("dir:main");
+        assertThat(index.getUsedMembers(main)).as("used by tests")
+            .contains(new Member(MemberIndex.class.getName(), "getUsedMembers",
+                "(Lde/tautenhahn/dependencies/parser/Node;)Ljava/util/List;"));
+        assertThat(index.getUnusedPublicMembers(pair)).as("unused in Pair")
+            .doesNotContain(new Member(Pair.class.getName(), "getFirst", "()Ljava/lang/Object;"));
+        assertThat(index.getUnusedPublicMembers(root.find("dir:test")).stream().map(Member::getName))
+            .as("unused test methods").contains("scanMembers");
+    }
+}
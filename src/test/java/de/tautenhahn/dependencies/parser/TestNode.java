@@ -50,6 +50,13 @@ public class TestNode
         assertThat(dummy.getName()).as("name of leaf").isEqualTo(PKG_1 + ".Dummy");
         assertThat(dummy.getClassName()).as("class name").isEqualTo("de.tautenhahn.example.Dummy");
         assertThat(dummy.getChildByName("egal")).as("child").isNull();
+
+        ContainerNode other = ContainerNode.createRoot();
+        ClassNode inWar = other.createInnerChild("war:app_war.jar:lib_jar.org.example").createLeaf("Some");
+        assertThat(inWar.getName()).as("name in nested archive")
+            .isEqualTo("war:app_war.jar:lib_jar.org.example.Some");
+        assertThat(inWar.getClassName()).as("class name in nested archive").isEqualTo("org.example.Some");
+        assertThat(other.createLeaf("Top").getClassName()).as("class name without container").isEqualTo("Top");
     }
 
     /**
@@ -85,6 +92,20 @@ public class TestNode
         assertThat(alien.getPredecessors()).as("collapsed predecessor").contains(systemUnderTest);
     }
 
+    /**
+     * Asserts that each tree numbers its class nodes separately, so repeated scans in the same JVM do not use
+     * ever growing IDs.
+     */
+    @Test
+    public void leafIdsPerTree()
+    {
+        ContainerNode first = ContainerNode.createRoot();
+        ContainerNode second = ContainerNode.createRoot();
+        assertThat(first.createInnerChild("jar:a_jar.x").createLeaf("A").getId()).as("first in first tree").isZero();
+        assertThat(second.createLeaf("B").getId()).as("first in second tree").isZero();
+        assertThat(first.createLeaf("C").getId()).as("second in first tree").isEqualTo(1);
+    }
+
     /**
      * Checks whether the used method to expand many nodes at once really works.
      */
@@ -0,0 +1,123 @@
+package de.tautenhahn.dependencies.parser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for the array based storage of class node dependencies.
+ *
+ * @author TT
+ */
+public class TestNodeStore
+{
+
+    /**
+     * Asserts that neighbours are sorted and unique regardless of insertion order and that kinds are combined.
+     */
+    @Test
+    public void addAndFind()
+    {
+        ContainerNode root = ContainerNode.createRoot();
+        ClassNode a = root.createLeaf("A");
+        ClassNode b = root.createLeaf("B");
+        ClassNode c = root.createLeaf("C");
+        ClassNode d = root.createLeaf("D");
+        ClassNode systemUnderTest = root.createLeaf("X");
+
+        systemUnderTest.addSuccessor(c, DependencyKind.ALL);
+        systemUnderTest.addSuccessor(a, DependencyKind.FIELD.getBit());
+        systemUnderTest.addSuccessor(c, DependencyKind.ALL);
+        systemUnderTest.addSuccessors(new ClassNode[] {d, c, b, d}, null, 4);
+        systemUnderTest.addSuccessor(b, DependencyKind.CODE.getBit());
+        assertThat(systemUnderTest.getSucLeafs()).as("neighbours").containsExactly(a, b, c, d);
+        assertThat(systemUnderTest.getDependencyKinds(a)).as("kinds of a").isEqualTo(DependencyKind.FIELD.getBit());
+        assertThat(systemUnderTest.getDependencyKinds(b)).as("kinds of b").isEqualTo(DependencyKind.ALL);
+        assertThat(systemUnderTest.getSucLeafs().indexOf(root)).as("index of container").isEqualTo(-1);
+        assertThat(b.getPredLeafs()).as("predecessors of b").containsExactly(systemUnderTest);
+
+        systemUnderTest.removeSuccessor(b);
+        systemUnderTest.trimLinks();
+        assertThat(systemUnderTest.getSucLeafs()).as("after remove").containsExactly(a, c, d);
+        assertThat(systemUnderTest.getSucLeafs().contains(b)).as("contains removed").isFalse();
+        assertThat(b.getPredLeafs()).as("predecessors of removed").isEmpty();
+        assertThat(systemUnderTest.getDependencyKindsAt(1)).as("kinds of c").isEqualTo(DependencyKind.ALL);
+        assertThatThrownBy(() -> systemUnderTest.getSucLeafs().add(b)).as("adding from outside")
+            .isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> systemUnderTest.getSucLeafs().remove((Object)a)).as("removal from outside")
+            .isInstanceOf(UnsupportedOperationException.class);
+
+        systemUnderTest.removeSuccessors();
+        assertThat(systemUnderTest.getSucLeafs()).as("cleared").isEmpty();
+        assertThat(a.getPredLeafs()).as("predecessors after clear").isEmpty();
+    }
+
+    /**
+     * Asserts that a batch of neighbours with kinds is merged into existing neighbours, combining the kinds of
+     * duplicates.
+     */
+    @Test
+    public void insertAllWithKinds()
+    {
+        ContainerNode root = ContainerNode.createRoot();
+        ClassNode a = root.createLeaf("A");
+        ClassNode b = root.createLeaf("B");
+        ClassNode c = root.createLeaf("C");
+        ClassNode d = root.createLeaf("D");
+        ClassNode systemUnderTest = root.createLeaf("X");
+
+        systemUnderTest.addSuccessors(new ClassNode[] {c, a}, null, 2);
+        assertThat(systemUnderTest.getSucLeafs(DependencyKind.FIELD.getBit())).as("kinds without specific masks")
+            .containsExactly(a, c);
+        byte field = (byte)DependencyKind.FIELD.getBit();
+        byte code = (byte)DependencyKind.CODE.getBit();
+        systemUnderTest.addSuccessors(new ClassNode[] {d, b, d, a}, new byte[] {field, code, code, field}, 4);
+        assertThat(systemUnderTest.getSucLeafs()).as("neighbours").containsExactly(a, b, c, d);
+        assertThat(systemUnderTest.getDependencyKindsAt(0)).as("kinds of a").isEqualTo(DependencyKind.ALL);
+        assertThat(systemUnderTest.getDependencyKindsAt(1)).as("kinds of b").isEqualTo(code);
+        assertThat(systemUnderTest.getDependencyKindsAt(2)).as("kinds of c").isEqualTo(DependencyKind.ALL);
+        assertThat(systemUnderTest.getDependencyKindsAt(3)).as("kinds of d").isEqualTo(field | code);
+        assertThat(d.getPredLeafs()).as("predecessors of d").containsExactly(systemUnderTest);
+        systemUnderTest.addSuccessors(new ClassNode[] {b}, null, 0);
+        assertThat(systemUnderTest.getSucLeafs()).as("after empty batch").hasSize(4);
+    }
+
+    /**
+     * Asserts that nodes on several pages are stored independently, that reading missing dependencies does not
+     * create anything and that nodes of other trees are never found.
+     */
+    @Test
+    public void severalPages()
+    {
+        ContainerNode root = ContainerNode.createRoot();
+        ClassNode[] nodes = new ClassNode[2 * NodeStore.PAGE_SIZE + 3];
+        for ( int i = 0 ; i < nodes.length ; i++ )
+        {
+            nodes[i] = root.createInnerChild("dir:main.p" + i % 7).createLeaf("C" + i);
+        }
+        ClassNode last = nodes[nodes.length - 1];
+        last.addSuccessors(new ClassNode[] {nodes[0], nodes[NodeStore.PAGE_SIZE]}, null, 2);
+        nodes[0].addSuccessor(last);
+        assertThat(last.getSucLeafs()).as("successors").containsExactly(nodes[0], nodes[NodeStore.PAGE_SIZE]);
+        assertThat(last.getPredLeafs()).as("predecessors").containsExactly(nodes[0]);
+        assertThat(nodes[NodeStore.PAGE_SIZE].getPredLeafs()).as("predecessors on other page").containsExactly(last);
+
+        assertThat(last.getMissingDependencies()).as("missing before adding").isSameAs(Collections.emptyList());
+        assertThat(last.hasMissingDependencies()).as("has missing").isFalse();
+        last.addMissingDependency("some.Missing");
+        assertThat(last.getMissingDependencies()).as("missing").containsExactly("some.Missing");
+        assertThat(nodes[0].getPlatformDependencies()).as("platform").isSameAs(Collections.emptyList());
+
+        ClassNode alien = ContainerNode.createRoot().createLeaf("Alien");
+        assertThat(alien.getId()).as("id in other tree").isEqualTo(nodes[0].getId());
+        assertThat(last.getSucLeafs().contains(alien)).as("contains node of other tree").isFalse();
+        assertThat(last.getDependencyKinds(alien)).as("kinds of node of other tree").isZero();
+
+        root.remove(last);
+        assertThat(nodes[0].getStore().getNode(last.getId())).as("released node").isNull();
+    }
+}
@@ -0,0 +1,114 @@
+package de.tautenhahn.dependencies.parser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import de.tautenhahn.dependencies.analyzers.ReferenceChecker;
+import de.tautenhahn.dependencies.reports.Unreferenced;
+import de.tautenhahn.dependencies.rest.ProjectView;
+
+
+/**
+ * Unit tests for recording classes at runtime.
+ *
+ * @author TT
+ */
+public class TestObservingAgent
+{
+
+    /**
+     * Asserts that loaded classes are recorded with their dependencies and classes of the boot class loader
+     * are skipped.
+     *
+     * @throws Exception in case of file system problems
+     */
+    @Test
+    public void recordClasses() throws Exception
+    {
+        ObservedClasses observed = observe(Pair.class, SymbolTable.class);
+        assertThat(observed.getClassNames()).as("classes")
+            .containsExactlyInAnyOrder(Pair.class.getName(), SymbolTable.class.getName());
+        assertThat(observed.getNeededClassNames()).as("needed classes").contains(Pair.class.getName(),
+                                                                                 Object.class.getName());
+
+        Path file = Files.createTempDirectory("agent").resolve("observed.bin");
+        observed.write(file);
+        assertThat(ObservedClasses.read(file).getNeededClassNames()).as("read again")
+            .isEqualTo(observed.getNeededClassNames());
+    }
+
+    /**
+     * Asserts that observed classes and the jars containing them are not reported as unreferenced.
+     *
+     * @throws Exception in case of file system problems
+     */
+    @Test
+    public void overlay() throws Exception
+    {
+        ContainerNode root = ContainerNode.createRoot();
+        root.createLeaf("dir:main." + Pair.class.getName());
+        root.createLeaf("jar:lib_jar." + SymbolTable.class.getName());
+        ReferenceChecker systemUnderTest = new ReferenceChecker(root, new Filter(),
+                                                                ParsedClassPath.getCurrentClassPath());
+        assertThat(systemUnderTest.getUnrefClasses()).as("unref classes").hasSize(1);
+        assertThat(systemUnderTest.getUnrefJars()).as("unref jars").hasSize(1);
+
+        systemUnderTest.addObservedClasses(observe(Pair.class, SymbolTable.class));
+        assertThat(systemUnderTest.getUnrefClasses()).as("unref classes").isEmpty();
+        assertThat(systemUnderTest.getUnrefJars()).as("unref jars").isEmpty();
+    }
+
+    /**
+     * Asserts that the view reads a file written by the agent and takes the observed classes into account for
+     * the unreferenced report.
+     *
+     * @throws Exception in case of file system problems
+     */
+    @Test
+    public void projectView() throws Exception
+    {
+        ProjectView systemUnderTest = new ProjectView(Paths.get("build", "classes", "java", "main")
+            .toAbsolutePath()
+            .toString(), "GordianKnot");
+        assertThat(unrefClassNames(systemUnderTest)).as("unreferenced before")
+            .contains(ObservingAgent.class.getName());
+
+        Path file = Files.createTempDirectory("agent").resolve("observed.bin");
+        observe(ObservingAgent.class).write(file);
+        systemUnderTest.setObservedClasses(file);
+        assertThat(unrefClassNames(systemUnderTest)).as("unreferenced after")
+            .doesNotContain(ObservingAgent.class.getName());
+    }
+
+    private static List<String> unrefClassNames(ProjectView view)
+    {
+        return view.getUnreferencedReport()
+            .getUnreferencedClasses()
+            .stream()
+            .map(Unreferenced.UnrefElement::getNodeName)
+            .map(n -> n.substring(n.indexOf('.') + 1))
+            .collect(Collectors.toList());
+    }
+
+    private static ObservedClasses observe(Class<?>... classes) throws IOException, InterruptedException
+    {
+        ObservingAgent systemUnderTest = new ObservingAgent();
+        for ( Class<?> clazz : classes )
+        {
+            String name = clazz.getName().replace('.', '/');
+            byte[] content = Files.readAllBytes(Paths.get("build", "classes", "java", "main", name + ".class"));
+            assertThat(systemUnderTest.transform(clazz.getClassLoader(), name, null, null, content)).as("changed")
+                .isNull();
+        }
+        systemUnderTest.transform(null, "java/lang/String", null, null, new byte[0]);
+        return systemUnderTest.stop();
+    }
+}
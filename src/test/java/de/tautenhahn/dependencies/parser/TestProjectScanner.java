@@ -2,10 +2,30 @@ package de.tautenhahn.dependencies.parser;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
 import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
 
+import de.tautenhahn.dependencies.parser.ClassPathConflicts.Duplicate;
+import de.tautenhahn.dependencies.parser.ClassPathConflicts.Match;
 import de.tautenhahn.dependencies.parser.Node.ListMode;
 
 
@@ -63,4 +83,601 @@ public class TestProjectScanner
     Node exNode = root.find(junitApiJar + ".org.junit.jupiter.api.function.Executable");
     assertThat(exNode.getPredecessors()).as("predecessors").contains(adapterNode);
   }
+
+  /**
+   * Asserts that the time needed for each class path entry is reported.
+   */
+  @Test
+  public void entryTimes()
+  {
+    Path classes = Paths.get("build", "classes", "java", "main");
+    Path gsonJar = Paths.get(findGsonJar());
+    ProjectScanner systemUnderTest = new ProjectScanner(new Filter());
+    systemUnderTest.scan(new ParsedClassPath(classes + File.pathSeparator + gsonJar));
+    assertThat(systemUnderTest.getEntryTimes()).as("times").containsOnlyKeys(classes, gsonJar);
+  }
+
+  /**
+   * Asserts that a scan publishes its progress to a subscriber requesting one event at a time and the graph
+   * is complete when the subscriber is completed.
+   *
+   * @throws InterruptedException if interrupted while waiting
+   */
+  @Test
+  public void publishScan() throws InterruptedException
+  {
+    Path gsonJar = Paths.get(findGsonJar());
+    List<ScanEvent> received = new ArrayList<>();
+    CountDownLatch done = new CountDownLatch(1);
+    ProjectScanner systemUnderTest = new ProjectScanner(new Filter());
+    systemUnderTest.publishScan(new ParsedClassPath(gsonJar.toString())).subscribe(new Flow.Subscriber<>()
+    {
+
+      private Flow.Subscription subscription;
+
+      @Override
+      public void onSubscribe(Flow.Subscription value)
+      {
+        subscription = value;
+        subscription.request(1);
+      }
+
+      @Override
+      public void onNext(ScanEvent item)
+      {
+        received.add(item);
+        subscription.request(1);
+      }
+
+      @Override
+      public void onError(Throwable throwable)
+      {
+        done.countDown();
+      }
+
+      @Override
+      public void onComplete()
+      {
+        done.countDown();
+      }
+    });
+    assertThat(done.await(30, TimeUnit.SECONDS)).as("completed").isTrue();
+
+    assertThat(received.get(0).getKind()).as("first event").isEqualTo(ScanEvent.Kind.ENTRY_STARTED);
+    assertThat(received.get(received.size() - 1).getKind()).as("last event")
+                                                          .isEqualTo(ScanEvent.Kind.ENTRY_FINISHED);
+    ScanEvent gsonParsed = received.stream()
+                                   .filter(e -> "com.google.gson.Gson".equals(e.getClassName()))
+                                   .findAny()
+                                   .orElseThrow();
+    assertThat(gsonParsed.getDependencies()).as("dependencies").contains("com.google.gson.JsonElement");
+    assertThat(systemUnderTest.getRoot().find(gsonParsed.getNodeName())).as("node").isNotNull();
+  }
+
+  /**
+   * Asserts that parsing an archive in parallel with random access yields the same graph as reading it as
+   * stream.
+   */
+  @Test
+  public void parallelArchiveParsing()
+  {
+    String gsonJar = findGsonJar();
+    ProjectScanner streaming = new ProjectScanner(new Filter());
+    streaming.setRandomAccessArchives(false);
+    ProjectScanner systemUnderTest = new ProjectScanner(new Filter());
+    List<String> expected = describe(streaming.scan(new ParsedClassPath(gsonJar)));
+    assertThat(describe(systemUnderTest.scan(new ParsedClassPath(gsonJar)))).as("graph").isEqualTo(expected);
+  }
+
+  /**
+   * Asserts that spilling all dependency lists to disk yields the same graph as keeping them in memory.
+   */
+  @Test
+  public void memoryBudget()
+  {
+    ParsedClassPath classPath = new ParsedClassPath(Paths.get("build", "classes", "java", "main")
+                                                    + File.pathSeparator + findGsonJar());
+    ContainerNode expected = new ProjectScanner(new Filter()).scan(classPath);
+    ProjectScanner systemUnderTest = new ProjectScanner(new Filter());
+    systemUnderTest.setMemoryBudget(0);
+    ContainerNode root = systemUnderTest.scan(classPath);
+    assertThat(describe(root)).as("graph").isEqualTo(describe(expected));
+    assertThat(describePredecessors(root)).as("predecessors").isEqualTo(describePredecessors(expected));
+  }
+
+  /**
+   * Asserts that kinds of dependencies are recorded on request and the graph can be filtered by them, while
+   * the graph itself stays the same.
+   */
+  @Test
+  public void dependencyKinds()
+  {
+    ParsedClassPath classPath = new ParsedClassPath(Paths.get("build", "classes", "java", "main").toString());
+    ContainerNode expected = new ProjectScanner(new Filter()).scan(classPath);
+    ProjectScanner systemUnderTest = new ProjectScanner(new Filter());
+    systemUnderTest.setDependencyKinds(true);
+    ContainerNode root = systemUnderTest.scan(classPath);
+    assertThat(describe(root)).as("graph").isEqualTo(describe(expected));
+
+    ClassNode container = (ClassNode)root.find("dir:main." + ContainerNode.class.getName());
+    ClassNode node = (ClassNode)root.find("dir:main." + Node.class.getName());
+    assertThat(container.getSucLeafs(DependencyKind.INHERITANCE.getBit())).as("super classes")
+                                                                          .containsExactly(node);
+    assertThat(container.getDependencyKinds(node)).as("kinds of Node")
+                                                  .isEqualTo(DependencyKind.maskOf(DependencyKind.INHERITANCE,
+                                                                                   DependencyKind.FIELD,
+                                                                                   DependencyKind.SIGNATURE));
+    assertThat(((ClassNode)expected.find("dir:main." + ContainerNode.class.getName())).getDependencyKinds(
+      (ClassNode)expected.find("dir:main." + Node.class.getName()))).as("unknown kinds")
+                                                                     .isEqualTo(DependencyKind.ALL);
+  }
+
+  /**
+   * Asserts that a class named by a string constant becomes a low confidence dependency on request only.
+   */
+  @Test
+  public void reflectiveReferences()
+  {
+    ParsedClassPath classPath = new ParsedClassPath(Paths.get("build", "classes", "java", "main")
+                                                    + File.pathSeparator
+                                                    + Paths.get("build", "classes", "java", "test"));
+    String exampleName = "dir:test." + ExampleClass.class.getName();
+    String pairName = "dir:main." + Pair.class.getName();
+    ContainerNode plain = new ProjectScanner(new Filter()).scan(classPath);
+    assertThat(((ClassNode)plain.find(exampleName)).getSucLeafs()).as("plain successors")
+                                                                 .doesNotContain((ClassNode)plain.find(pairName));
+
+    ProjectScanner systemUnderTest = new ProjectScanner(new Filter());
+    systemUnderTest.setReflectiveReferences(true);
+    ContainerNode root = systemUnderTest.scan(classPath);
+    ClassNode example = (ClassNode)root.find(exampleName);
+    assertThat(example.getSucLeafs(DependencyKind.REFLECTION.getBit())).as("reflective successors")
+                                                                      .containsExactly((ClassNode)root.find(pairName));
+    assertThat(example.getSucLeafs(DependencyKind.maskOf(DependencyKind.values())
+                                   & ~DependencyKind.REFLECTION.getBit())).as("other successors")
+                                                                          .hasSize(example.getSucLeafs().size() - 1);
+  }
+
+  /**
+   * Asserts that classes registered as service implementations are found in the same pass over the archive,
+   * also inside the class folder of fat jars.
+   *
+   * @throws IOException in case of file system problems
+   */
+  @Test
+  public void registeredClasses() throws IOException
+  {
+    Path dir = Files.createTempDirectory("archives");
+    byte[] service = "# comment\nde.tautenhahn.dependencies.parser.Pair\n".getBytes(StandardCharsets.UTF_8);
+    byte[] factories = "a.B=de.tautenhahn.dependencies.parser.Node".getBytes(StandardCharsets.UTF_8);
+    Path archive = Files.write(dir.resolve("services.jar"),
+                               createZip("de/tautenhahn/dependencies/parser/Pair.class",
+                                         "META-INF/services/java.lang.Runnable",
+                                         service,
+                                         "BOOT-INF/classes/META-INF/spring.factories",
+                                         factories));
+    for ( boolean randomAccess : new boolean[]{true, false} )
+    {
+      ProjectScanner systemUnderTest = new ProjectScanner(new Filter());
+      systemUnderTest.setRandomAccessArchives(randomAccess);
+      systemUnderTest.scan(new ParsedClassPath(archive.toString()));
+      assertThat(systemUnderTest.getRegisteredClasses()).as("registered classes")
+                                                        .containsOnlyKeys(Pair.class.getName(), Node.class.getName());
+      String location = "jar:services_jar/META-INF/services/java.lang.Runnable";
+      assertThat(systemUnderTest.getRegisteredClasses().get(Pair.class.getName())).as("locations")
+                                                                                  .containsExactly(location);
+    }
+  }
+
+  private List<String> describePredecessors(ContainerNode root)
+  {
+    return root.walkCompleteSubTree()
+               .filter(n -> n instanceof ClassNode)
+               .map(n -> n.getName() + " <- " + sorted(((ClassNode)n).getPredLeafs().stream().map(Node::getName)))
+               .collect(Collectors.toList());
+  }
+
+  /**
+   * Asserts that dependencies to JDK classes are listed as platform dependencies if a JDK index is given.
+   *
+   * @throws IOException in case of file system problems
+   */
+  @Test
+  public void platformDependencies() throws IOException
+  {
+    ProjectScanner systemUnderTest = new ProjectScanner(new Filter());
+    systemUnderTest.setJdkIndex(JdkIndex.scan(Collections.singletonList("java.base")));
+    ContainerNode root = systemUnderTest.scan(new ParsedClassPath(Paths.get("build", "classes", "java", "main")
+                                                                       .toString()));
+    ClassNode node = (ClassNode)root.find("dir:main." + ProjectScanner.class.getName());
+    assertThat(node.getPlatformDependencies()).as("platform dependencies")
+                                              .contains(Path.class.getName(), ZipFile.class.getName())
+                                              .doesNotContain(Logger.class.getName());
+    assertThat(node.getMissingDependencies()).as("missing").contains(Logger.class.getName());
+  }
+
+  /**
+   * Asserts that scanning with a cache yields the same graph when the cache is filled and when it is used.
+   *
+   * @throws IOException in case of file system problems
+   */
+  @Test
+  public void cachedScan() throws IOException
+  {
+    ParsedClassPath classPath = new ParsedClassPath(findGsonJar());
+    List<String> expected = describe(new ProjectScanner(new Filter()).scan(classPath));
+    Path dir = Files.createTempDirectory("cache");
+    ProjectScanner systemUnderTest = new ProjectScanner(new Filter());
+    systemUnderTest.setCache(new ScanCache(dir));
+    assertThat(describe(systemUnderTest.scan(classPath))).as("graph filling cache").isEqualTo(expected);
+    assertThat(dir.resolve("content").toFile().list((d, n) -> n.endsWith(".bin"))).as("cache entries")
+                                                                                 .hasSize(1);
+    assertThat(describe(systemUnderTest.scan(classPath))).as("graph from cache").isEqualTo(expected);
+  }
+
+  /**
+   * Asserts that archives nested in a fat jar or in an enterprise archive become children of the outer archive
+   * and dependencies between them are found, with random access as well as with streaming.
+   *
+   * @throws IOException in case of file system problems
+   */
+  @Test
+  public void nestedArchives() throws IOException
+  {
+    Path dir = Files.createTempDirectory("archives");
+    byte[] innerJar = createZip("de/tautenhahn/dependencies/parser/Pair.class");
+    Path fatJar = dir.resolve("app.jar");
+    Files.write(fatJar,
+                createZip("BOOT-INF/classes/de/tautenhahn/dependencies/parser/ContainerNode.class",
+                          "BOOT-INF/lib/inner.jar",
+                          innerJar));
+    Path ear = dir.resolve("app.ear");
+    Files.write(ear,
+                createZip("web.war",
+                          createZip("WEB-INF/classes/de/tautenhahn/dependencies/parser/ContainerNode.class",
+                                    "WEB-INF/lib/inner.jar",
+                                    innerJar)));
+
+    for ( boolean randomAccess : new boolean[]{true, false} )
+    {
+      assertNestedDependency(fatJar, randomAccess, "jar:app_jar.", "jar:app_jar.jar:inner_jar.");
+      assertNestedDependency(ear, randomAccess, "ear:app_ear.war:web_war.", "ear:app_ear.war:web_war.jar:inner_jar.");
+    }
+  }
+
+  private void assertNestedDependency(Path archive, boolean randomAccess, String userPrefix, String usedPrefix)
+  {
+    ProjectScanner systemUnderTest = new ProjectScanner(new Filter());
+    systemUnderTest.setRandomAccessArchives(randomAccess);
+    ContainerNode root = systemUnderTest.scan(new ParsedClassPath(archive.toString()));
+    Node user = root.find(userPrefix + ContainerNode.class.getName());
+    Node used = root.find(usedPrefix + Pair.class.getName());
+    assertThat(user.getSuccessors()).as("successors with random access " + randomAccess).contains(used);
+  }
+
+  /**
+   * Asserts that a class found in several archives is taken from the archive first in class path.
+   *
+   * @throws IOException in case of file system problems
+   */
+  @Test
+  public void firstInClassPathWins() throws IOException
+  {
+    Path dir = Files.createTempDirectory("archives");
+    Path first = Files.write(dir.resolve("first.jar"), createZip("de/tautenhahn/dependencies/parser/Pair.class"));
+    Path second = Files.write(dir.resolve("second.jar"),
+                              createZip("de/tautenhahn/dependencies/parser/Pair.class"));
+    Path user = Files.write(dir.resolve("user.jar"),
+                            createZip("de/tautenhahn/dependencies/parser/ContainerNode.class"));
+    for ( int i = 0 ; i < 5 ; i++ )
+    {
+      assertThat(getPairUsedBy(user, first, second)).as("used node").startsWith("jar:first_jar.");
+      assertThat(getPairUsedBy(user, second, first)).as("used node").startsWith("jar:second_jar.");
+    }
+  }
+
+  /**
+   * Asserts that classes found several times are reported with the kind of difference and packages found in
+   * several archives are listed.
+   *
+   * @throws IOException in case of file system problems
+   */
+  @Test
+  public void conflicts() throws IOException
+  {
+    Path dir = Files.createTempDirectory("archives");
+    String pairName = "de/tautenhahn/dependencies/parser/Pair.class";
+    byte[] changedPair = Files.readAllBytes(Paths.get("build", "classes", "java", "main").resolve(pairName));
+    changedPair[5]++;
+    Path first = Files.write(dir.resolve("first.jar"),
+                             createZip(pairName, "de/tautenhahn/dependencies/parser/Node.class"));
+    Path copy = Files.write(dir.resolve("copy.jar"), createZip(pairName));
+    Path changed = Files.write(dir.resolve("changed.jar"), createZip(pairName, changedPair));
+
+    ClassPathConflicts identical = getConflicts(first, copy);
+    assertThat(identical.getDuplicates()).as("duplicates").hasSize(1);
+    Duplicate duplicate = identical.getDuplicates().get(0);
+    assertThat(duplicate.getClassName()).as("class").isEqualTo(Pair.class.getName());
+    assertThat(duplicate.getUsedNode()).as("used").startsWith("jar:first_jar.");
+    assertThat(duplicate.getMatch()).as("match").isEqualTo(Match.IDENTICAL);
+
+    ClassPathConflicts divergent = getConflicts(first, copy, changed);
+    duplicate = divergent.getDuplicates().get(0);
+    assertThat(duplicate.getShadowedNodes()).as("shadowed")
+                                            .containsExactly("jar:copy_jar." + Pair.class.getName(),
+                                                             "jar:changed_jar." + Pair.class.getName());
+    assertThat(duplicate.getMatch()).as("match").isEqualTo(Match.DIVERGENT);
+    String packageName = Pair.class.getPackage().getName();
+    assertThat(divergent.getSplitPackages()).as("split packages").containsOnlyKeys(packageName);
+    assertThat(divergent.getSplitPackages().get(packageName)).as("archives of package")
+                                                             .containsExactly("jar:changed_jar",
+                                                                              "jar:copy_jar",
+                                                                              "jar:first_jar");
+  }
+
+  private static ClassPathConflicts getConflicts(Path... entries)
+  {
+    String classPath = Stream.of(entries).map(Path::toString).collect(Collectors.joining(File.pathSeparator));
+    ProjectScanner systemUnderTest = new ProjectScanner(new Filter());
+    systemUnderTest.scan(new ParsedClassPath(classPath));
+    return systemUnderTest.getConflicts();
+  }
+
+  private String getPairUsedBy(Path... entries)
+  {
+    String classPath = Stream.of(entries).map(Path::toString).collect(Collectors.joining(File.pathSeparator));
+    ContainerNode root = new ProjectScanner(new Filter()).scan(new ParsedClassPath(classPath));
+    ClassNode user = (ClassNode)root.find("jar:user_jar." + ContainerNode.class.getName());
+    return user.getSucLeafs()
+               .stream()
+               .map(Node::getName)
+               .filter(n -> n.endsWith(Pair.class.getName()))
+               .findAny()
+               .orElse(null);
+  }
+
+  /**
+   * Asserts that library classes reachable from the focus classes are parsed on demand while other library
+   * classes remain without dependencies.
+   *
+   * @throws IOException in case of file system problems
+   */
+  @Test
+  public void parseOnDemand() throws IOException
+  {
+    Path dir = Files.createTempDirectory("classes");
+    Path focusClass = dir.resolve("de/tautenhahn/dependencies/parser/ContainerNode.class");
+    Files.createDirectories(focusClass.getParent());
+    Files.copy(Paths.get("build", "classes", "java", "main").resolve(dir.relativize(focusClass)), focusClass);
+    Path library = Files.write(dir.resolveSibling(dir.getFileName() + "-lib.jar"),
+                               createZip("de/tautenhahn/dependencies/parser/Node.class",
+                                         "de/tautenhahn/dependencies/parser/Pair.class",
+                                         "de/tautenhahn/dependencies/parser/SymbolTable.class"));
+    ParsedClassPath classPath = new ParsedClassPath(dir + File.pathSeparator + library);
+    ProjectScanner systemUnderTest = new ProjectScanner(new Filter());
+    systemUnderTest.setParseOnDemand(true);
+    ContainerNode root = systemUnderTest.scan(classPath);
+    ContainerNode expectedRoot = new ProjectScanner(new Filter()).scan(classPath);
+
+    assertThat(dependenciesOf(root, Node.class)).as("reached class")
+                                                .isEqualTo(dependenciesOf(expectedRoot, Node.class))
+                                                .isNotEmpty();
+    assertThat(dependenciesOf(root, SymbolTable.class)).as("unreached class").isEmpty();
+    assertThat(dependenciesOf(expectedRoot, SymbolTable.class)).as("parsed completely").isNotEmpty();
+  }
+
+  /**
+   * Asserts that a library class named by a string constant only is parsed on demand if reflective references
+   * are requested.
+   *
+   * @throws IOException in case of file system problems
+   */
+  @Test
+  public void parseOnDemandReflective() throws IOException
+  {
+    Path dir = Files.createTempDirectory("classes");
+    Path focusClass = dir.resolve("de/tautenhahn/dependencies/parser/ExampleClass.class");
+    Files.createDirectories(focusClass.getParent());
+    Files.copy(Paths.get("build", "classes", "java", "test").resolve(dir.relativize(focusClass)), focusClass);
+    Path library = Files.write(dir.resolveSibling(dir.getFileName() + "-lib.jar"),
+                               createZip("de/tautenhahn/dependencies/parser/Pair.class"));
+    ParsedClassPath classPath = new ParsedClassPath(dir + File.pathSeparator + library);
+    Filter filter = new Filter()
+    {
+
+      @Override
+      public boolean isIgnoredClass(String name)
+      {
+        return false; // dependencies of Pair are JDK classes only
+      }
+    };
+    ProjectScanner systemUnderTest = new ProjectScanner(filter);
+    systemUnderTest.setParseOnDemand(true);
+    systemUnderTest.setReflectiveReferences(true);
+    ContainerNode root = systemUnderTest.scan(classPath);
+    ProjectScanner complete = new ProjectScanner(filter);
+    complete.setReflectiveReferences(true);
+    ContainerNode expectedRoot = complete.scan(classPath);
+
+    assertThat(dependenciesOf(root, Pair.class)).as("class reached by reflection")
+                                                .isEqualTo(dependenciesOf(expectedRoot, Pair.class))
+                                                .contains(Object.class.getName());
+  }
+
+  /**
+   * Asserts that the options of the scanner work together: Parsing on demand with reflective references,
+   * dependency kinds and spilled dependencies finds the same dependencies as a complete scan and bypasses the
+   * cache which holds no string constants. Without those extras, a library in focus is taken from the cache.
+   *
+   * @throws IOException in case of file system problems
+   */
+  @Test
+  public void combinedOptions() throws IOException
+  {
+    Path dir = Files.createTempDirectory("classes");
+    Path focusClass = dir.resolve("de/tautenhahn/dependencies/parser/ExampleClass.class");
+    Files.createDirectories(focusClass.getParent());
+    Files.copy(Paths.get("build", "classes", "java", "test").resolve(dir.relativize(focusClass)), focusClass);
+    Path library = Files.write(dir.resolveSibling(dir.getFileName() + "-lib.jar"),
+                               createZip("de/tautenhahn/dependencies/parser/Pair.class",
+                                         "de/tautenhahn/dependencies/parser/SymbolTable.class"));
+    ParsedClassPath classPath = new ParsedClassPath(dir + File.pathSeparator + library);
+    Path cacheDir = Files.createTempDirectory("cache");
+    Filter filter = new Filter()
+    {
+
+      @Override
+      public boolean isIgnoredClass(String name)
+      {
+        return false;
+      }
+    };
+    ProjectScanner systemUnderTest = new ProjectScanner(filter);
+    systemUnderTest.setParseOnDemand(true);
+    systemUnderTest.setReflectiveReferences(true);
+    systemUnderTest.setDependencyKinds(true);
+    systemUnderTest.setMemoryBudget(0);
+    systemUnderTest.setCache(new ScanCache(cacheDir));
+    ContainerNode root = systemUnderTest.scan(classPath);
+    ProjectScanner complete = new ProjectScanner(filter);
+    complete.setReflectiveReferences(true);
+    ContainerNode expectedRoot = complete.scan(classPath);
+
+    assertThat(dependenciesOf(root, Pair.class)).as("class reached by reflection")
+                                                .isEqualTo(dependenciesOf(expectedRoot, Pair.class))
+                                                .contains(Object.class.getName());
+    assertThat(dependenciesOf(root, SymbolTable.class)).as("unreached class").isEmpty();
+    ClassNode example = (ClassNode)root.find("dir:" + dir.getFileName() + "." + ExampleClass.class.getName());
+    ClassNode pair = (ClassNode)root.find("jar:" + library.getFileName().toString().replace('.', '_') + "."
+                                          + Pair.class.getName());
+    assertThat(example.getDependencyKinds(pair)).as("kind of reflective dependency")
+                                                .isEqualTo(DependencyKind.REFLECTION.getBit());
+    assertThat(cacheDir.resolve("content").toFile().list((d, n) -> n.endsWith(".bin"))).as("cache entries")
+                                                                                      .isNullOrEmpty();
+
+    Filter focusOnAll = new Filter()
+    {
+
+      @Override
+      public boolean isInFocus(String name)
+      {
+        return true;
+      }
+    };
+    List<String> expected = describe(new ProjectScanner(focusOnAll).scan(classPath));
+    for ( int i = 0 ; i < 2 ; i++ )
+    {
+      ProjectScanner cached = new ProjectScanner(focusOnAll);
+      cached.setParseOnDemand(true);
+      cached.setMemoryBudget(0);
+      cached.setCache(new ScanCache(cacheDir));
+      assertThat(describe(cached.scan(classPath))).as("graph with cache, run " + i).isEqualTo(expected);
+    }
+    assertThat(cacheDir.resolve("content").toFile().list((d, n) -> n.endsWith(".bin"))).as("cache entries")
+                                                                                      .hasSize(1);
+  }
+
+  /**
+   * Asserts that versioned classes of a multi-release jar are skipped in all ways of reading an archive even if
+   * the filter does not ignore them.
+   *
+   * @throws IOException in case of file system problems
+   */
+  @Test
+  public void multiReleaseJar() throws IOException
+  {
+    Path dir = Files.createTempDirectory("archives");
+    String pairName = "de/tautenhahn/dependencies/parser/Pair.class";
+    byte[] pair = Files.readAllBytes(Paths.get("build", "classes", "java", "main").resolve(pairName));
+    Path archive = Files.write(dir.resolve("multi.jar"),
+                               createZip(pairName, pair, "META-INF/versions/11/" + pairName, pair));
+    ParsedClassPath classPath = new ParsedClassPath(archive.toString());
+    Filter filter = new Filter()
+    {
+
+      @Override
+      public boolean isIgnoredClass(String name)
+      {
+        return name.startsWith("java.");
+      }
+    };
+    List<String> expected = Collections.singletonList("jar:multi_jar." + Pair.class.getName()
+                                                      + " -> [], missing []");
+    for ( boolean randomAccess : new boolean[]{true, false} )
+    {
+      ProjectScanner systemUnderTest = new ProjectScanner(filter);
+      systemUnderTest.setRandomAccessArchives(randomAccess);
+      assertThat(describe(systemUnderTest.scan(classPath))).as("random access " + randomAccess)
+                                                           .isEqualTo(expected);
+    }
+    ProjectScanner systemUnderTest = new ProjectScanner(filter);
+    systemUnderTest.setCache(new ScanCache(Files.createTempDirectory("cache")));
+    assertThat(describe(systemUnderTest.scan(classPath))).as("with cache").isEqualTo(expected);
+  }
+
+  private List<String> dependenciesOf(ContainerNode root, Class<?> clazz)
+  {
+    ClassNode node = root.walkCompleteSubTree()
+                         .filter(n -> n instanceof ClassNode && ((ClassNode)n).getClassName().equals(clazz.getName()))
+                         .map(n -> (ClassNode)n)
+                         .findAny()
+                         .orElseThrow();
+    return Stream.concat(node.getSucLeafs().stream().map(Node::getName), node.getMissingDependencies().stream())
+                 .sorted()
+                 .collect(Collectors.toList());
+  }
+
+  /**
+   * Creates zip content from alternating entry names and content, where content may be a class name to read the
+   * class file from the build directory.
+   */
+  private static byte[] createZip(Object... namesAndContent) throws IOException
+  {
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    try (ZipOutputStream zip = new ZipOutputStream(result))
+    {
+      for ( int i = 0 ; i < namesAndContent.length ; i++ )
+      {
+        String name = (String)namesAndContent[i];
+        zip.putNextEntry(new ZipEntry(name));
+        boolean contentGiven = i + 1 < namesAndContent.length && namesAndContent[i + 1] instanceof byte[];
+        if (name.endsWith(".class") && !contentGiven)
+        {
+          zip.write(Files.readAllBytes(Paths.get("build", "classes", "java", "main")
+                                            .resolve(name.replaceAll(".*-INF/classes/", ""))));
+        }
+        else
+        {
+          zip.write((byte[])namesAndContent[++i]);
+        }
+      }
+    }
+    return result.toByteArray();
+  }
+
+  private static String findGsonJar()
+  {
+    return ParsedClassPath.getCurrentClassPath()
+                          .getArchives()
+                          .stream()
+                          .map(Object::toString)
+                          .filter(p -> p.contains("gson"))
+                          .findAny()
+                          .orElseThrow();
+  }
+
+  private List<String> describe(ContainerNode root)
+  {
+    return root.walkCompleteSubTree()
+               .filter(n -> n instanceof ClassNode)
+               .map(n -> (ClassNode)n)
+               .map(n -> n.getName() + " -> " + sorted(n.getSucLeafs().stream().map(Node::getName)) + ", missing "
+                         + sorted(n.getMissingDependencies().stream()))
+               .collect(Collectors.toList());
+  }
+
+  private List<String> sorted(Stream<String> names)
+  {
+    return names.sorted().collect(Collectors.toList());
+  }
 }
@@ -0,0 +1,57 @@
+package de.tautenhahn.dependencies.parser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for reading files which register classes.
+ *
+ * @author TT
+ */
+public class TestRegistryDescriptor
+{
+
+    /**
+     * Asserts that only the supported files are recognized.
+     */
+    @Test
+    public void isDescriptor()
+    {
+        assertThat(RegistryDescriptor.isDescriptor("META-INF/services/java.sql.Driver")).as("service").isTrue();
+        assertThat(RegistryDescriptor.isDescriptor("META-INF/services/")).as("folder").isFalse();
+        assertThat(RegistryDescriptor.isDescriptor("META-INF/services/sub/x.Y")).as("sub folder").isFalse();
+        assertThat(RegistryDescriptor.isDescriptor("META-INF/spring.factories")).as("factories").isTrue();
+        assertThat(RegistryDescriptor.isDescriptor(
+            "META-INF/spring/org.springframework.boot.autoconfigure.AutoConfiguration.imports")).as("imports")
+                .isTrue();
+        assertThat(RegistryDescriptor.isDescriptor("WEB-INF/web.xml")).as("web.xml").isTrue();
+        assertThat(RegistryDescriptor.isDescriptor("META-INF/MANIFEST.MF")).as("manifest").isFalse();
+    }
+
+    /**
+     * Asserts that the class names are extracted from each kind of file.
+     */
+    @Test
+    public void getRegisteredClasses()
+    {
+        assertThat(RegistryDescriptor.getRegisteredClasses("META-INF/services/x.Y",
+            bytes("# some comment\n  a.B # implementation\r\n\nc.D"))).as("services").containsExactly("a.B", "c.D");
+        assertThat(RegistryDescriptor.getRegisteredClasses("META-INF/spring.factories",
+            bytes("x.Y=a.B,\\\n  c.D\n# comment\nz.Z = e.F"))).as("factories")
+                .containsExactlyInAnyOrder("a.B", "c.D", "e.F");
+        assertThat(RegistryDescriptor.getRegisteredClasses("WEB-INF/web.xml",
+            bytes("<web-app><servlet><servlet-name>s</servlet-name><servlet-class> a.B </servlet-class></servlet>"
+                + "<filter><filter-class>c.D</filter-class></filter>"
+                + "<listener><listener-class>e.F</listener-class></listener></web-app>"))).as("web.xml")
+                    .containsExactlyInAnyOrder("a.B", "c.D", "e.F");
+    }
+
+    private static byte[] bytes(String content)
+    {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+}
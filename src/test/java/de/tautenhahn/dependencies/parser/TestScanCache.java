@@ -0,0 +1,155 @@
+package de.tautenhahn.dependencies.parser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for the persistent cache of archive contents.
+ *
+ * @author TT
+ */
+public class TestScanCache
+{
+
+  /**
+   * Asserts that stored content is found again as long as the archive content does not change, even if the
+   * file was touched.
+   *
+   * @throws IOException in case of file system problems
+   */
+  @Test
+  public void storeAndLoad() throws IOException
+  {
+    Path dir = Files.createTempDirectory("cache");
+    Path archive = Files.write(dir.resolve("some.jar"), "content".getBytes(StandardCharsets.UTF_8));
+    ScanCache systemUnderTest = new ScanCache(dir.resolve("entries"));
+    assertThat(systemUnderTest.get(archive)).as("unknown archive").isNull();
+
+    systemUnderTest.put(archive, createContent());
+    assertThat(describe(systemUnderTest.get(archive))).as("loaded").isEqualTo("a.A -> [b.B, c.C]; b.B -> []; ");
+
+    Files.setLastModifiedTime(archive, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+    assertThat(systemUnderTest.get(archive)).as("touched archive").isNotNull();
+
+    Files.write(archive, "changed".getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(archive, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+    assertThat(systemUnderTest.get(archive)).as("changed archive").isNull();
+  }
+
+  /**
+   * Asserts that archives with same content share one entry which is created only once, even if requested by
+   * several threads concurrently.
+   *
+   * @throws Exception in case of file system problems
+   */
+  @Test
+  public void contentAddressed() throws Exception
+  {
+    Path dir = Files.createTempDirectory("cache");
+    List<Path> archives = new ArrayList<>();
+    for ( int i = 0 ; i < 8 ; i++ )
+    {
+      archives.add(Files.write(dir.resolve("copy" + i + ".jar"), "content".getBytes(StandardCharsets.UTF_8)));
+    }
+    ScanCache systemUnderTest = new ScanCache(dir.resolve("entries"));
+    AtomicInteger calls = new AtomicInteger();
+    List<ArchiveContent> results = archives.parallelStream().map(a -> {
+      try
+      {
+        return systemUnderTest.computeIfAbsent(a, p -> {
+          calls.incrementAndGet();
+          return createContent();
+        });
+      }
+      catch (IOException e)
+      {
+        throw new UncheckedIOException(e);
+      }
+    }).collect(Collectors.toList());
+
+    assertThat(calls.get()).as("number of parser calls").isEqualTo(1);
+    assertThat(results).as("results").allSatisfy(r -> assertThat(describe(r)).isEqualTo(describe(createContent())));
+    assertThat(dir.resolve("entries").resolve("content").toFile().list((d, n) -> n.endsWith(".bin")))
+      .as("content entries")
+      .hasSize(1);
+    assertThat(dir.resolve("entries").resolve("content").toFile().list((d, n) -> n.endsWith(".lock")))
+      .as("lock files")
+      .containsExactly("cache.lock");
+    assertThat(ScanCache.getNumberLocalLocks()).as("remaining local locks").isZero();
+  }
+
+  /**
+   * Asserts that archives with different content are stored concurrently using the same lock file.
+   *
+   * @throws Exception in case of file system problems
+   */
+  @Test
+  public void differentContent() throws Exception
+  {
+    Path dir = Files.createTempDirectory("cache");
+    List<Path> archives = new ArrayList<>();
+    for ( int i = 0 ; i < 8 ; i++ )
+    {
+      archives.add(Files.write(dir.resolve("lib" + i + ".jar"), ("content" + i).getBytes(StandardCharsets.UTF_8)));
+    }
+    ScanCache systemUnderTest = new ScanCache(dir.resolve("entries"));
+    AtomicInteger calls = new AtomicInteger();
+    archives.parallelStream().forEach(a -> {
+      try
+      {
+        systemUnderTest.computeIfAbsent(a, p -> {
+          calls.incrementAndGet();
+          return createContent();
+        });
+      }
+      catch (IOException e)
+      {
+        throw new UncheckedIOException(e);
+      }
+    });
+
+    assertThat(calls.get()).as("number of parser calls").isEqualTo(archives.size());
+    assertThat(archives).as("stored archives").allSatisfy(a -> assertThat(systemUnderTest.get(a)).isNotNull());
+    assertThat(dir.resolve("entries").resolve("content").toFile().list((d, n) -> n.endsWith(".lock")))
+      .as("lock files")
+      .containsExactly("cache.lock");
+    assertThat(ScanCache.getNumberLocalLocks()).as("remaining local locks").isZero();
+  }
+
+  private static ArchiveContent createContent()
+  {
+    SymbolTable symbols = new SymbolTable();
+    int[] classes = {symbols.intern("a.A"), symbols.intern("b.B")};
+    int[][] dependencies = {{classes[1], symbols.intern("c.C")}, {}};
+    return ArchiveContent.of(symbols, classes, dependencies, new long[]{1, 2});
+  }
+
+  private static String describe(ArchiveContent content)
+  {
+    StringBuilder result = new StringBuilder();
+    for ( int i = 0 ; i < content.getNumberClasses() ; i++ )
+    {
+      result.append(content.getClassName(i)).append(" -> [");
+      int[] deps = content.getDependencies(i);
+      for ( int j = 0 ; j < deps.length ; j++ )
+      {
+        result.append(j > 0 ? ", " : "").append(content.getName(deps[j]));
+      }
+      result.append("]; ");
+    }
+    return result.toString();
+  }
+}
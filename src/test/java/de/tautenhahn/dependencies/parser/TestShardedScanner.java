@@ -0,0 +1,108 @@
+package de.tautenhahn.dependencies.parser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for scanning with several worker processes.
+ *
+ * @author TT
+ */
+public class TestShardedScanner
+{
+
+    private static final ParsedClassPath CLASS_PATH = new ParsedClassPath(Paths.get("build", "classes", "java",
+        "main") + File.pathSeparator + ParsedClassPath.getCurrentClassPath()
+            .getArchives()
+            .stream()
+            .map(Object::toString)
+            .filter(p -> p.contains("gson") || p.contains("assertj"))
+            .collect(Collectors.joining(File.pathSeparator)));
+
+    /**
+     * Asserts that each entry is assigned to exactly one shard and the biggest entry gets its own shard.
+     */
+    @Test
+    public void createShards()
+    {
+        List<List<Integer>> shards = new ShardedScanner(new Filter(), 2).createShards(CLASS_PATH);
+        assertThat(shards).as("shards").hasSize(2);
+        assertThat(shards.stream().flatMap(List::stream)).as("entries").containsExactlyInAnyOrder(0, 1, 2);
+        assertThat(shards).as("shards").anySatisfy(s -> assertThat(s).hasSize(1));
+    }
+
+    /**
+     * Asserts that merging the partial results of the workers yields the same graph as a scan in one JVM.
+     *
+     * @throws IOException in case of file system problems
+     */
+    @Test
+    public void scan() throws IOException
+    {
+        List<String> expected = describe(new ProjectScanner(new Filter()).scan(CLASS_PATH));
+        assertThat(describe(new ShardedScanner(new Filter(), 2).scan(CLASS_PATH))).as("graph").isEqualTo(expected);
+    }
+
+    /**
+     * Asserts that the workers use the patterns of the given filter and that registered classes are merged.
+     *
+     * @throws IOException in case of file system problems
+     */
+    @Test
+    public void scanWithFilter() throws IOException
+    {
+        Filter filter = new Filter();
+        filter.addIgnoredClassName("com\\.google\\.gson\\.internal\\..*");
+        ProjectScanner local = new ProjectScanner(filter);
+        List<String> expected = describe(local.scan(CLASS_PATH));
+        assertThat(expected).as("local graph").noneMatch(s -> s.contains("<com.google.gson.internal."));
+        ShardedScanner systemUnderTest = new ShardedScanner(filter, 2);
+        assertThat(describe(systemUnderTest.scan(CLASS_PATH))).as("graph").isEqualTo(expected);
+        assertThat(systemUnderTest.getRegisteredClasses()).as("registered classes")
+            .isEqualTo(local.getRegisteredClasses());
+    }
+
+    /**
+     * Asserts that options which cannot be passed to the workers or cannot be merged are refused.
+     */
+    @Test
+    public void unsupportedOptions()
+    {
+        Filter subclass = new Filter()
+        {
+
+            @Override
+            public boolean isIgnoredClass(String name)
+            {
+                return true;
+            }
+        };
+        assertThatThrownBy(() -> new ShardedScanner(subclass, 2)).as("filter subclass")
+            .isInstanceOf(IllegalArgumentException.class);
+        ProjectScanner merger = new ProjectScanner(new Filter());
+        merger.setDependencyKinds(true);
+        assertThatThrownBy(() -> merger.merge(CLASS_PATH, List.of())).as("merge with dependency kinds")
+            .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    private static List<String> describe(ContainerNode root)
+    {
+        return root.walkCompleteSubTree()
+            .filter(n -> n instanceof ClassNode)
+            .map(n -> (ClassNode)n)
+            .map(n -> n.getName() + " -> "
+                      + n.getSucLeafs().stream().map(Node::getName).sorted().collect(Collectors.toList())
+                      + ", missing " + n.getMissingDependencies().stream().sorted().collect(Collectors.toList()))
+            .sorted()
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,70 @@
+package de.tautenhahn.dependencies.parser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Unit tests for the symbol table.
+ *
+ * @author TT
+ */
+public class TestSymbolTable
+{
+
+    /**
+     * Asserts that names get dense IDs and the same ID is returned for a name given as String or bytes.
+     */
+    @Test
+    public void internNames()
+    {
+        SymbolTable systemUnderTest = new SymbolTable();
+        int first = systemUnderTest.intern("de.tautenhahn.First");
+        byte[] bytes = "xxde.tautenhahn.First".getBytes(StandardCharsets.UTF_8);
+        byte[] name = Arrays.copyOfRange(bytes, 2, bytes.length);
+        assertThat(systemUnderTest.intern(name, name.length, true)).as("same name as bytes").isEqualTo(first);
+        byte[] umlaut = "de.tautenhahn.\u00c4pfel".getBytes(StandardCharsets.UTF_8);
+        int second = systemUnderTest.intern(umlaut, umlaut.length, false);
+        assertThat(systemUnderTest.get(second)).as("non-ASCII name").isEqualTo("de.tautenhahn.\u00c4pfel");
+        assertThat(systemUnderTest.find("de.tautenhahn.\u00c4pfel")).as("found").isEqualTo(second);
+        assertThat(systemUnderTest.find("unknown")).as("unknown name").isEqualTo(-1);
+        assertThat(systemUnderTest.size()).as("size").isEqualTo(2);
+    }
+
+    /**
+     * Asserts that concurrent registration of many names yields each ID exactly once.
+     */
+    @Test
+    public void concurrentUsage()
+    {
+        SymbolTable systemUnderTest = new SymbolTable();
+        int number = 20_000;
+        int[] ids = IntStream.range(0, 2 * number)
+            .parallel()
+            .map(i -> systemUnderTest.intern("name" + i % number))
+            .toArray();
+        assertThat(systemUnderTest.size()).as("size").isEqualTo(number);
+        assertThat(Arrays.stream(ids).distinct().count()).as("different IDs").isEqualTo(number);
+        assertThat(systemUnderTest.get(ids[12_345])).as("name").isEqualTo("name12345");
+    }
+
+    /**
+     * Asserts that a cleared table can be filled again, also beyond the first chunk.
+     */
+    @Test
+    public void clear()
+    {
+        SymbolTable systemUnderTest = new SymbolTable();
+        IntStream.range(0, 5000).forEach(i -> systemUnderTest.intern("old" + i));
+        systemUnderTest.clear();
+        assertThat(systemUnderTest.size()).as("size after clear").isZero();
+        assertThat(systemUnderTest.find("old1")).as("removed name").isEqualTo(-1);
+        IntStream.range(0, 5000).forEach(i -> assertThat(systemUnderTest.intern("new" + i)).isEqualTo(i));
+        assertThat(systemUnderTest.get(4500)).as("name in second chunk").isEqualTo("new4500");
+        assertThat(systemUnderTest.find("new70")).as("name in grown first chunk").isEqualTo(70);
+    }
+}
@@ -0,0 +1,47 @@
+package de.tautenhahn.dependencies.reports;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import de.tautenhahn.dependencies.parser.ClassNode;
+import de.tautenhahn.dependencies.parser.ContainerNode;
+import de.tautenhahn.dependencies.parser.JdkIndex;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for reporting used JDK modules.
+ *
+ * @author TT
+ */
+public class TestPlatformUsage
+{
+
+    /**
+     * Asserts that classes are counted per module and class path entry.
+     *
+     * @throws IOException in case of file system problems
+     */
+    @Test
+    public void countModules() throws IOException
+    {
+        ContainerNode root = ContainerNode.createRoot();
+        ClassNode classA = root.createLeaf("dir:main.de.tautenhahn.a.A");
+        ClassNode classB = root.createLeaf("dir:main.de.tautenhahn.b.B");
+        ClassNode fromJar = root.createLeaf("jar:dummy.DummyClass");
+        classA.addPlatformDependency("java.lang.String");
+        classA.addPlatformDependency("java.sql.Connection");
+        classB.addPlatformDependency("java.lang.String");
+        classB.addPlatformDependency("java.lang.Object");
+        fromJar.addPlatformDependency("java.sql.Statement");
+
+        PlatformUsage systemUnderTest = new PlatformUsage(root, JdkIndex.scan(Arrays.asList("java.base", "java.sql")));
+        assertThat(systemUnderTest.getContent().get("java.base")).as("users of java.base")
+            .containsOnlyKeys("dir:main")
+            .containsEntry("dir:main", 2);
+        assertThat(systemUnderTest.getContent().get("java.sql")).as("users of java.sql")
+            .containsOnlyKeys("dir:main", "jar:dummy");
+        assertThat(systemUnderTest.toString()).as("report").contains("jar:dummy (1 classes)");
+    }
+}
@@ -40,6 +40,9 @@ public class TestProjectView
         shownPath.get(0).setActive(false);
         assertThat(shownPath.get(0).getLabel()).as("label").isNotEqualTo(shownPath.get(1).getLabel());
         assertThat(systemUnderTest.getUnreferencedReport()).as("report").isNotNull();
+        assertThat(systemUnderTest.getPlatformUsageReport().getContent()).as("platform report without JDK index")
+            .isEmpty();
+        assertThat(systemUnderTest.getConflictsReport()).as("conflicts report").isNotNull();
         assertThat(systemUnderTest.getProjectName()).as("name").isEqualTo("GordianKnot");
         changeListMode(systemUnderTest, "reports", "COLLAPSE_PARENT");
         systemUnderTest.restrictToImpliedBy(0, false);